@@ -37,7 +37,7 @@ import java.util.Properties;
  * 2012-5-8
  *
  */
-public class DefaultConfig implements Configuration {
+public class DefaultConfig implements ExtendedConfiguration {
 
   /*
    * 分词器默认字典路径
@@ -53,6 +53,32 @@ public class DefaultConfig implements Configuration {
   private static final String EXT_DICT = "ext_dict";
   // 配置属性——扩展停止词典
   private static final String EXT_STOP = "ext_stopwords";
+  // 配置属性——主词典树实现
+  private static final String DICT_ENGINE = "dict_engine";
+  // 默认的主词典树实现
+  private static final String DEFAULT_DICT_ENGINE = "trie";
+  // 配置属性——中文词典匹配方式
+  private static final String CJK_MATCHER = "cjk_matcher";
+  // 默认的中文词典匹配方式
+  private static final String DEFAULT_CJK_MATCHER = "classic";
+  // 配置属性——子分词器实现
+  private static final String SEGMENTER = "segmenter";
+  // 默认的子分词器实现
+  private static final String DEFAULT_SEGMENTER = "classic";
+  // 配置属性——远程扩展字典
+  private static final String REMOTE_EXT_DICT = "remote_ext_dict";
+  // 配置属性——远程扩展字典轮询间隔（秒）
+  private static final String REMOTE_DICT_INTERVAL = "remote_dict_interval";
+  // 默认的远程扩展字典轮询间隔（秒）
+  private static final long DEFAULT_REMOTE_DICT_INTERVAL = 60;
+  // 配置属性——等待后台词典初始化的超时时间（秒）
+  private static final String DICT_INITIAL_TIMEOUT = "dict_initial_timeout";
+  // 默认的等待后台词典初始化的超时时间（秒）
+  private static final long DEFAULT_DICT_INITIAL_TIMEOUT = 60;
+  // 配置属性——扩展词典热加载
+  private static final String DICT_RELOAD = "dict_reload";
+  // 配置属性——预编译词典快照
+  private static final String DICT_SNAPSHOT = "dict_snapshot";
 
   private Properties props;
   /*
@@ -61,8 +87,9 @@ public class DefaultConfig implements Configuration {
   private boolean useSmart;
 
   /**
-   * 返回单例
-   * @return Configuration单例
+   * 返回配置对象
+   * 每次调用读取配置文件并创建新的实例，setUseSmart、setSegmenter只影响该实例
+   * @return Configuration
    */
   public static Configuration getInstance() {
     return new DefaultConfig();
@@ -86,6 +113,19 @@ public class DefaultConfig implements Configuration {
     }
   }
 
+  /**
+   * 以ExtendedConfiguration方式读取配置
+   * cfg未实现ExtendedConfiguration时，基本配置项取自cfg，扩展配置项使用默认值
+   * @param cfg
+   * @return ExtendedConfiguration
+   */
+  public static ExtendedConfiguration extend(Configuration cfg) {
+    if (cfg instanceof ExtendedConfiguration) {
+      return (ExtendedConfiguration) cfg;
+    }
+    return new DefaultExtension(cfg);
+  }
+
   /**
    * 返回useSmart标志位
    * useSmart =true ，分词器使用智能切分策略， =false则使用细粒度切分
@@ -163,4 +203,203 @@ public class DefaultConfig implements Configuration {
     return extStopWordDictFiles;
   }
 
+  /**
+   * 获取主词典树的实现方式
+   * trie ：默认的对象树（DictSegment）； dat ：双数组树，占用内存更少；
+   * radix ：路径压缩的基数树，单链的长尾词条合并为一个节点；
+   * fst ：Lucene FST最小无环自动机（主词典及量词词典），共享前缀及后缀，内存占用最少但不能原地修改；
+   * mmap ：内存映射的词典快照（需配置dict_snapshot），词典数据在堆外并由本机多个进程共享。
+   * 只有trie将量词及停止词合并到主词典树，支持词条标签（Dictionary.tagWords）并在匹配时同时给出停止词归属；
+   * 其他实现不保存词的标志位，停止词需单独匹配
+   * @return String 词典树实现名称
+   */
+  public String getDictEngine() {
+    String engine = props.getProperty(DICT_ENGINE);
+    if (engine == null || "".equals(engine.trim())) {
+      return DEFAULT_DICT_ENGINE;
+    }
+    return engine.trim();
+  }
+
+  /**
+   * 获取预编译词典快照的文件路径
+   * 快照与词典源文件的校验和一致时，直接从快照载入词典
+   * @return String 文件系统路径，未配置返回null
+   */
+  public String getDictSnapshot() {
+    String snapshot = props.getProperty(DICT_SNAPSHOT);
+    if (snapshot == null || "".equals(snapshot.trim())) {
+      return null;
+    }
+    return snapshot.trim();
+  }
+
+  /**
+   * 获取中文词典的匹配方式
+   * classic ：默认，逐个起始位置在词典树上匹配； ac ：Aho-Corasick自动机单遍匹配（主词典使用双数组树）
+   * @return String 匹配方式名称
+   */
+  public String getCJKMatcher() {
+    String matcher = props.getProperty(CJK_MATCHER);
+    if (matcher == null || "".equals(matcher.trim())) {
+      return DEFAULT_CJK_MATCHER;
+    }
+    return matcher.trim();
+  }
+
+  /**
+   * 获取子分词器的实现方式
+   * classic ：默认，字母、数量词、中文词三个子分词器依次处理每个字符；
+   * fused ：合并的状态机，由一张字符动作表驱动，产生与classic相同的词元
+   * @return String 子分词器实现名称
+   */
+  public String getSegmenter() {
+    String segmenter = props.getProperty(SEGMENTER);
+    if (segmenter == null || "".equals(segmenter.trim())) {
+      return DEFAULT_SEGMENTER;
+    }
+    return segmenter.trim();
+  }
+
+  /**
+   * 设置子分词器的实现方式，覆盖配置文件中的设置
+   * @param segmenter classic 或 fused
+   */
+  public void setSegmenter(String segmenter) {
+    props.setProperty(SEGMENTER, segmenter);
+  }
+
+  /**
+   * 是否监视扩展词典及扩展停止词典文件，文件变化后自动热加载
+   * @return boolean
+   */
+  public boolean isDictReload() {
+    return "true".equalsIgnoreCase(props.getProperty(DICT_RELOAD, "false").trim());
+  }
+
+  /**
+   * 获取远程扩展词典配置地址
+   * @return List<String> HTTP地址
+   */
+  public List<String> getRemoteExtDictionarys() {
+    List<String> remoteDictUrls = new ArrayList<String>(2);
+    String remoteDictCfg = props.getProperty(REMOTE_EXT_DICT);
+    if (remoteDictCfg != null) {
+      // 使用;分割多个远程扩展字典配置
+      for (String url : remoteDictCfg.split(";")) {
+        if (!"".equals(url.trim())) {
+          remoteDictUrls.add(url.trim());
+        }
+      }
+    }
+    return remoteDictUrls;
+  }
+
+  /**
+   * 获取远程扩展词典的轮询间隔
+   * @return long 秒
+   */
+  public long getRemoteDictInterval() {
+    String interval = props.getProperty(REMOTE_DICT_INTERVAL);
+    if (interval != null && !"".equals(interval.trim())) {
+      try {
+        long seconds = Long.parseLong(interval.trim());
+        if (seconds > 0) {
+          return seconds;
+        }
+      } catch (NumberFormatException e) {
+        System.err.println("Invalid " + REMOTE_DICT_INTERVAL + ": " + interval);
+      }
+    }
+    return DEFAULT_REMOTE_DICT_INTERVAL;
+  }
+
+  /**
+   * 获取等待后台词典初始化的超时时间
+   * IKSegmenter.initialAsync启动的初始化尚未结束时，创建分词器最多等待的时间
+   * @return long 秒
+   */
+  public long getDictInitialTimeout() {
+    String timeout = props.getProperty(DICT_INITIAL_TIMEOUT);
+    if (timeout != null && !"".equals(timeout.trim())) {
+      try {
+        long seconds = Long.parseLong(timeout.trim());
+        if (seconds >= 0) {
+          return seconds;
+        }
+      } catch (NumberFormatException e) {
+        System.err.println("Invalid " + DICT_INITIAL_TIMEOUT + ": " + timeout);
+      }
+    }
+    return DEFAULT_DICT_INITIAL_TIMEOUT;
+  }
+
+  /**
+   * 为未实现ExtendedConfiguration的配置补全扩展配置项的默认值
+   */
+  private static class DefaultExtension implements ExtendedConfiguration {
+
+    private final Configuration cfg;
+
+    DefaultExtension(Configuration cfg) {
+      this.cfg = cfg;
+    }
+
+    public boolean useSmart() {
+      return cfg.useSmart();
+    }
+
+    public void setUseSmart(boolean useSmart) {
+      cfg.setUseSmart(useSmart);
+    }
+
+    public String getMainDictionary() {
+      return cfg.getMainDictionary();
+    }
+
+    public String getQuantifierDicionary() {
+      return cfg.getQuantifierDicionary();
+    }
+
+    public List<String> getExtDictionarys() {
+      return cfg.getExtDictionarys();
+    }
+
+    public List<String> getExtStopWordDictionarys() {
+      return cfg.getExtStopWordDictionarys();
+    }
+
+    public String getDictEngine() {
+      return DEFAULT_DICT_ENGINE;
+    }
+
+    public String getDictSnapshot() {
+      return null;
+    }
+
+    public String getCJKMatcher() {
+      return DEFAULT_CJK_MATCHER;
+    }
+
+    public String getSegmenter() {
+      return DEFAULT_SEGMENTER;
+    }
+
+    public boolean isDictReload() {
+      return false;
+    }
+
+    public List<String> getRemoteExtDictionarys() {
+      return new ArrayList<String>(0);
+    }
+
+    public long getRemoteDictInterval() {
+      return DEFAULT_REMOTE_DICT_INTERVAL;
+    }
+
+    public long getDictInitialTimeout() {
+      return DEFAULT_DICT_INITIAL_TIMEOUT;
+    }
+  }
+
 }
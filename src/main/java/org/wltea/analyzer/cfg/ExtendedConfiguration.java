@@ -0,0 +1,96 @@
+/**
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ * 
+ */
+package org.wltea.analyzer.cfg;
+
+import java.util.List;
+
+/**
+ * 扩展配置项
+ * 词典树实现、词典快照、匹配方式、子分词器、扩展词典热加载及后台初始化等可选配置。
+ * 独立于Configuration接口，已有的Configuration实现无需修改；
+ * 未实现本接口的配置通过DefaultConfig.extend使用各配置项的默认值
+ */
+public interface ExtendedConfiguration extends Configuration {
+
+  /**
+   * 获取主词典树的实现方式
+   * trie ：默认的对象树（DictSegment）； dat ：双数组树，占用内存更少；
+   * radix ：路径压缩的基数树，单链的长尾词条合并为一个节点；
+   * fst ：Lucene FST最小无环自动机（主词典及量词词典），共享前缀及后缀，内存占用最少但不能原地修改；
+   * mmap ：内存映射的词典快照（需配置dict_snapshot），词典数据在堆外并由本机多个进程共享。
+   * 只有trie将量词及停止词合并到主词典树，支持词条标签（Dictionary.tagWords）并在匹配时同时给出停止词归属；
+   * 其他实现不保存词的标志位，停止词需单独匹配
+   * @return String 词典树实现名称
+   */
+  public String getDictEngine();
+
+  /**
+   * 获取预编译词典快照的文件路径
+   * 快照与词典源文件的校验和一致时，直接从快照载入词典
+   * @return String 文件系统路径，未配置返回null
+   */
+  public String getDictSnapshot();
+
+  /**
+   * 获取中文词典的匹配方式
+   * classic ：默认，逐个起始位置在词典树上匹配； ac ：Aho-Corasick自动机单遍匹配（主词典使用双数组树）
+   * @return String 匹配方式名称
+   */
+  public String getCJKMatcher();
+
+  /**
+   * 获取子分词器的实现方式
+   * classic ：默认，字母、数量词、中文词三个子分词器依次处理每个字符；
+   * fused ：合并的状态机，由一张字符动作表驱动，产生与classic相同的词元
+   * @return String 子分词器实现名称
+   */
+  public String getSegmenter();
+
+  /**
+   * 是否监视扩展词典及扩展停止词典文件，文件变化后自动热加载
+   * @return boolean
+   */
+  public boolean isDictReload();
+
+  /**
+   * 获取远程扩展词典配置地址
+   * @return List<String> HTTP地址
+   */
+  public List<String> getRemoteExtDictionarys();
+
+  /**
+   * 获取远程扩展词典的轮询间隔
+   * @return long 秒
+   */
+  public long getRemoteDictInterval();
+
+  /**
+   * 获取等待后台词典初始化的超时时间
+   * IKSegmenter.initialAsync启动的初始化尚未结束时，创建分词器最多等待的时间
+   * @return long 秒
+   */
+  public long getDictInitialTimeout();
+
+}
@@ -26,13 +26,8 @@ package org.wltea.analyzer.core;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
 
-import org.wltea.analyzer.cfg.Configuration;
 import org.wltea.analyzer.dic.Dictionary;
 
 /**
@@ -43,7 +38,7 @@ import org.wltea.analyzer.dic.Dictionary;
 class AnalyzeContext {
 
   // 默认缓冲区大小
-  private static final int BUFF_SIZE = 4096;
+  static final int BUFF_SIZE = 4096;
   // 缓冲区耗尽的临界值
   private static final int BUFF_EXHAUST_CRITICAL = 100;
 
@@ -60,28 +55,37 @@ class AnalyzeContext {
   // 最近一次读入的,可处理的字串长度
   private int available;
 
-  // 子分词器锁
-  // 该集合非空，说明有子分词器在占用segmentBuff
-  private Set<String> buffLocker;
+  // 子分词器锁，每个子分词器占用一位
+  // 非0，说明有子分词器在占用segmentBuff
+  private int buffLocker;
 
+  // 词元存储，分词过程中的词元均以编号引用
+  private LexemeStore lexemes;
   // 原始分词结果集合，未经歧义处理
   private QuickSortSet orgLexemes;
-  // LexemePath位置索引表
-  private Map<Integer, LexemePath> pathMap;
-  // 最终分词结果集
-  private LinkedList<Lexeme> results;
-
-  // 分词器配置项
-  private Configuration cfg;
-
-  public AnalyzeContext(Configuration cfg) {
-    this.cfg = cfg;
+  // LexemePath位置索引表，下标为路径在segmentBuff中的起始位置
+  private LexemePath[] pathTable;
+  // 最终分词结果集（词元编号环形队列，容量为2的幂）
+  private int[] results;
+  // 结果集队列头
+  private int resultHead;
+  // 结果集中的词元数
+  private int resultSize;
+
+  // 是否使用智能切分
+  private final boolean useSmart;
+  // 分词使用的词典
+  private final Dictionary dictionary;
+
+  public AnalyzeContext(boolean useSmart, Dictionary dictionary) {
+    this.useSmart = useSmart;
+    this.dictionary = dictionary;
     this.segmentBuff = new char[BUFF_SIZE];
     this.charTypes = new int[BUFF_SIZE];
-    this.buffLocker = new HashSet<String>();
-    this.orgLexemes = new QuickSortSet();
-    this.pathMap = new HashMap<Integer, LexemePath>();
-    this.results = new LinkedList<Lexeme>();
+    this.lexemes = new LexemeStore();
+    this.orgLexemes = new QuickSortSet(this.lexemes, BUFF_SIZE);
+    this.pathTable = new LexemePath[BUFF_SIZE];
+    this.results = new int[BUFF_SIZE];
   }
 
   int getCursor() {
@@ -93,6 +97,10 @@ class AnalyzeContext {
   // this.cursor = cursor;
   // }
 
+  Dictionary getDictionary() {
+    return dictionary;
+  }
+
   char[] getSegmentBuff() {
     return this.segmentBuff;
   }
@@ -109,6 +117,10 @@ class AnalyzeContext {
     return this.buffOffset;
   }
 
+  LexemeStore getLexemes() {
+    return this.lexemes;
+  }
+
   /**
    * 根据context的上下文情况，填充segmentBuff 
    * @param reader
@@ -117,6 +129,8 @@ class AnalyzeContext {
    */
   int fillBuffer(Reader reader) throws IOException {
     int readCount = 0;
+    // segmentBuff头部已经规格化的字符数，第一个字符由initCursor处理
+    int regularized = 1;
     if (this.buffOffset == 0) {
       // 首次读取reader
       readCount = reader.read(segmentBuff);
@@ -124,38 +138,79 @@ class AnalyzeContext {
       int offset = this.available - this.cursor;
       if (offset > 0) {
         // 最近一次读取的>最近一次处理的，将未处理的字串拷贝到segmentBuff头部
+        // 这部分字符已经规格化，字符类型一并拷贝
         System.arraycopy(this.segmentBuff, this.cursor, this.segmentBuff, 0, offset);
+        System.arraycopy(this.charTypes, this.cursor, this.charTypes, 0, offset);
         readCount = offset;
+        regularized = offset;
       }
       // 继续读取reader ，以onceReadIn - onceAnalyzed为起始位置，继续填充segmentBuff剩余的部分
       readCount += reader.read(this.segmentBuff, offset, BUFF_SIZE - offset);
     }
+    if (readCount > regularized) {
+      // 新读入的字符整段规格化并识别类型
+      CharacterUtil.regularize(this.segmentBuff, this.charTypes, regularized, readCount);
+    }
     // 记录最后一次从Reader中读入的可用字符长度
     this.available = readCount;
     // 重置当前指针
     this.cursor = 0;
+    // 上一轮的词元已全部输出，重用词元存储
+    this.lexemes.clear(this.buffOffset);
     return readCount;
   }
 
+  /**
+   * 将整段文本一次复制到segmentBuff，代替fillBuffer(Reader)
+   * 文本长度须小于BUFF_SIZE，复制后不再需要移位及续读
+   * @param text
+   * @param off 文本在text中的起始位置
+   * @param len 文本长度
+   * @return 返回待分析的（有效的）字串长度
+   */
+  int loadText(char[] text, int off, int len) {
+    System.arraycopy(text, off, this.segmentBuff, 0, len);
+    return this.loaded(len);
+  }
+
+  /**
+   * 将整段字符串一次复制到segmentBuff，代替fillBuffer(Reader)
+   * 字符串长度须小于BUFF_SIZE
+   * @param text
+   * @return 返回待分析的（有效的）字串长度
+   */
+  int loadText(String text) {
+    text.getChars(0, text.length(), this.segmentBuff, 0);
+    return this.loaded(text.length());
+  }
+
+  private int loaded(int length) {
+    if (length > 1) {
+      // 第一个字符由initCursor处理
+      CharacterUtil.regularize(this.segmentBuff, this.charTypes, 1, length);
+    }
+    this.available = length;
+    this.cursor = 0;
+    this.lexemes.clear(this.buffOffset);
+    return length;
+  }
+
   /**
    * 初始化buff指针，处理第一个字符
    */
   void initCursor() {
     this.cursor = 0;
-    this.segmentBuff[this.cursor] = CharacterUtil.regularize(this.segmentBuff[this.cursor]);
-    this.charTypes[this.cursor] = CharacterUtil.identifyCharType(this.segmentBuff[this.cursor]);
+    CharacterUtil.regularize(this.segmentBuff, this.charTypes, 0, 1);
   }
 
   /**
    * 指针+1
    * 成功返回 true； 指针已经到了buff尾部，不能前进，返回false
-   * 并处理当前字符
+   * 字符已在fillBuffer时规格化并识别类型
    */
   boolean moveCursor() {
     if (this.cursor < this.available - 1) {
       this.cursor++;
-      this.segmentBuff[this.cursor] = CharacterUtil.regularize(this.segmentBuff[this.cursor]);
-      this.charTypes[this.cursor] = CharacterUtil.identifyCharType(this.segmentBuff[this.cursor]);
       return true;
     } else {
       return false;
@@ -164,28 +219,28 @@ class AnalyzeContext {
 
   /**
    * 设置当前segmentBuff为锁定状态
-   * 加入占用segmentBuff的子分词器名称，表示占用segmentBuff
-   * @param segmenterName
+   * 置位占用segmentBuff的子分词器锁位，表示占用segmentBuff
+   * @param segmenterLock 子分词器的SEGMENTER_LOCK
    */
-  void lockBuffer(String segmenterName) {
-    this.buffLocker.add(segmenterName);
+  void lockBuffer(int segmenterLock) {
+    this.buffLocker |= segmenterLock;
   }
 
   /**
-   * 移除指定的子分词器名，释放对segmentBuff的占用
-   * @param segmenterName
+   * 清除指定子分词器的锁位，释放对segmentBuff的占用
+   * @param segmenterLock 子分词器的SEGMENTER_LOCK
    */
-  void unlockBuffer(String segmenterName) {
-    this.buffLocker.remove(segmenterName);
+  void unlockBuffer(int segmenterLock) {
+    this.buffLocker &= ~segmenterLock;
   }
 
   /**
-   * 只要buffLocker中存在segmenterName
+   * 只要buffLocker中存在置位的子分词器锁
    * 则buffer被锁定
    * @return boolean 缓冲去是否被锁定
    */
   boolean isBufferLocked() {
-    return this.buffLocker.size() > 0;
+    return this.buffLocker != 0;
   }
 
   /**
@@ -221,20 +276,24 @@ class AnalyzeContext {
 
   /**
    * 向分词结果集添加词元
-   * @param lexeme
+   * @param begin 词元在segmentBuff中的起始位置
+   * @param length 词元长度
+   * @param lexemeType 词元类型
+   * @param wordFlags 词典标志位，未知时为Lexeme.FLAGS_UNKNOWN
    */
-  void addLexeme(Lexeme lexeme) {
-    this.orgLexemes.addLexeme(lexeme);
+  void addLexeme(int begin, int length, int lexemeType, int wordFlags) {
+    this.orgLexemes.addLexeme(this.lexemes.add(begin, length, lexemeType, wordFlags));
   }
 
   /**
    * 添加分词结果路径
    * 路径起始位置 ---> 路径 映射表
+   * 缓冲区内没有词元时歧义裁决器给出空路径，空路径没有起始位置，不加入映射表
    * @param path
    */
   void addLexemePath(LexemePath path) {
-    if (path != null) {
-      this.pathMap.put(path.getPathBegin(), path);
+    if (path != null && path.size() > 0) {
+      this.pathTable[path.getPathBegin()] = path;
     }
   }
 
@@ -249,8 +308,8 @@ class AnalyzeContext {
   /**
    * 推送分词结果到结果集合
    * 1.从buff头部遍历到this.cursor已处理位置
-   * 2.将map中存在的分词结果推入results
-   * 3.将map中不存在的CJDK字符以单字方式推入results
+   * 2.将pathTable中存在的分词结果推入results
+   * 3.将pathTable中不存在的CJDK字符以单字方式推入results
    */
   void outputToResult() {
     int index = 0;
@@ -260,31 +319,31 @@ class AnalyzeContext {
         index++;
         continue;
       }
-      // 从pathMap找出对应index位置的LexemePath
-      LexemePath path = this.pathMap.get(index);
+      // 从pathTable找出对应index位置的LexemePath
+      LexemePath path = this.pathTable[index];
       if (path != null) {
         // 输出LexemePath中的lexeme到results集合
-        Lexeme l = path.pollFirst();
-        while (l != null) {
-          this.results.add(l);
+        int l = path.pollFirst();
+        while (l != QuickSortSet.NONE) {
+          this.addResult(l);
           // 将index移至lexeme后
-          index = l.getBegin() + l.getLength();
+          index = this.lexemes.getEnd(l);
           l = path.pollFirst();
-          if (l != null) {
+          if (l != QuickSortSet.NONE) {
             // 输出path内部，词元间遗漏的单字
-            for (; index < l.getBegin(); index++) {
+            for (; index < this.lexemes.getBegin(l); index++) {
               this.outputSingleCJK(index);
             }
           }
         }
-      } else {// pathMap中找不到index对应的LexemePath
+      } else {// pathTable中找不到index对应的LexemePath
         // 单字输出
         this.outputSingleCJK(index);
         index++;
       }
     }
-    // 清空当前的Map
-    this.pathMap.clear();
+    // 清空已处理区域的路径索引
+    Arrays.fill(this.pathTable, 0, this.cursor + 1, null);
   }
 
   /**
@@ -293,91 +352,146 @@ class AnalyzeContext {
    */
   private void outputSingleCJK(int index) {
     if (CharacterUtil.CHAR_CHINESE == this.charTypes[index]) {
-      Lexeme singleCharLexeme = new Lexeme(this.buffOffset, index, 1, Lexeme.TYPE_CNCHAR);
-      this.results.add(singleCharLexeme);
+      this.addResult(this.lexemes.add(index, 1, Lexeme.TYPE_CNCHAR, Lexeme.FLAGS_UNKNOWN));
     } else if (CharacterUtil.CHAR_OTHER_CJK == this.charTypes[index]) {
-      Lexeme singleCharLexeme = new Lexeme(this.buffOffset, index, 1, Lexeme.TYPE_OTHER_CJK);
-      this.results.add(singleCharLexeme);
+      this.addResult(this.lexemes.add(index, 1, Lexeme.TYPE_OTHER_CJK, Lexeme.FLAGS_UNKNOWN));
+    }
+  }
+
+  /**
+   * 词元编号加入结果集队列尾部
+   * @param lexeme
+   */
+  private void addResult(int lexeme) {
+    if (this.resultSize == this.results.length) {
+      // 队列已满，按队列顺序复制到两倍容量的数组
+      int[] newResults = new int[this.results.length << 1];
+      int headLength = this.results.length - this.resultHead;
+      System.arraycopy(this.results, this.resultHead, newResults, 0, headLength);
+      System.arraycopy(this.results, 0, newResults, headLength, this.resultHead);
+      this.results = newResults;
+      this.resultHead = 0;
+    }
+    this.results[(this.resultHead + this.resultSize) & (this.results.length - 1)] = lexeme;
+    this.resultSize++;
+  }
+
+  /**
+   * 返回结果集队列头部的词元编号
+   * @return int 结果集为空时返回QuickSortSet.NONE
+   */
+  private int peekResult() {
+    if (this.resultSize == 0) {
+      return QuickSortSet.NONE;
+    }
+    return this.results[this.resultHead];
+  }
+
+  /**
+   * 取出结果集队列头部的词元编号
+   * @return int 结果集为空时返回QuickSortSet.NONE
+   */
+  private int pollResult() {
+    if (this.resultSize == 0) {
+      return QuickSortSet.NONE;
     }
+    int lexeme = this.results[this.resultHead];
+    this.resultHead = (this.resultHead + 1) & (this.results.length - 1);
+    this.resultSize--;
+    return lexeme;
   }
 
   /**
-   * 返回lexeme 
+   * 返回下一个词元的编号，不创建Lexeme对象
    * 
    * 同时处理合并
-   * @return
+   * @return int 结果集为空时返回QuickSortSet.NONE
    */
-  Lexeme getNextLexeme() {
+  int nextLexeme() {
     // 从结果集取出，并移除第一个Lexme
-    Lexeme result = this.results.pollFirst();
-    while (result != null) {
+    int result = this.pollResult();
+    while (result != QuickSortSet.NONE) {
       // 数量词合并
       this.compound(result);
-      if (Dictionary.getSingleton().isStopWord(this.segmentBuff, result.getBegin(),
-        result.getLength())) {
+      if (this.dictionary.isStopWord(this.segmentBuff, this.lexemes.getBegin(result),
+        this.lexemes.getLength(result), this.lexemes.getFlags(result))) {
         // 是停止词继续取列表的下一个
-        result = this.results.pollFirst();
+        result = this.pollResult();
       } else {
-        // 不是停止词, 生成lexeme的词元文本,输出
-        result.setLexemeText(String.valueOf(segmentBuff, result.getBegin(), result.getLength()));
+        // 不是停止词，输出
         break;
       }
     }
     return result;
   }
 
+  /**
+   * 创建词元对象，并生成lexeme的词元文本
+   * @param lexeme 词元编号
+   * @return
+   */
+  Lexeme toLexeme(int lexeme) {
+    Lexeme result = this.lexemes.toLexeme(lexeme);
+    result.setLexemeText(String.valueOf(this.segmentBuff, this.lexemes.getBegin(lexeme),
+      this.lexemes.getLength(lexeme)));
+    return result;
+  }
+
   /**
    * 重置分词上下文状态
    */
   void reset() {
-    this.buffLocker.clear();
-    this.orgLexemes = new QuickSortSet();
-    this.available = 0;
+    this.buffLocker = 0;
+    this.lexemes.clear(0);
+    this.orgLexemes.clear();
     this.buffOffset = 0;
-    this.charTypes = new int[BUFF_SIZE];
     this.cursor = 0;
-    this.results.clear();
-    this.segmentBuff = new char[BUFF_SIZE];
-    this.pathMap.clear();
+    this.resultHead = 0;
+    this.resultSize = 0;
+    // 路径只在歧义处理与输出结果之间存在，且位于已读入的区域内
+    if (this.available > 0) {
+      Arrays.fill(this.pathTable, 0, this.available, null);
+    }
+    this.available = 0;
   }
 
   /**
    * 组合词元
    */
-  private void compound(Lexeme result) {
-    if (!this.cfg.useSmart()) {
+  private void compound(int result) {
+    if (!this.useSmart) {
       return;
     }
     // 数量词合并处理
-    if (!this.results.isEmpty()) {
+    if (this.resultSize > 0) {
 
-      if (Lexeme.TYPE_ARABIC == result.getLexemeType()) {
-        Lexeme nextLexeme = this.results.peekFirst();
+      if (Lexeme.TYPE_ARABIC == this.lexemes.getType(result)) {
+        int nextLexeme = this.peekResult();
         boolean appendOk = false;
-        if (Lexeme.TYPE_CNUM == nextLexeme.getLexemeType()) {
+        if (Lexeme.TYPE_CNUM == this.lexemes.getType(nextLexeme)) {
           // 合并英文数词+中文数词
-          appendOk = result.append(nextLexeme, Lexeme.TYPE_CNUM);
-        } else if (Lexeme.TYPE_COUNT == nextLexeme.getLexemeType()) {
+          appendOk = this.lexemes.append(result, nextLexeme, Lexeme.TYPE_CNUM);
+        } else if (Lexeme.TYPE_COUNT == this.lexemes.getType(nextLexeme)) {
           // 合并英文数词+中文量词
-          appendOk = result.append(nextLexeme, Lexeme.TYPE_CQUAN);
+          appendOk = this.lexemes.append(result, nextLexeme, Lexeme.TYPE_CQUAN);
         }
         if (appendOk) {
           // 弹出
-          this.results.pollFirst();
+          this.pollResult();
         }
       }
 
       // 可能存在第二轮合并
-      if (Lexeme.TYPE_CNUM == result.getLexemeType() && !this.results.isEmpty()) {
-        Lexeme nextLexeme = this.results.peekFirst();
+      if (Lexeme.TYPE_CNUM == this.lexemes.getType(result) && this.resultSize > 0) {
+        int nextLexeme = this.peekResult();
         boolean appendOk = false;
-        if (Lexeme.TYPE_COUNT == nextLexeme.getLexemeType()) {
+        if (Lexeme.TYPE_COUNT == this.lexemes.getType(nextLexeme)) {
           // 合并中文数词+中文量词
-          appendOk = result.append(nextLexeme, Lexeme.TYPE_CQUAN);
+          appendOk = this.lexemes.append(result, nextLexeme, Lexeme.TYPE_CQUAN);
         }
         if (appendOk) {
           // 弹出
-          this.results.pollFirst();
+          this.pollResult();
         }
       }
 
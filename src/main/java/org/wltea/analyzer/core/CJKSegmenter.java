@@ -24,24 +24,25 @@
  */
 package org.wltea.analyzer.core;
 
-import java.util.LinkedList;
-import java.util.List;
-
-import org.wltea.analyzer.dic.Dictionary;
-import org.wltea.analyzer.dic.Hit;
+import org.wltea.analyzer.dic.AhoCorasickMatcher;
+import org.wltea.analyzer.dic.DictCursor;
 
 /**
  *  中文-日韩文子分词器
  */
 class CJKSegmenter implements ISegmenter {
 
-  // 子分词器标签
-  static final String SEGMENTER_NAME = "CJK_SEGMENTER";
-  // 待处理的分词hit队列
-  private List<Hit> tmpHits;
+  // 子分词器锁位
+  static final int SEGMENTER_LOCK = 4;
+  // 主词典游标，记录待处理的词前缀，首次分词时创建
+  private DictCursor cursor;
+  // 主词典匹配自动机，未启用时为null
+  private AhoCorasickMatcher matcher;
+  // 匹配自动机的当前状态
+  private int state;
 
   CJKSegmenter() {
-    this.tmpHits = new LinkedList<Hit>();
+    this.state = AhoCorasickMatcher.ROOT;
   }
 
   /*
@@ -49,70 +50,86 @@ class CJKSegmenter implements ISegmenter {
    * @see org.wltea.analyzer.core.ISegmenter#analyze(org.wltea.analyzer.core.AnalyzeContext)
    */
   public void analyze(AnalyzeContext context) {
-    if (CharacterUtil.CHAR_USELESS != context.getCurrentCharType()) {
-
-      // 优先处理tmpHits中的hit
-      if (!this.tmpHits.isEmpty()) {
-        // 处理词段队列
-        Hit[] tmpArray = this.tmpHits.toArray(new Hit[this.tmpHits.size()]);
-        for (Hit hit : tmpArray) {
-          hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(),
-            context.getCursor(), hit);
-          if (hit.isMatch()) {
-            // 输出当前的词
-            Lexeme newLexeme = new Lexeme(context.getBufferOffset(), hit.getBegin(),
-                context.getCursor() - hit.getBegin() + 1, Lexeme.TYPE_CNWORD);
-            context.addLexeme(newLexeme);
-
-            if (!hit.isPrefix()) {// 不是词前缀，hit不需要继续匹配，移除
-              this.tmpHits.remove(hit);
-            }
-
-          } else if (hit.isUnmatch()) {
-            // hit不是词，移除
-            this.tmpHits.remove(hit);
-          }
-        }
-      }
+    if (this.cursor == null) {
+      this.cursor = context.getDictionary().newMainDictCursor();
+    }
+    if (this.state == AhoCorasickMatcher.ROOT && !this.cursor.hasPrefix()) {
+      // 没有未结束的词前缀时，才切换到词典更新后重建的自动机
+      this.matcher = context.getDictionary().getMainDictMatcher();
+    }
+    if (this.matcher != null) {
+      this.analyzeWithMatcher(context);
+      return;
+    }
 
-      // *********************************
-      // 再对当前指针位置的字符进行单字匹配
-      Hit singleCharHit = Dictionary.getSingleton().matchInMainDict(context.getSegmentBuff(),
-        context.getCursor(), 1);
-      if (singleCharHit.isMatch()) {// 首字成词
-        // 输出当前的词
-        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), context.getCursor(), 1,
-            Lexeme.TYPE_CNWORD);
-        context.addLexeme(newLexeme);
-
-        // 同时也是词前缀
-        if (singleCharHit.isPrefix()) {
-          // 前缀匹配则放入hit列表
-          this.tmpHits.add(singleCharHit);
-        }
-      } else if (singleCharHit.isPrefix()) {// 首字为词前缀
-        // 前缀匹配则放入hit列表
-        this.tmpHits.add(singleCharHit);
+    if (CharacterUtil.CHAR_USELESS != context.getCurrentCharType()) {
+      // 推进未结束的词前缀，并对当前指针位置的字符进行单字匹配
+      int count = this.cursor.advance(context.getSegmentBuff(), context.getCursor());
+      for (int i = 0; i < count; i++) {
+        // 输出以当前字符结尾的词
+        int begin = this.cursor.getMatchBegin(i);
+        // 记录匹配时取得的词典标志位
+        context.addLexeme(begin, context.getCursor() - begin + 1, Lexeme.TYPE_CNWORD,
+          this.cursor.getMatchFlags(i));
       }
 
     } else {
       // 遇到CHAR_USELESS字符
       // 清空队列
-      this.tmpHits.clear();
+      this.cursor.reset();
     }
 
     // 判断缓冲区是否已经读完
     if (context.isBufferConsumed()) {
       // 清空队列
-      this.tmpHits.clear();
+      this.cursor.reset();
+    }
+
+    // 判断是否锁定缓冲区
+    if (!this.cursor.hasPrefix()) {
+      context.unlockBuffer(SEGMENTER_LOCK);
+
+    } else {
+      context.lockBuffer(SEGMENTER_LOCK);
+    }
+  }
+
+  /**
+   * 使用Aho-Corasick自动机匹配，每个字符推进一次状态
+   * 输出的词元与词典游标逐字匹配完全一致
+   * @param context
+   */
+  private void analyzeWithMatcher(AnalyzeContext context) {
+    if (CharacterUtil.CHAR_USELESS != context.getCurrentCharType()) {
+      this.state = this.matcher.next(this.state, context.getCurrentChar());
+      // 输出以当前字符结尾的全部词，由长到短
+      for (int word = this.matcher.longestWord(this.state); word != 0; word = this.matcher
+          .shorterWord(word)) {
+        int length = this.matcher.wordLength(word);
+        context.addLexeme(context.getCursor() - length + 1, length, Lexeme.TYPE_CNWORD,
+          Lexeme.FLAGS_UNKNOWN);
+      }
+      if (!this.matcher.isOpen(this.state)) {
+        // 没有可继续匹配的词前缀
+        this.state = AhoCorasickMatcher.ROOT;
+      }
+
+    } else {
+      // 遇到CHAR_USELESS字符
+      this.state = AhoCorasickMatcher.ROOT;
+    }
+
+    // 判断缓冲区是否已经读完
+    if (context.isBufferConsumed()) {
+      this.state = AhoCorasickMatcher.ROOT;
     }
 
     // 判断是否锁定缓冲区
-    if (this.tmpHits.size() == 0) {
-      context.unlockBuffer(SEGMENTER_NAME);
+    if (this.state == AhoCorasickMatcher.ROOT) {
+      context.unlockBuffer(SEGMENTER_LOCK);
 
     } else {
-      context.lockBuffer(SEGMENTER_NAME);
+      context.lockBuffer(SEGMENTER_LOCK);
     }
   }
 
@@ -122,7 +139,10 @@ class CJKSegmenter implements ISegmenter {
    */
   public void reset() {
     // 清空队列
-    this.tmpHits.clear();
+    if (this.cursor != null) {
+      this.cursor.reset();
+    }
+    this.state = AhoCorasickMatcher.ROOT;
   }
 
 }
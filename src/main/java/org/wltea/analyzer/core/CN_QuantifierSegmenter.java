@@ -25,12 +25,9 @@
 package org.wltea.analyzer.core;
 
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Set;
 
-import org.wltea.analyzer.dic.Dictionary;
-import org.wltea.analyzer.dic.Hit;
+import org.wltea.analyzer.dic.DictCursor;
 
 /**
  * 
@@ -38,11 +35,11 @@ import org.wltea.analyzer.dic.Hit;
  */
 class CN_QuantifierSegmenter implements ISegmenter {
 
-  // 子分词器标签
-  static final String SEGMENTER_NAME = "QUAN_SEGMENTER";
+  // 子分词器锁位
+  static final int SEGMENTER_LOCK = 2;
 
   // 中文数词
-  private static String Chn_Num = "一二两三四五六七八九十零壹贰叁肆伍陆柒捌玖拾百千万亿拾佰仟萬億兆卅廿";// Cnum
+  static final String Chn_Num = "一二两三四五六七八九十零壹贰叁肆伍陆柒捌玖拾百千万亿拾佰仟萬億兆卅廿";// Cnum
   private static Set<Character> ChnNumberChars = new HashSet<Character>();
   static {
     char[] ca = Chn_Num.toCharArray();
@@ -60,30 +57,32 @@ class CN_QuantifierSegmenter implements ISegmenter {
    */
   private int nEnd;
 
-  // 待处理的量词hit队列
-  private List<Hit> countHits;
+  // 量词词典游标，记录待处理的量词前缀，首次分词时创建
+  private DictCursor countCursor;
 
   CN_QuantifierSegmenter() {
     nStart = -1;
     nEnd = -1;
-    this.countHits = new LinkedList<Hit>();
   }
 
   /**
    * 分词
    */
   public void analyze(AnalyzeContext context) {
+    if (this.countCursor == null) {
+      this.countCursor = context.getDictionary().newQuantifierDictCursor();
+    }
     // 处理中文数词
     this.processCNumber(context);
     // 处理中文量词
     this.processCount(context);
 
     // 判断是否锁定缓冲区
-    if (this.nStart == -1 && this.nEnd == -1 && countHits.isEmpty()) {
+    if (this.nStart == -1 && this.nEnd == -1 && !countCursor.hasPrefix()) {
       // 对缓冲区解锁
-      context.unlockBuffer(SEGMENTER_NAME);
+      context.unlockBuffer(SEGMENTER_LOCK);
     } else {
-      context.lockBuffer(SEGMENTER_NAME);
+      context.lockBuffer(SEGMENTER_LOCK);
     }
   }
 
@@ -93,7 +92,9 @@ class CN_QuantifierSegmenter implements ISegmenter {
   public void reset() {
     nStart = -1;
     nEnd = -1;
-    countHits.clear();
+    if (countCursor != null) {
+      countCursor.reset();
+    }
   }
 
   /**
@@ -144,61 +145,25 @@ class CN_QuantifierSegmenter implements ISegmenter {
     }
 
     if (CharacterUtil.CHAR_CHINESE == context.getCurrentCharType()) {
-
-      // 优先处理countHits中的hit
-      if (!this.countHits.isEmpty()) {
-        // 处理词段队列
-        Hit[] tmpArray = this.countHits.toArray(new Hit[this.countHits.size()]);
-        for (Hit hit : tmpArray) {
-          hit = Dictionary.getSingleton().matchWithHit(context.getSegmentBuff(),
-            context.getCursor(), hit);
-          if (hit.isMatch()) {
-            // 输出当前的词
-            Lexeme newLexeme = new Lexeme(context.getBufferOffset(), hit.getBegin(),
-                context.getCursor() - hit.getBegin() + 1, Lexeme.TYPE_COUNT);
-            context.addLexeme(newLexeme);
-
-            if (!hit.isPrefix()) {// 不是词前缀，hit不需要继续匹配，移除
-              this.countHits.remove(hit);
-            }
-
-          } else if (hit.isUnmatch()) {
-            // hit不是词，移除
-            this.countHits.remove(hit);
-          }
-        }
-      }
-
-      // *********************************
-      // 对当前指针位置的字符进行单字匹配
-      Hit singleCharHit = Dictionary.getSingleton().matchInQuantifierDict(context.getSegmentBuff(),
-        context.getCursor(), 1);
-      if (singleCharHit.isMatch()) {// 首字成量词词
-        // 输出当前的词
-        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), context.getCursor(), 1,
-            Lexeme.TYPE_COUNT);
-        context.addLexeme(newLexeme);
-
-        // 同时也是词前缀
-        if (singleCharHit.isPrefix()) {
-          // 前缀匹配则放入hit列表
-          this.countHits.add(singleCharHit);
-        }
-      } else if (singleCharHit.isPrefix()) {// 首字为量词前缀
-        // 前缀匹配则放入hit列表
-        this.countHits.add(singleCharHit);
+      // 推进未结束的量词前缀，并对当前指针位置的字符进行单字匹配
+      int count = this.countCursor.advance(context.getSegmentBuff(), context.getCursor());
+      for (int i = 0; i < count; i++) {
+        // 输出以当前字符结尾的量词
+        int begin = this.countCursor.getMatchBegin(i);
+        context.addLexeme(begin, context.getCursor() - begin + 1, Lexeme.TYPE_COUNT,
+          Lexeme.FLAGS_UNKNOWN);
       }
 
     } else {
       // 输入的不是中文字符
       // 清空未成形的量词
-      this.countHits.clear();
+      this.countCursor.reset();
     }
 
     // 缓冲区数据已经读完，还有尚未输出的量词
     if (context.isBufferConsumed()) {
       // 清空未成形的量词
-      this.countHits.clear();
+      this.countCursor.reset();
     }
   }
 
@@ -207,15 +172,16 @@ class CN_QuantifierSegmenter implements ISegmenter {
    * @return
    */
   private boolean needCountScan(AnalyzeContext context) {
-    if ((nStart != -1 && nEnd != -1) || !countHits.isEmpty()) {
+    if ((nStart != -1 && nEnd != -1) || countCursor.hasPrefix()) {
       // 正在处理中文数词,或者正在处理量词
       return true;
     } else {
       // 找到一个相邻的数词
       if (!context.getOrgLexemes().isEmpty()) {
-        Lexeme l = context.getOrgLexemes().peekLast();
-        if (Lexeme.TYPE_CNUM == l.getLexemeType() || Lexeme.TYPE_ARABIC == l.getLexemeType()) {
-          if (l.getBegin() + l.getLength() == context.getCursor()) {
+        int l = context.getOrgLexemes().peekLast();
+        int lexemeType = context.getLexemes().getType(l);
+        if (Lexeme.TYPE_CNUM == lexemeType || Lexeme.TYPE_ARABIC == lexemeType) {
+          if (context.getLexemes().getEnd(l) == context.getCursor()) {
             return true;
           }
         }
@@ -231,9 +197,7 @@ class CN_QuantifierSegmenter implements ISegmenter {
   private void outputNumLexeme(AnalyzeContext context) {
     if (nStart > -1 && nEnd > -1) {
       // 输出数词
-      Lexeme newLexeme = new Lexeme(context.getBufferOffset(), nStart, nEnd - nStart + 1,
-          Lexeme.TYPE_CNUM);
-      context.addLexeme(newLexeme);
+      context.addLexeme(nStart, nEnd - nStart + 1, Lexeme.TYPE_CNUM, Lexeme.FLAGS_UNKNOWN);
 
     }
   }
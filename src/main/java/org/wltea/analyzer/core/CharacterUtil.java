@@ -41,6 +41,36 @@ class CharacterUtil {
 
   public static final int CHAR_OTHER_CJK = 0X00000008;
 
+  // 字符规格化及类型表，以字符为下标
+  // 低16位为规格化后的字符，高16位为规格化后字符的类型
+  private static final int[] CHAR_TABLE = buildCharTable();
+
+  private static int[] buildCharTable() {
+    int[] table = new int[Character.MAX_VALUE + 1];
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      char regularized = regularize((char) c);
+      table[c] = (identifyCharType(regularized) << 16) | regularized;
+    }
+    return table;
+  }
+
+  /**
+   * 对字符数组的指定区间进行字符规格化，同时记录规格化后的字符类型
+   * 结果与逐个字符调用regularize、identifyCharType相同
+   * @param chars
+   * @param charTypes 字符类型数组，与chars下标对应
+   * @param begin
+   * @param end 结束位置（不含）
+   */
+  static void regularize(char[] chars, int[] charTypes, int begin, int end) {
+    int[] table = CHAR_TABLE;
+    for (int i = begin; i < end; i++) {
+      int entry = table[chars[i]];
+      chars[i] = (char) entry;
+      charTypes[i] = entry >>> 16;
+    }
+  }
+
   /**
    * 识别字符类型
    * @param input
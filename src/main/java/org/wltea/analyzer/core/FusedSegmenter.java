@@ -0,0 +1,267 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.core;
+
+import org.wltea.analyzer.dic.DictCursor;
+
+/**
+ * 合并的子分词器
+ * 在一次调用中完成LetterSegmenter、CN_QuantifierSegmenter、CJKSegmenter对当前字符的处理，
+ * 字符的类型、连接符及中文数词判断预先合成一张字符动作表，每个字符只查表一次。
+ * 各状态机按原子分词器的顺序推进，产生的词元及其添加顺序与原子分词器完全相同
+ */
+class FusedSegmenter implements ISegmenter {
+
+  // 字符动作位——英文字母
+  private static final int ENGLISH = 1;
+  // 字符动作位——阿拉伯数字
+  private static final int ARABIC = 2;
+  // 字符动作位——字母连接符
+  private static final int LETTER_CONNECTOR = 4;
+  // 字符动作位——数字连接符
+  private static final int NUM_CONNECTOR = 8;
+  // 字符动作位——中文数词
+  private static final int CN_NUMBER = 16;
+  // 字符动作位——中文字符
+  private static final int CHINESE = 32;
+
+  // 字符动作表，以规格化后的字符为下标
+  private static final byte[] CHAR_ACTIONS = buildCharActions();
+
+  // 英文字母的起始、结束位置
+  private int englishStart;
+  private int englishEnd;
+  // 阿拉伯数字的起始、结束位置
+  private int arabicStart;
+  private int arabicEnd;
+  // 字母数字混合词元的起始、结束位置
+  private int letterStart;
+  private int letterEnd;
+  // 中文数词的起始、结束位置
+  private int nStart;
+  private int nEnd;
+
+  // 量词词典游标，首次分词时创建
+  private DictCursor countCursor;
+  // 中文词的词典匹配
+  private final CJKSegmenter cjkSegmenter;
+
+  FusedSegmenter() {
+    this.cjkSegmenter = new CJKSegmenter();
+    this.reset();
+  }
+
+  private static byte[] buildCharActions() {
+    byte[] actions = new byte[Character.MAX_VALUE + 1];
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      int charType = CharacterUtil.identifyCharType((char) c);
+      int action = 0;
+      if (CharacterUtil.CHAR_ENGLISH == charType) {
+        action = ENGLISH;
+      } else if (CharacterUtil.CHAR_ARABIC == charType) {
+        action = ARABIC;
+      } else if (CharacterUtil.CHAR_CHINESE == charType) {
+        action = CHINESE;
+        if (CN_QuantifierSegmenter.Chn_Num.indexOf(c) >= 0) {
+          action |= CN_NUMBER;
+        }
+      } else if (CharacterUtil.CHAR_USELESS == charType) {
+        if (contains(LetterSegmenter.Letter_Connector, (char) c)) {
+          action |= LETTER_CONNECTOR;
+        }
+        if (contains(LetterSegmenter.Num_Connector, (char) c)) {
+          action |= NUM_CONNECTOR;
+        }
+      }
+      actions[c] = (byte) action;
+    }
+    return actions;
+  }
+
+  private static boolean contains(char[] chars, char c) {
+    for (char each : chars) {
+      if (each == c) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.wltea.analyzer.core.ISegmenter#analyze(org.wltea.analyzer.core.AnalyzeContext)
+   */
+  public void analyze(AnalyzeContext context) {
+    if (this.countCursor == null) {
+      this.countCursor = context.getDictionary().newQuantifierDictCursor();
+    }
+    int cursor = context.getCursor();
+    int action = CHAR_ACTIONS[context.getCurrentChar()];
+    boolean consumed = context.isBufferConsumed();
+
+    // 纯英文字母
+    if ((action & ENGLISH) != 0) {
+      if (this.englishStart == -1) {
+        this.englishStart = cursor;
+      }
+      this.englishEnd = cursor;
+    } else if (this.englishStart != -1) {
+      context.addLexeme(this.englishStart, this.englishEnd - this.englishStart + 1,
+        Lexeme.TYPE_ENGLISH, Lexeme.FLAGS_UNKNOWN);
+      this.englishStart = -1;
+    }
+    if (consumed && this.englishStart != -1) {
+      context.addLexeme(this.englishStart, this.englishEnd - this.englishStart + 1,
+        Lexeme.TYPE_ENGLISH, Lexeme.FLAGS_UNKNOWN);
+      this.englishStart = -1;
+    }
+
+    // 阿拉伯数字，数字连接符不结束也不延长数字
+    if ((action & ARABIC) != 0) {
+      if (this.arabicStart == -1) {
+        this.arabicStart = cursor;
+      }
+      this.arabicEnd = cursor;
+    } else if (this.arabicStart != -1 && (action & NUM_CONNECTOR) == 0) {
+      context.addLexeme(this.arabicStart, this.arabicEnd - this.arabicStart + 1,
+        Lexeme.TYPE_ARABIC, Lexeme.FLAGS_UNKNOWN);
+      this.arabicStart = -1;
+    }
+    if (consumed && this.arabicStart != -1) {
+      context.addLexeme(this.arabicStart, this.arabicEnd - this.arabicStart + 1,
+        Lexeme.TYPE_ARABIC, Lexeme.FLAGS_UNKNOWN);
+      this.arabicStart = -1;
+    }
+
+    // 字母数字混合，字母连接符延长已开始的词元
+    if ((action & (ENGLISH | ARABIC)) != 0) {
+      if (this.letterStart == -1) {
+        this.letterStart = cursor;
+      }
+      this.letterEnd = cursor;
+    } else if (this.letterStart != -1) {
+      if ((action & LETTER_CONNECTOR) != 0) {
+        this.letterEnd = cursor;
+      } else {
+        context.addLexeme(this.letterStart, this.letterEnd - this.letterStart + 1,
+          Lexeme.TYPE_LETTER, Lexeme.FLAGS_UNKNOWN);
+        this.letterStart = -1;
+      }
+    }
+    if (consumed && this.letterStart != -1) {
+      context.addLexeme(this.letterStart, this.letterEnd - this.letterStart + 1,
+        Lexeme.TYPE_LETTER, Lexeme.FLAGS_UNKNOWN);
+      this.letterStart = -1;
+    }
+
+    // 中文数词
+    if ((action & CN_NUMBER) != 0) {
+      if (this.nStart == -1) {
+        this.nStart = cursor;
+      }
+      this.nEnd = cursor;
+    } else if (this.nStart != -1) {
+      context.addLexeme(this.nStart, this.nEnd - this.nStart + 1, Lexeme.TYPE_CNUM,
+        Lexeme.FLAGS_UNKNOWN);
+      this.nStart = -1;
+    }
+    if (consumed && this.nStart != -1) {
+      context.addLexeme(this.nStart, this.nEnd - this.nStart + 1, Lexeme.TYPE_CNUM,
+        Lexeme.FLAGS_UNKNOWN);
+      this.nStart = -1;
+    }
+
+    // 中文量词
+    if (this.needCountScan(context, cursor)) {
+      if ((action & CHINESE) != 0) {
+        int count = this.countCursor.advance(context.getSegmentBuff(), cursor);
+        for (int i = 0; i < count; i++) {
+          int begin = this.countCursor.getMatchBegin(i);
+          context.addLexeme(begin, cursor - begin + 1, Lexeme.TYPE_COUNT, Lexeme.FLAGS_UNKNOWN);
+        }
+      } else {
+        this.countCursor.reset();
+      }
+      if (consumed) {
+        this.countCursor.reset();
+      }
+    }
+
+    // 字母及数量词状态机的缓冲区锁
+    if (this.englishStart == -1 && this.arabicStart == -1 && this.letterStart == -1) {
+      context.unlockBuffer(LetterSegmenter.SEGMENTER_LOCK);
+    } else {
+      context.lockBuffer(LetterSegmenter.SEGMENTER_LOCK);
+    }
+    if (this.nStart == -1 && !this.countCursor.hasPrefix()) {
+      context.unlockBuffer(CN_QuantifierSegmenter.SEGMENTER_LOCK);
+    } else {
+      context.lockBuffer(CN_QuantifierSegmenter.SEGMENTER_LOCK);
+    }
+
+    // 中文词
+    this.cjkSegmenter.analyze(context);
+  }
+
+  /**
+   * 判断是否需要扫描量词，与CN_QuantifierSegmenter相同
+   * @return
+   */
+  private boolean needCountScan(AnalyzeContext context, int cursor) {
+    if (this.nStart != -1 || this.countCursor.hasPrefix()) {
+      // 正在处理中文数词,或者正在处理量词
+      return true;
+    }
+    // 找到一个相邻的数词
+    int l = context.getOrgLexemes().peekLast();
+    if (l != QuickSortSet.NONE) {
+      int lexemeType = context.getLexemes().getType(l);
+      return (Lexeme.TYPE_CNUM == lexemeType || Lexeme.TYPE_ARABIC == lexemeType)
+          && context.getLexemes().getEnd(l) == cursor;
+    }
+    return false;
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.wltea.analyzer.core.ISegmenter#reset()
+   */
+  public void reset() {
+    this.englishStart = -1;
+    this.englishEnd = -1;
+    this.arabicStart = -1;
+    this.arabicEnd = -1;
+    this.letterStart = -1;
+    this.letterEnd = -1;
+    this.nStart = -1;
+    this.nEnd = -1;
+    if (this.countCursor != null) {
+      this.countCursor.reset();
+    }
+    this.cjkSegmenter.reset();
+  }
+
+}
@@ -24,16 +24,18 @@
  */
 package org.wltea.analyzer.core;
 
-import java.util.Stack;
-import java.util.TreeSet;
+import java.util.Arrays;
 
 /**
  * IK分词歧义裁决器
  */
 class IKArbitrator {
 
-  IKArbitrator() {
+  // 发生冲突的词元在歧义路径中的序号栈，重复使用
+  private int[] conflictStack;
 
+  IKArbitrator() {
+    this.conflictStack = new int[16];
   }
 
   /**
@@ -43,10 +45,10 @@ class IKArbitrator {
    */
   void process(AnalyzeContext context, boolean useSmart) {
     QuickSortSet orgLexemes = context.getOrgLexemes();
-    Lexeme orgLexeme = orgLexemes.pollFirst();
+    int orgLexeme = orgLexemes.pollFirst();
 
-    LexemePath crossPath = new LexemePath();
-    while (orgLexeme != null) {
+    LexemePath crossPath = new LexemePath(orgLexemes.store);
+    while (orgLexeme != QuickSortSet.NONE) {
       if (!crossPath.addCrossLexeme(orgLexeme)) {
         // 找到与crossPath不相交的下一个crossPath
         if (crossPath.size() == 1 || !useSmart) {
@@ -55,14 +57,13 @@ class IKArbitrator {
           context.addLexemePath(crossPath);
         } else {
           // 对当前的crossPath进行歧义处理
-          QuickSortSet.Cell headCell = crossPath.getHead();
-          LexemePath judgeResult = this.judge(headCell, crossPath.getPathLength());
+          LexemePath judgeResult = this.judge(crossPath, crossPath.getPathLength());
           // 输出歧义处理结果judgeResult
           context.addLexemePath(judgeResult);
         }
 
         // 把orgLexeme加入新的crossPath中
-        crossPath = new LexemePath();
+        crossPath = new LexemePath(orgLexemes.store);
         crossPath.addCrossLexeme(orgLexeme);
       }
       orgLexeme = orgLexemes.pollFirst();
@@ -75,8 +76,7 @@ class IKArbitrator {
       context.addLexemePath(crossPath);
     } else {
       // 对当前的crossPath进行歧义处理
-      QuickSortSet.Cell headCell = crossPath.getHead();
-      LexemePath judgeResult = this.judge(headCell, crossPath.getPathLength());
+      LexemePath judgeResult = this.judge(crossPath, crossPath.getPathLength());
       // 输出歧义处理结果judgeResult
       context.addLexemePath(judgeResult);
     }
@@ -84,65 +84,68 @@ class IKArbitrator {
 
   /**
    * 歧义识别
-   * @param lexemeCell 歧义路径链表头
+   * @param crossPath 歧义路径
    * @param fullTextLength 歧义路径文本长度
-   * @param option 候选结果路径
    * @return
    */
-  private LexemePath judge(QuickSortSet.Cell lexemeCell, int fullTextLength) {
-    // 候选路径集合
-    TreeSet<LexemePath> pathOptions = new TreeSet<LexemePath>();
+  private LexemePath judge(LexemePath crossPath, int fullTextLength) {
     // 候选结果路径
-    LexemePath option = new LexemePath();
+    LexemePath option = new LexemePath(crossPath.store);
 
-    // 对crossPath进行一次遍历,同时返回本次遍历中有冲突的Lexeme栈
-    Stack<QuickSortSet.Cell> lexemeStack = this.forwardPath(lexemeCell, option);
+    // 对crossPath进行一次遍历,同时记录本次遍历中有冲突的词元序号
+    int conflicts = this.forwardPath(crossPath, 0, option, true);
 
-    // 当前词元链并非最理想的，加入候选路径集合
-    pathOptions.add(option.copy());
+    // 当前词元链并非最理想的，作为候选路径
+    // 与候选路径比较相等的方案不替换，结果与按LexemePath排序取第一个相同
+    LexemePath best = option.copy();
 
     // 存在歧义词，处理
-    QuickSortSet.Cell c = null;
-    while (!lexemeStack.isEmpty()) {
-      c = lexemeStack.pop();
+    while (conflicts > 0) {
+      int c = this.conflictStack[--conflicts];
       // 回滚词元链
-      this.backPath(c.getLexeme(), option);
+      this.backPath(crossPath.get(c), option);
       // 从歧义词位置开始，递归，生成可选方案
-      this.forwardPath(c, option);
-      pathOptions.add(option.copy());
+      this.forwardPath(crossPath, c, option, false);
+      if (option.compareTo(best) < 0) {
+        best = option.copy();
+      }
     }
 
-    // 返回集合中的最优方案
-    return pathOptions.first();
+    // 返回最优方案
+    return best;
 
   }
 
   /**
    * 向前遍历，添加词元，构造一个无歧义词元组合
-   * @param LexemePath path
-   * @return
+   * @param crossPath 歧义路径
+   * @param from 开始遍历的词元序号
+   * @param option 候选结果路径
+   * @param pushConflict 是否将发生冲突的词元序号压入conflictStack
+   * @return int conflictStack中的冲突词元数
    */
-  private Stack<QuickSortSet.Cell> forwardPath(QuickSortSet.Cell lexemeCell, LexemePath option) {
-    // 发生冲突的Lexeme栈
-    Stack<QuickSortSet.Cell> conflictStack = new Stack<QuickSortSet.Cell>();
-    QuickSortSet.Cell c = lexemeCell;
-    // 迭代遍历Lexeme链表
-    while (c != null && c.getLexeme() != null) {
-      if (!option.addNotCrossLexeme(c.getLexeme())) {
-        // 词元交叉，添加失败则加入lexemeStack栈
-        conflictStack.push(c);
+  private int forwardPath(LexemePath crossPath, int from, LexemePath option,
+      boolean pushConflict) {
+    int conflicts = 0;
+    // 迭代遍历歧义路径中的词元
+    for (int i = from; i < crossPath.size(); i++) {
+      if (!option.addNotCrossLexeme(crossPath.get(i)) && pushConflict) {
+        // 词元交叉，添加失败则加入冲突栈
+        if (conflicts == this.conflictStack.length) {
+          this.conflictStack = Arrays.copyOf(this.conflictStack, conflicts << 1);
+        }
+        this.conflictStack[conflicts++] = i;
       }
-      c = c.getNext();
     }
-    return conflictStack;
+    return conflicts;
   }
 
   /**
    * 回滚词元链，直到它能够接受指定的词元
-   * @param lexeme 
-   * @param l
+   * @param l 词元编号
+   * @param option
    */
-  private void backPath(Lexeme l, LexemePath option) {
+  private void backPath(int l, LexemePath option) {
     while (option.checkCross(l)) {
       option.removeTail();
     }
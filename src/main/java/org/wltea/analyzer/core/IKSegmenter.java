@@ -25,8 +25,17 @@ package org.wltea.analyzer.core;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.wltea.analyzer.cfg.Configuration;
 import org.wltea.analyzer.cfg.DefaultConfig;
@@ -34,20 +43,30 @@ import org.wltea.analyzer.dic.Dictionary;
 
 /**
  * IK分词器主类
- *
+ * 实例方法以当前对象加锁，可在线程间共享；多个线程交替使用时，
+ * 调用方需在synchronized (segmenter)中连续调用nextToken及getToken*方法，才能读到同一个词元。
+ * 不需要加锁的场景直接使用SegmenterEngine.newSession创建的分词会话
  */
 public final class IKSegmenter {
 
-  // 字符窜reader
-  private Reader input;
-  // 分词器配置项
-  private Configuration cfg;
-  // 分词器上下文
-  private AnalyzeContext context;
-  // 分词处理器列表
-  private List<ISegmenter> segmenters;
-  // 分词歧义裁决器
-  private IKArbitrator arbitrator;
+  // 合并的子分词器实现
+  static final String SEGMENTER_FUSED = "fused";
+
+  // 预热语料，覆盖中文词、数量词、英文、数字及停止词
+  private static final String[] WARMUP_CORPUS = {
+      "IK Analyzer是一个开源的，基于java语言开发的轻量级的中文分词工具包。",
+      "从2006年12月推出1.0版开始，IKAnalyzer已经推出了4个大版本。",
+      "新版本的IK Analyzer 3.0则发展为面向Java的公用分词组件，独立于Lucene项目。",
+      "这是一个中文分词的例子，你可以直接运行它！共有3200万字，每秒处理80万个汉字。",
+      "2012年10月22日下午三点半，第一季度销售额增长了百分之二十五点五。" };
+  // 预热轮数，使分词热点方法的调用次数超过JIT编译阈值
+  private static final int WARMUP_ROUNDS = 2000;
+  // 后台词典初始化任务，未调用initialAsync时为null
+  private static final AtomicReference<InitialTask> initialization =
+      new AtomicReference<InitialTask>();
+
+  // 分词会话
+  private final SegmenterSession session;
 
   /**
    * IK分词器构造函数
@@ -58,10 +77,7 @@ public final class IKSegmenter {
    * 智能分词： 合并数词和量词，对分词结果进行歧义判断
    */
   public IKSegmenter(Reader input, boolean useSmart) {
-    this.input = input;
-    this.cfg = DefaultConfig.getInstance();
-    this.cfg.setUseSmart(useSmart);
-    this.init();
+    this(input, useSmartConfig(useSmart));
   }
 
   /**
@@ -71,84 +87,233 @@ public final class IKSegmenter {
    * 
    */
   public IKSegmenter(Reader input, Configuration cfg) {
-    this.input = input;
-    this.cfg = cfg;
-    this.init();
+    this(input, cfg, null);
   }
 
   /**
-   * 初始化
+   * IK分词器构造函数
+   * @param input
+   * @param cfg 使用自定义的Configuration构造分词器
+   * @param dictionary 使用指定的词典（如Dictionary.newTenant创建的租户词典），为null时使用词典单例
    */
-  private void init() {
-    // 初始化词典单例
-    Dictionary.initial(this.cfg);
-    // 初始化分词上下文
-    this.context = new AnalyzeContext(this.cfg);
-    // 加载子分词器
-    this.segmenters = this.loadSegmenters();
-    // 加载歧义裁决器
-    this.arbitrator = new IKArbitrator();
+  public IKSegmenter(Reader input, Configuration cfg, Dictionary dictionary) {
+    this(input, new SegmenterEngine(cfg, dictionary));
   }
 
   /**
-   * 初始化词典，加载子分词器实现
-   * @return List<ISegmenter>
+   * IK分词器构造函数
+   * 多线程分词时可共享同一个SegmenterEngine，或直接使用SegmenterEngine.newSession创建的无锁会话
+   * @param input
+   * @param engine 分词引擎
    */
-  private List<ISegmenter> loadSegmenters() {
-    List<ISegmenter> segmenters = new ArrayList<ISegmenter>(4);
-    // 处理字母的子分词器
-    segmenters.add(new LetterSegmenter());
-    // 处理中文数量词的子分词器
-    segmenters.add(new CN_QuantifierSegmenter());
-    // 处理中文词的子分词器
-    segmenters.add(new CJKSegmenter());
-    return segmenters;
+  public IKSegmenter(Reader input, SegmenterEngine engine) {
+    this.session = engine.newSession(input);
+  }
+
+  private static Configuration useSmartConfig(boolean useSmart) {
+    Configuration cfg = DefaultConfig.getInstance();
+    cfg.setUseSmart(useSmart);
+    return cfg;
   }
 
   /**
-   * 分词，获取下一个词元
-   * @return Lexeme 词元对象
+   * 在后台线程中初始化词典单例，并可选地预热分词器
+   * 应用启动时调用，可用返回的Future做就绪检查（isDone，或带超时的get）；
+   * 初始化完成前创建的分词器最多等待dict_initial_timeout秒，超时抛出IllegalStateException。
+   * 多次调用返回同一个Future，参数见initialAsync(Configuration, boolean, InitialListener)
+   * @param cfg
+   * @param warmup 为true时，词典加载完成后用内置语料反复分词，完成预热后Future才就绪
+   * @return Future<Dictionary> 词典单例
+   */
+  public static Future<Dictionary> initialAsync(Configuration cfg, boolean warmup) {
+    return initialAsync(cfg, warmup, null);
+  }
+
+  /**
+   * 在后台线程中初始化词典单例，并可选地预热分词器，完成后通知listener
+   * 多次调用共享同一次初始化，每次调用的listener都会得到通知；
+   * 初始化已经结束时，listener在当前线程中立即得到通知。
+   * 词典单例只按第一次初始化的cfg载入，之后调用的cfg只用于预热；
+   * 已有的初始化未预热而本次warmup为true时，启动新的初始化在词典载入后补充预热并返回新的Future。
+   * 初始化失败后不再保留失败的Future，之后的调用重新初始化
+   * @param cfg
+   * @param warmup 为true时，词典加载完成后用内置语料反复分词，完成预热后才通知
+   * @param listener 完成回调，可为null
+   * @return Future<Dictionary> 词典单例
+   */
+  public static Future<Dictionary> initialAsync(Configuration cfg, boolean warmup,
+      InitialListener listener) {
+    InitialTask task;
+    while (true) {
+      InitialTask current = initialization.get();
+      if (current != null && (current.warmup || !warmup)) {
+        task = current;
+        break;
+      }
+      // 尚未初始化、上次初始化失败，或需要补充预热
+      task = new InitialTask(cfg, warmup);
+      if (initialization.compareAndSet(current, task)) {
+        Thread thread = new Thread(task, "IK-DictionaryInitializer");
+        thread.setDaemon(true);
+        thread.start();
+        break;
+      }
+    }
+    if (listener != null) {
+      task.addListener(listener);
+    }
+    return task;
+  }
+
+  /**
+   * 获取词典单例
+   * initialAsync启动的初始化尚未结束时，最多等待cfg配置的dict_initial_timeout秒，
+   * 避免创建分词器的请求线程无限期地阻塞在词典加载上；后台初始化失败时在当前线程中重新初始化
+   * @param cfg
+   * @return Dictionary 词典单例
+   */
+  static Dictionary awaitInitial(Configuration cfg) {
+    InitialTask task = initialization.get();
+    if (task != null && !task.isDone()) {
+      long timeout = DefaultConfig.extend(cfg).getDictInitialTimeout();
+      try {
+        return task.get(timeout, TimeUnit.SECONDS);
+      } catch (TimeoutException e) {
+        throw new IllegalStateException("词典初始化超时（" + timeout + "秒）", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("等待词典初始化时被中断", e);
+      } catch (ExecutionException e) {
+        // 后台初始化失败，由Dictionary.initial重新初始化或抛出异常
+      } catch (CancellationException e) {
+        // 同上
+      }
+    }
+    return Dictionary.initial(cfg);
+  }
+
+  /**
+   * 用内置语料反复分词，预热分词热点方法
+   * @param cfg
+   * @param dictionary
    * @throws IOException
    */
-  public synchronized Lexeme next() throws IOException {
-    Lexeme l = null;
-    while ((l = context.getNextLexeme()) == null) {
-      /*
-       * 从reader中读取数据，填充buffer 如果reader是分次读入buffer的，那么buffer要 进行移位处理 移位处理上次读入的但未处理的数据
-       */
-      int available = context.fillBuffer(this.input);
-      if (available <= 0) {
-        // reader已经读完
-        context.reset();
-        return null;
-
-      } else {
-        // 初始化指针
-        context.initCursor();
-        do {
-          // 遍历子分词器
-          for (ISegmenter segmenter : segmenters) {
-            segmenter.analyze(context);
-          }
-          // 字符缓冲区接近读完，需要读入新的字符
-          if (context.needRefillBuffer()) {
-            break;
-          }
-          // 向前移动指针
-        } while (context.moveCursor());
-        // 重置子分词器，为下轮循环进行初始化
-        for (ISegmenter segmenter : segmenters) {
-          segmenter.reset();
+  static void warmup(Configuration cfg, Dictionary dictionary) throws IOException {
+    SegmenterSession session = new SegmenterEngine(cfg, dictionary).newSession(new StringReader(""));
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      for (String text : WARMUP_CORPUS) {
+        session.reset(new StringReader(text));
+        while (session.nextToken()) {
+          // 只需执行分词过程
         }
       }
-      // 对分词进行歧义处理
-      this.arbitrator.process(context, this.cfg.useSmart());
-      // 将分词结果输出到结果集，并处理未切分的单个CJK字符
-      context.outputToResult();
-      // 记录本次分词的缓冲区位移
-      context.markBufferOffset();
     }
-    return l;
+  }
+
+  /**
+   * 分词，获取下一个词元
+   * @return Lexeme 词元对象
+   * @throws IOException
+   */
+  public synchronized Lexeme next() throws IOException {
+    return this.session.next();
+  }
+
+  /**
+   * 分词，前进到下一个词元，不创建Lexeme对象及词元文本
+   * 当前词元通过getTokenBuffer、getTokenBegin、getTokenLength等方法读取，
+   * 下一次调用next、nextToken或reset之前有效；多线程共享时在synchronized (segmenter)中连续调用
+   * @return boolean 词元输出完毕时返回false
+   * @throws IOException
+   */
+  public synchronized boolean nextToken() throws IOException {
+    return this.session.nextToken();
+  }
+
+  /**
+   * 当前词元所在的字符缓冲区，缓冲区内容不可修改
+   * @return char[]
+   */
+  public synchronized char[] getTokenBuffer() {
+    return this.session.getTokenBuffer();
+  }
+
+  /**
+   * 当前词元在getTokenBuffer()中的起始位置
+   * @return int
+   */
+  public synchronized int getTokenBegin() {
+    return this.session.getTokenBegin();
+  }
+
+  /**
+   * 当前词元的长度
+   * @return int
+   */
+  public synchronized int getTokenLength() {
+    return this.session.getTokenLength();
+  }
+
+  /**
+   * 当前词元在文本中的起始位置
+   * @return int
+   */
+  public synchronized int getTokenBeginPosition() {
+    return this.session.getTokenBeginPosition();
+  }
+
+  /**
+   * 当前词元在文本中的结束位置
+   * @return int
+   */
+  public synchronized int getTokenEndPosition() {
+    return this.session.getTokenEndPosition();
+  }
+
+  /**
+   * 当前词元的类型，取值为Lexeme中的类型常量
+   * @return int
+   */
+  public synchronized int getTokenType() {
+    return this.session.getTokenType();
+  }
+
+  /**
+   * 切分输入中剩余的全部文本，词元通过sink回调输出
+   * 参见SegmenterSession.nextTokens(LexemeSink)
+   * @param sink 词元接收器，如TokenBuffer
+   * @return int 输出的词元数
+   * @throws IOException
+   */
+  public synchronized int nextTokens(LexemeSink sink) throws IOException {
+    return this.session.nextTokens(sink);
+  }
+
+  /**
+   * 直接切分字符数组中的文本，词元通过sink回调输出
+   * 参见SegmenterSession.segment(char[], int, int, LexemeSink)
+   * @param text
+   * @param off 文本在text中的起始位置
+   * @param len 文本长度
+   * @param sink 词元接收器，词元的起始位置为在text中的下标
+   * @return int 输出的词元数
+   * @throws IOException
+   */
+  public synchronized int segment(char[] text, int off, int len, LexemeSink sink)
+      throws IOException {
+    return this.session.segment(text, off, len, sink);
+  }
+
+  /**
+   * 直接切分字符串，词元通过sink回调输出
+   * 参见SegmenterSession.segment(String, LexemeSink)
+   * @param text
+   * @param sink 词元接收器
+   * @return int 输出的词元数
+   * @throws IOException
+   */
+  public synchronized int segment(String text, LexemeSink sink) throws IOException {
+    return this.session.segment(text, sink);
   }
 
   /**
@@ -156,10 +321,101 @@ public final class IKSegmenter {
      * @param input
      */
   public synchronized void reset(Reader input) {
-    this.input = input;
-    context.reset();
-    for (ISegmenter segmenter : segmenters) {
-      segmenter.reset();
+    this.session.reset(input);
+  }
+
+  /**
+   * 后台词典初始化任务，结束时通知已注册的InitialListener
+   */
+  private static final class InitialTask extends FutureTask<Dictionary> {
+
+    // 是否预热分词器
+    final boolean warmup;
+    // 等待通知的回调，任务结束后为null
+    private List<InitialListener> listeners = new ArrayList<InitialListener>(2);
+
+    InitialTask(final Configuration cfg, final boolean warmup) {
+      super(new Callable<Dictionary>() {
+        public Dictionary call() throws IOException {
+          // 词典单例已经载入或正在载入时，等待并返回同一个实例
+          Dictionary dictionary = Dictionary.initial(cfg);
+          if (warmup) {
+            warmup(cfg, dictionary);
+          }
+          return dictionary;
+        }
+      });
+      this.warmup = warmup;
+    }
+
+    /**
+     * 注册回调，任务已经结束时立即通知
+     * @param listener
+     */
+    void addListener(InitialListener listener) {
+      synchronized (this) {
+        if (this.listeners != null) {
+          this.listeners.add(listener);
+          return;
+        }
+      }
+      this.fire(listener);
+    }
+
+    @Override
+    protected void done() {
+      if (this.isCancelled() || this.failed()) {
+        // 先移除失败的任务，回调中即可重新初始化
+        initialization.compareAndSet(this, null);
+      }
+      List<InitialListener> pending;
+      synchronized (this) {
+        pending = this.listeners;
+        this.listeners = null;
+      }
+      for (InitialListener listener : pending) {
+        this.fire(listener);
+      }
+    }
+
+    /**
+     * 已经结束的任务是否失败
+     * @return boolean
+     */
+    private boolean failed() {
+      try {
+        this.get();
+        return false;
+      } catch (ExecutionException e) {
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return true;
+      }
+    }
+
+    private void fire(InitialListener listener) {
+      try {
+        Dictionary dictionary;
+        try {
+          dictionary = this.get();
+        } catch (ExecutionException e) {
+          listener.failed(e.getCause());
+          return;
+        } catch (CancellationException e) {
+          listener.failed(e);
+          return;
+        } catch (InterruptedException e) {
+          // 任务已经结束，get不会阻塞
+          Thread.currentThread().interrupt();
+          listener.failed(e);
+          return;
+        }
+        listener.initialized(dictionary);
+      } catch (RuntimeException e) {
+        // 回调的异常不影响其他回调
+        e.printStackTrace();
+      }
     }
   }
 }
@@ -0,0 +1,49 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.core;
+
+import org.wltea.analyzer.dic.Dictionary;
+
+/**
+ * 后台词典初始化的完成回调
+ * 配合IKSegmenter.initialAsync使用，初始化（及预热）结束后调用其中一个方法；
+ * 在初始化线程中调用，注册时初始化已经结束则在注册线程中立即调用
+ */
+public interface InitialListener {
+
+  /**
+   * 词典初始化（及预热）完成
+   * @param dictionary 词典单例
+   */
+  void initialized(Dictionary dictionary);
+
+  /**
+   * 词典初始化失败
+   * @param cause 失败原因
+   */
+  void failed(Throwable cause);
+
+}
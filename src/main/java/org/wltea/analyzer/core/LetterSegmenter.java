@@ -32,13 +32,13 @@ import java.util.Arrays;
  */
 class LetterSegmenter implements ISegmenter {
 
-  // 子分词器标签
-  static final String SEGMENTER_NAME = "LETTER_SEGMENTER";
+  // 子分词器锁位
+  static final int SEGMENTER_LOCK = 1;
   // 链接符号
-  private static final char[] Letter_Connector = new char[] { '#', '&', '+', '-', '.', '@', '_' };
+  static final char[] Letter_Connector = new char[] { '#', '&', '+', '-', '.', '@', '_' };
 
   // 数字符号
-  private static final char[] Num_Connector = new char[] { ',', '.' };
+  static final char[] Num_Connector = new char[] { ',', '.' };
 
   /*
    * 词元的开始位置， 同时作为子分词器状态标识 当start > -1 时，标识当前的分词器正在处理字符
@@ -95,10 +95,10 @@ class LetterSegmenter implements ISegmenter {
 
     // 判断是否锁定缓冲区
     if (bufferLockFlag) {
-      context.lockBuffer(SEGMENTER_NAME);
+      context.lockBuffer(SEGMENTER_LOCK);
     } else {
       // 对缓冲区解锁
-      context.unlockBuffer(SEGMENTER_NAME);
+      context.unlockBuffer(SEGMENTER_LOCK);
     }
   }
 
@@ -145,9 +145,8 @@ class LetterSegmenter implements ISegmenter {
         this.end = context.getCursor();
       } else {
         // 遇到非Letter字符，输出词元
-        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.start, this.end - this.start
-            + 1, Lexeme.TYPE_LETTER);
-        context.addLexeme(newLexeme);
+        context.addLexeme(this.start, this.end - this.start + 1, Lexeme.TYPE_LETTER,
+          Lexeme.FLAGS_UNKNOWN);
         this.start = -1;
         this.end = -1;
       }
@@ -157,9 +156,8 @@ class LetterSegmenter implements ISegmenter {
     if (context.isBufferConsumed()) {
       if (this.start != -1 && this.end != -1) {
         // 缓冲以读完，输出词元
-        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.start, this.end - this.start
-            + 1, Lexeme.TYPE_LETTER);
-        context.addLexeme(newLexeme);
+        context.addLexeme(this.start, this.end - this.start + 1, Lexeme.TYPE_LETTER,
+          Lexeme.FLAGS_UNKNOWN);
         this.start = -1;
         this.end = -1;
       }
@@ -195,9 +193,8 @@ class LetterSegmenter implements ISegmenter {
         this.englishEnd = context.getCursor();
       } else {
         // 遇到非English字符,输出词元
-        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.englishStart, this.englishEnd
-            - this.englishStart + 1, Lexeme.TYPE_ENGLISH);
-        context.addLexeme(newLexeme);
+        context.addLexeme(this.englishStart, this.englishEnd - this.englishStart + 1,
+          Lexeme.TYPE_ENGLISH, Lexeme.FLAGS_UNKNOWN);
         this.englishStart = -1;
         this.englishEnd = -1;
       }
@@ -207,9 +204,8 @@ class LetterSegmenter implements ISegmenter {
     if (context.isBufferConsumed()) {
       if (this.englishStart != -1 && this.englishEnd != -1) {
         // 缓冲以读完，输出词元
-        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.englishStart, this.englishEnd
-            - this.englishStart + 1, Lexeme.TYPE_ENGLISH);
-        context.addLexeme(newLexeme);
+        context.addLexeme(this.englishStart, this.englishEnd - this.englishStart + 1,
+          Lexeme.TYPE_ENGLISH, Lexeme.FLAGS_UNKNOWN);
         this.englishStart = -1;
         this.englishEnd = -1;
       }
@@ -248,9 +244,8 @@ class LetterSegmenter implements ISegmenter {
         // 不输出数字，但不标记结束
       } else {
         // //遇到非Arabic字符,输出词元
-        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.arabicStart, this.arabicEnd
-            - this.arabicStart + 1, Lexeme.TYPE_ARABIC);
-        context.addLexeme(newLexeme);
+        context.addLexeme(this.arabicStart, this.arabicEnd - this.arabicStart + 1,
+          Lexeme.TYPE_ARABIC, Lexeme.FLAGS_UNKNOWN);
         this.arabicStart = -1;
         this.arabicEnd = -1;
       }
@@ -260,9 +255,8 @@ class LetterSegmenter implements ISegmenter {
     if (context.isBufferConsumed()) {
       if (this.arabicStart != -1 && this.arabicEnd != -1) {
         // 生成已切分的词元
-        Lexeme newLexeme = new Lexeme(context.getBufferOffset(), this.arabicStart, this.arabicEnd
-            - this.arabicStart + 1, Lexeme.TYPE_ARABIC);
-        context.addLexeme(newLexeme);
+        context.addLexeme(this.arabicStart, this.arabicEnd - this.arabicStart + 1,
+          Lexeme.TYPE_ARABIC, Lexeme.FLAGS_UNKNOWN);
         this.arabicStart = -1;
         this.arabicEnd = -1;
       }
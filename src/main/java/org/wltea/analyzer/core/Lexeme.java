@@ -50,6 +50,9 @@ public class Lexeme implements Comparable<Lexeme> {
   // 中文数量词
   public static final int TYPE_CQUAN = 48;
 
+  // 词的标志位未知
+  public static final int FLAGS_UNKNOWN = -1;
+
   // 词元的起始位移
   private int offset;
   // 词元的相对起始位置
@@ -60,6 +63,8 @@ public class Lexeme implements Comparable<Lexeme> {
   private String lexemeText;
   // 词元类型
   private int lexemeType;
+  // 词元在词典中的标志位（Dictionary.WORD_MAIN等），未知为FLAGS_UNKNOWN
+  private int wordFlags = FLAGS_UNKNOWN;
 
   public Lexeme(int offset, int begin, int length, int lexemeType) {
     this.offset = offset;
@@ -211,6 +216,15 @@ public class Lexeme implements Comparable<Lexeme> {
    * @return String
    */
   public String getLexemeTypeString() {
+    return toTypeString(this.lexemeType);
+  }
+
+  /**
+   * 获取词元类型对应的标示字符串
+   * @param lexemeType
+   * @return String
+   */
+  public static String toTypeString(int lexemeType) {
     switch (lexemeType) {
 
     case TYPE_ENGLISH:
@@ -249,6 +263,19 @@ public class Lexeme implements Comparable<Lexeme> {
     this.lexemeType = lexemeType;
   }
 
+  /**
+   * 获取词元在词典中的标志位
+   * 由词典匹配直接产生的中文词元记录匹配时取得的标志位（包括用户标签）
+   * @return int Dictionary.WORD_MAIN等标志位的组合，未知时为FLAGS_UNKNOWN
+   */
+  public int getWordFlags() {
+    return wordFlags;
+  }
+
+  public void setWordFlags(int wordFlags) {
+    this.wordFlags = wordFlags;
+  }
+
   /**
    * 合并两个相邻的词元
    * @param l
@@ -259,6 +286,8 @@ public class Lexeme implements Comparable<Lexeme> {
     if (l != null && this.getEndPosition() == l.getBeginPosition()) {
       this.length += l.getLength();
       this.lexemeType = lexemeType;
+      // 合并后的词元需要重新查询词典
+      this.wordFlags = FLAGS_UNKNOWN;
       return true;
     } else {
       return false;
@@ -29,6 +29,9 @@ package org.wltea.analyzer.core;
  */
 class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
 
+  // 初始容量，多数路径只包含一两个词元
+  private static final int INITIAL_CAPACITY = 2;
+
   // 起始位置
   private int pathBegin;
   // 结束
@@ -36,7 +39,12 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
   // 词元链的有效字符长度
   private int payloadLength;
 
-  LexemePath() {
+  LexemePath(LexemeStore store) {
+    this(store, INITIAL_CAPACITY);
+  }
+
+  private LexemePath(LexemeStore store, int capacity) {
+    super(store, capacity);
     this.pathBegin = -1;
     this.pathEnd = -1;
     this.payloadLength = 0;
@@ -44,21 +52,21 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
 
   /**
    * 向LexemePath追加相交的Lexeme
-   * @param lexeme
+   * @param lexeme 词元编号
    * @return 
    */
-  boolean addCrossLexeme(Lexeme lexeme) {
+  boolean addCrossLexeme(int lexeme) {
     if (this.isEmpty()) {
       this.addLexeme(lexeme);
-      this.pathBegin = lexeme.getBegin();
-      this.pathEnd = lexeme.getBegin() + lexeme.getLength();
-      this.payloadLength += lexeme.getLength();
+      this.pathBegin = this.store.getBegin(lexeme);
+      this.pathEnd = this.store.getEnd(lexeme);
+      this.payloadLength += this.store.getLength(lexeme);
       return true;
 
     } else if (this.checkCross(lexeme)) {
       this.addLexeme(lexeme);
-      if (lexeme.getBegin() + lexeme.getLength() > this.pathEnd) {
-        this.pathEnd = lexeme.getBegin() + lexeme.getLength();
+      if (this.store.getEnd(lexeme) > this.pathEnd) {
+        this.pathEnd = this.store.getEnd(lexeme);
       }
       this.payloadLength = this.pathEnd - this.pathBegin;
       return true;
@@ -71,15 +79,15 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
 
   /**
    * 向LexemePath追加不相交的Lexeme
-   * @param lexeme
+   * @param lexeme 词元编号
    * @return 
    */
-  boolean addNotCrossLexeme(Lexeme lexeme) {
+  boolean addNotCrossLexeme(int lexeme) {
     if (this.isEmpty()) {
       this.addLexeme(lexeme);
-      this.pathBegin = lexeme.getBegin();
-      this.pathEnd = lexeme.getBegin() + lexeme.getLength();
-      this.payloadLength += lexeme.getLength();
+      this.pathBegin = this.store.getBegin(lexeme);
+      this.pathEnd = this.store.getEnd(lexeme);
+      this.payloadLength += this.store.getLength(lexeme);
       return true;
 
     } else if (this.checkCross(lexeme)) {
@@ -87,11 +95,9 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
 
     } else {
       this.addLexeme(lexeme);
-      this.payloadLength += lexeme.getLength();
-      Lexeme head = this.peekFirst();
-      this.pathBegin = head.getBegin();
-      Lexeme tail = this.peekLast();
-      this.pathEnd = tail.getBegin() + tail.getLength();
+      this.payloadLength += this.store.getLength(lexeme);
+      this.pathBegin = this.store.getBegin(this.peekFirst());
+      this.pathEnd = this.store.getEnd(this.peekLast());
       return true;
 
     }
@@ -101,29 +107,28 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
    * 移除尾部的Lexeme
    * @return
    */
-  Lexeme removeTail() {
-    Lexeme tail = this.pollLast();
+  int removeTail() {
+    int tail = this.pollLast();
     if (this.isEmpty()) {
       this.pathBegin = -1;
       this.pathEnd = -1;
       this.payloadLength = 0;
     } else {
-      this.payloadLength -= tail.getLength();
-      Lexeme newTail = this.peekLast();
-      this.pathEnd = newTail.getBegin() + newTail.getLength();
+      this.payloadLength -= this.store.getLength(tail);
+      this.pathEnd = this.store.getEnd(this.peekLast());
     }
     return tail;
   }
 
   /**
    * 检测词元位置交叉（有歧义的切分）
-   * @param lexeme
+   * @param lexeme 词元编号
    * @return
    */
-  boolean checkCross(Lexeme lexeme) {
-    return (lexeme.getBegin() >= this.pathBegin && lexeme.getBegin() < this.pathEnd)
-        || (this.pathBegin >= lexeme.getBegin() && this.pathBegin < lexeme.getBegin()
-            + lexeme.getLength());
+  boolean checkCross(int lexeme) {
+    int begin = this.store.getBegin(lexeme);
+    return (begin >= this.pathBegin && begin < this.pathEnd)
+        || (this.pathBegin >= begin && this.pathBegin < this.store.getEnd(lexeme));
   }
 
   int getPathBegin() {
@@ -156,10 +161,8 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
    */
   int getXWeight() {
     int product = 1;
-    Cell c = this.getHead();
-    while (c != null && c.getLexeme() != null) {
-      product *= c.getLexeme().getLength();
-      c = c.getNext();
+    for (int i = 0; i < this.size(); i++) {
+      product *= this.store.getLength(this.get(i));
     }
     return product;
   }
@@ -170,26 +173,18 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
    */
   int getPWeight() {
     int pWeight = 0;
-    int p = 0;
-    Cell c = this.getHead();
-    while (c != null && c.getLexeme() != null) {
-      p++;
-      pWeight += p * c.getLexeme().getLength();
-      c = c.getNext();
+    for (int i = 0; i < this.size(); i++) {
+      pWeight += (i + 1) * this.store.getLength(this.get(i));
     }
     return pWeight;
   }
 
   LexemePath copy() {
-    LexemePath theCopy = new LexemePath();
+    LexemePath theCopy = new LexemePath(this.store, this.size());
     theCopy.pathBegin = this.pathBegin;
     theCopy.pathEnd = this.pathEnd;
     theCopy.payloadLength = this.payloadLength;
-    Cell c = this.getHead();
-    while (c != null && c.getLexeme() != null) {
-      theCopy.addLexeme(c.getLexeme());
-      c = c.getNext();
-    }
+    theCopy.copyFrom(this);
     return theCopy;
   }
 
@@ -244,10 +239,8 @@ class LexemePath extends QuickSortSet implements Comparable<LexemePath> {
     sb.append("pathBegin  : ").append(pathBegin).append("\r\n");
     sb.append("pathEnd  : ").append(pathEnd).append("\r\n");
     sb.append("payloadLength  : ").append(payloadLength).append("\r\n");
-    Cell head = this.getHead();
-    while (head != null) {
-      sb.append("lexeme : ").append(head.getLexeme()).append("\r\n");
-      head = head.getNext();
+    for (int i = 0; i < this.size(); i++) {
+      sb.append("lexeme : ").append(this.store.toLexeme(this.get(i))).append("\r\n");
     }
     return sb.toString();
   }
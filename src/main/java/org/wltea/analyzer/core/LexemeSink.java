@@ -0,0 +1,42 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.core;
+
+/**
+ * 词元接收器
+ * 配合SegmenterSession.segment、nextTokens使用，以回调方式接收词元的位置及类型，不创建Lexeme对象及词元文本
+ */
+public interface LexemeSink {
+
+  /**
+   * 接收一个词元
+   * @param begin 词元的起始位置，segment时为在传入的文本中的下标，nextTokens时为在输入中的位置
+   * @param length 词元长度
+   * @param type 词元类型，取值为Lexeme中的类型常量
+   */
+  void accept(int begin, int length, int type);
+
+}
@@ -0,0 +1,173 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.core;
+
+import java.util.Arrays;
+
+/**
+ * 词元存储
+ * 以平行的基本类型数组保存一轮缓冲区分析产生的全部词元（起始位置、长度、类型、词典标志位），
+ * 分词过程中以数组下标（词元编号）引用词元，不为每个候选词元创建Lexeme对象
+ * 存储在缓冲区之间、文档之间重复使用，只在输出词元时才创建Lexeme
+ */
+class LexemeStore {
+
+  // 初始容量
+  private static final int INITIAL_CAPACITY = 1024;
+
+  // 本轮词元所在segmentBuff相对于reader起始位置的位移
+  private int offset;
+  // 词元起始位置
+  private int[] begins;
+  // 词元长度
+  private int[] lengths;
+  // 词元类型
+  private int[] types;
+  // 词元的词典标志位
+  private int[] flags;
+  // 已保存的词元数
+  private int size;
+
+  LexemeStore() {
+    this.begins = new int[INITIAL_CAPACITY];
+    this.lengths = new int[INITIAL_CAPACITY];
+    this.types = new int[INITIAL_CAPACITY];
+    this.flags = new int[INITIAL_CAPACITY];
+  }
+
+  /**
+   * 保存一个词元
+   * @param begin 词元在segmentBuff中的起始位置
+   * @param length 词元长度
+   * @param lexemeType 词元类型
+   * @param wordFlags 词典标志位，未知时为Lexeme.FLAGS_UNKNOWN
+   * @return int 词元编号
+   */
+  int add(int begin, int length, int lexemeType, int wordFlags) {
+    if (this.size == this.begins.length) {
+      int capacity = this.size << 1;
+      this.begins = Arrays.copyOf(this.begins, capacity);
+      this.lengths = Arrays.copyOf(this.lengths, capacity);
+      this.types = Arrays.copyOf(this.types, capacity);
+      this.flags = Arrays.copyOf(this.flags, capacity);
+    }
+    int id = this.size++;
+    this.begins[id] = begin;
+    this.lengths[id] = length;
+    this.types[id] = lexemeType;
+    this.flags[id] = wordFlags;
+    return id;
+  }
+
+  /**
+   * 本轮词元所在segmentBuff相对于reader起始位置的位移
+   * @return
+   */
+  int getOffset() {
+    return this.offset;
+  }
+
+  int getBegin(int id) {
+    return this.begins[id];
+  }
+
+  int getLength(int id) {
+    return this.lengths[id];
+  }
+
+  /**
+   * 词元在segmentBuff中的结束位置（不含）
+   * @param id
+   * @return
+   */
+  int getEnd(int id) {
+    return this.begins[id] + this.lengths[id];
+  }
+
+  int getType(int id) {
+    return this.types[id];
+  }
+
+  int getFlags(int id) {
+    return this.flags[id];
+  }
+
+  /**
+   * 比较两个词元的位置，规则与Lexeme.compareTo相同
+   * 起始位置小的在前，起始位置相同时长度大的在前
+   * @param id
+   * @param other
+   * @return
+   */
+  int compare(int id, int other) {
+    if (this.begins[id] != this.begins[other]) {
+      return this.begins[id] < this.begins[other] ? -1 : 1;
+    }
+    if (this.lengths[id] != this.lengths[other]) {
+      return this.lengths[id] > this.lengths[other] ? -1 : 1;
+    }
+    return 0;
+  }
+
+  /**
+   * 合并相邻的词元，语义与Lexeme.append相同
+   * @param id 被合并的词元
+   * @param next 紧随其后的词元
+   * @param lexemeType 合并后的词元类型
+   * @return boolean 两个词元不相邻时返回false
+   */
+  boolean append(int id, int next, int lexemeType) {
+    if (this.getEnd(id) == this.begins[next]) {
+      this.lengths[id] += this.lengths[next];
+      this.types[id] = lexemeType;
+      // 合并后的词元需要重新查询词典
+      this.flags[id] = Lexeme.FLAGS_UNKNOWN;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * 创建对外输出的Lexeme对象
+   * @param id
+   * @return
+   */
+  Lexeme toLexeme(int id) {
+    Lexeme lexeme = new Lexeme(this.offset, this.begins[id], this.lengths[id], this.types[id]);
+    lexeme.setWordFlags(this.flags[id]);
+    return lexeme;
+  }
+
+  /**
+   * 开始新一轮缓冲区分析，丢弃上一轮的全部词元
+   * @param offset 本轮segmentBuff相对于reader起始位置的位移
+   */
+  void clear(int offset) {
+    this.offset = offset;
+    this.size = 0;
+  }
+
+}
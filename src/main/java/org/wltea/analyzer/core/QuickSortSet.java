@@ -24,137 +24,148 @@
  */
 package org.wltea.analyzer.core;
 
+import java.util.Arrays;
+
 /**
  * IK分词器专用的Lexem快速排序集合
+ * 集合元素为LexemeStore中的词元编号，按（起始位置，-长度）排序并去重
+ * 元素保存在连续的数组中，词元基本按顺序到达，通常直接追加到尾部
  */
 class QuickSortSet {
-  // 链表头
-  private Cell head;
-  // 链表尾
-  private Cell tail;
-  // 链表的实际大小
+  // 集合元素为空时返回的词元编号
+  static final int NONE = -1;
+  // 默认初始容量
+  private static final int DEFAULT_CAPACITY = 16;
+
+  // 词元存储
+  final LexemeStore store;
+  // 排序键：起始位置在高32位，长度越大键越小
+  private long[] keys;
+  // 与排序键对应的词元编号
+  private int[] lexemes;
+  // 集合头部在数组中的位置
+  private int head;
+  // 集合的实际大小
   private int size;
 
-  QuickSortSet() {
-    this.size = 0;
+  QuickSortSet(LexemeStore store) {
+    this(store, DEFAULT_CAPACITY);
+  }
+
+  QuickSortSet(LexemeStore store, int capacity) {
+    this.store = store;
+    this.keys = new long[capacity];
+    this.lexemes = new int[capacity];
   }
 
   /**
-   * 向链表集合添加词元
-   * @param lexeme
+   * 向集合添加词元
+   * @param lexeme 词元编号
+   * @return 与集合中的词元位置、长度均相同时不放入集合，返回false
    */
-  boolean addLexeme(Lexeme lexeme) {
-    Cell newCell = new Cell(lexeme);
-    if (this.size == 0) {
-      this.head = newCell;
-      this.tail = newCell;
-      this.size++;
-      return true;
-
-    } else {
-      if (this.tail.compareTo(newCell) == 0) {// 词元与尾部词元相同，不放入集合
+  boolean addLexeme(int lexeme) {
+    long key = ((long) this.store.getBegin(lexeme) << 32) - this.store.getLength(lexeme);
+    int tail = this.head + this.size;
+    int index = tail;
+    if (this.size > 0 && this.keys[tail - 1] >= key) {
+      // 不在尾部，二分查找插入位置
+      index = Arrays.binarySearch(this.keys, this.head, tail, key);
+      if (index >= 0) {// 词元与集合中的词元重复，不放入集合
         return false;
-
-      } else if (this.tail.compareTo(newCell) < 0) {// 词元接入链表尾部
-        this.tail.next = newCell;
-        newCell.prev = this.tail;
-        this.tail = newCell;
-        this.size++;
-        return true;
-
-      } else if (this.head.compareTo(newCell) > 0) {// 词元接入链表头部
-        this.head.prev = newCell;
-        newCell.next = this.head;
-        this.head = newCell;
-        this.size++;
-        return true;
-
-      } else {
-        // 从尾部上逆
-        Cell index = this.tail;
-        while (index != null && index.compareTo(newCell) > 0) {
-          index = index.prev;
-        }
-        if (index.compareTo(newCell) == 0) {// 词元与集合中的词元重复，不放入集合
-          return false;
-
-        } else if (index.compareTo(newCell) < 0) {// 词元插入链表中的某个位置
-          newCell.prev = index;
-          newCell.next = index.next;
-          index.next.prev = newCell;
-          index.next = newCell;
-          this.size++;
-          return true;
-        }
       }
+      index = -index - 1;
+    }
+    if (tail == this.keys.length) {
+      index -= this.ensureCapacity();
+      tail = this.head + this.size;
+    }
+    if (index < tail) {
+      System.arraycopy(this.keys, index, this.keys, index + 1, tail - index);
+      System.arraycopy(this.lexemes, index, this.lexemes, index + 1, tail - index);
     }
-    return false;
+    this.keys[index] = key;
+    this.lexemes[index] = lexeme;
+    this.size++;
+    return true;
+  }
+
+  /**
+   * 数组尾部已满时，先将元素移回数组头部，空间仍不足时扩容
+   * @return int 元素向数组头部移动的距离
+   */
+  private int ensureCapacity() {
+    int shift = this.head;
+    if (this.size >= this.keys.length >> 1) {
+      int capacity = Math.max(this.keys.length << 1, 2);
+      long[] newKeys = new long[capacity];
+      int[] newLexemes = new int[capacity];
+      System.arraycopy(this.keys, this.head, newKeys, 0, this.size);
+      System.arraycopy(this.lexemes, this.head, newLexemes, 0, this.size);
+      this.keys = newKeys;
+      this.lexemes = newLexemes;
+    } else {
+      System.arraycopy(this.keys, this.head, this.keys, 0, this.size);
+      System.arraycopy(this.lexemes, this.head, this.lexemes, 0, this.size);
+    }
+    this.head = 0;
+    return shift;
+  }
+
+  /**
+   * 返回集合中指定序号的元素
+   * @param index 0 至 size() - 1
+   * @return int 词元编号
+   */
+  int get(int index) {
+    return this.lexemes[this.head + index];
   }
 
   /**
-   * 返回链表头部元素
+   * 返回集合头部元素
    * @return
    */
-  Lexeme peekFirst() {
-    if (this.head != null) {
-      return this.head.lexeme;
+  int peekFirst() {
+    if (this.size > 0) {
+      return this.lexemes[this.head];
     }
-    return null;
+    return NONE;
   }
 
   /**
-   * 取出链表集合的第一个元素
-   * @return Lexeme
+   * 取出集合的第一个元素
+   * @return int 词元编号，集合为空时返回NONE
    */
-  Lexeme pollFirst() {
-    if (this.size == 1) {
-      Lexeme first = this.head.lexeme;
-      this.head = null;
-      this.tail = null;
-      this.size--;
-      return first;
-    } else if (this.size > 1) {
-      Lexeme first = this.head.lexeme;
-      this.head = this.head.next;
+  int pollFirst() {
+    if (this.size > 0) {
       this.size--;
-      return first;
-    } else {
-      return null;
+      return this.lexemes[this.head++];
     }
+    this.head = 0;
+    return NONE;
   }
 
   /**
-   * 返回链表尾部元素
+   * 返回集合尾部元素
    * @return
    */
-  Lexeme peekLast() {
-    if (this.tail != null) {
-      return this.tail.lexeme;
+  int peekLast() {
+    if (this.size > 0) {
+      return this.lexemes[this.head + this.size - 1];
     }
-    return null;
+    return NONE;
   }
 
   /**
-   * 取出链表集合的最后一个元素
-   * @return Lexeme
+   * 取出集合的最后一个元素
+   * @return int 词元编号，集合为空时返回NONE
    */
-  Lexeme pollLast() {
-    if (this.size == 1) {
-      Lexeme last = this.head.lexeme;
-      this.head = null;
-      this.tail = null;
-      this.size--;
-      return last;
-
-    } else if (this.size > 1) {
-      Lexeme last = this.tail.lexeme;
-      this.tail = this.tail.prev;
+  int pollLast() {
+    if (this.size > 0) {
       this.size--;
-      return last;
-
-    } else {
-      return null;
+      return this.lexemes[this.head + this.size];
     }
+    this.head = 0;
+    return NONE;
   }
 
   /**
@@ -174,66 +185,25 @@ class QuickSortSet {
   }
 
   /**
-   * 返回lexeme链的头部
-   * @return
+   * 清空集合，保留已分配的数组
    */
-  Cell getHead() {
-    return this.head;
+  void clear() {
+    this.head = 0;
+    this.size = 0;
   }
 
   /**
-   * 
-   * IK 中文分词  版本 5.0
-   * IK Analyzer release 5.0
-   * 
-   * Licensed to the Apache Software Foundation (ASF) under one or more
-   * contributor license agreements.  See the NOTICE file distributed with
-   * this work for additional information regarding copyright ownership.
-   * The ASF licenses this file to You under the Apache License, Version 2.0
-   * (the "License"); you may not use this file except in compliance with
-   * the License.  You may obtain a copy of the License at
-   *
-   *     http://www.apache.org/licenses/LICENSE-2.0
-   *
-   * Unless required by applicable law or agreed to in writing, software
-   * distributed under the License is distributed on an "AS IS" BASIS,
-   * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-   * See the License for the specific language governing permissions and
-   * limitations under the License.
-   *
-   * 源代码由林良益(linliangyi2005@gmail.com)提供
-   * 版权声明 2012，乌龙茶工作室
-   * provided by Linliangyi and copyright 2012 by Oolong studio
-   * 
-   * QuickSortSet集合单元
-   * 
+   * 以另一个集合的全部元素替换当前集合的元素
+   * @param other
    */
-  class Cell implements Comparable<Cell> {
-    private Cell prev;
-    private Cell next;
-    private Lexeme lexeme;
-
-    Cell(Lexeme lexeme) {
-      if (lexeme == null) {
-        throw new IllegalArgumentException("lexeme must not be null");
-      }
-      this.lexeme = lexeme;
-    }
-
-    public int compareTo(Cell o) {
-      return this.lexeme.compareTo(o.lexeme);
-    }
-
-    public Cell getPrev() {
-      return this.prev;
-    }
-
-    public Cell getNext() {
-      return this.next;
-    }
-
-    public Lexeme getLexeme() {
-      return this.lexeme;
+  void copyFrom(QuickSortSet other) {
+    if (this.keys.length < other.size) {
+      this.keys = new long[other.size];
+      this.lexemes = new int[other.size];
     }
+    System.arraycopy(other.keys, other.head, this.keys, 0, other.size);
+    System.arraycopy(other.lexemes, other.head, this.lexemes, 0, other.size);
+    this.head = 0;
+    this.size = other.size;
   }
 }
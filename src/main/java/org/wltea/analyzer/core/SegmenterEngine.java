@@ -0,0 +1,113 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.core;
+
+import java.io.Reader;
+
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.dic.Dictionary;
+
+/**
+ * 分词引擎
+ * 构造时确定分词配置及词典，之后不可变，可被多个线程共享；
+ * 每个线程通过newSession创建各自的分词会话，分词过程不再读取配置、查找词典，也没有锁竞争
+ */
+public final class SegmenterEngine {
+
+  // 是否使用智能切分
+  private final boolean useSmart;
+  // 是否使用合并的子分词器
+  private final boolean fused;
+  // 分词使用的词典
+  private final Dictionary dictionary;
+
+  /**
+   * 分词引擎构造函数，使用词典单例
+   * @param cfg
+   */
+  public SegmenterEngine(Configuration cfg) {
+    this(cfg, null);
+  }
+
+  /**
+   * 分词引擎构造函数
+   * @param cfg 分词配置，只在构造时读取，之后修改cfg不影响已创建的引擎
+   * @param dictionary 使用指定的词典（如Dictionary.newTenant创建的租户词典），为null时使用词典单例
+   */
+  public SegmenterEngine(Configuration cfg, Dictionary dictionary) {
+    this.useSmart = cfg.useSmart();
+    this.fused = IKSegmenter.SEGMENTER_FUSED.equalsIgnoreCase(DefaultConfig.extend(cfg)
+        .getSegmenter());
+    // 未指定词典时初始化词典单例，后台初始化尚未结束时有限等待
+    this.dictionary = dictionary != null ? dictionary : IKSegmenter.awaitInitial(cfg);
+  }
+
+  /**
+   * 是否使用智能切分
+   * @return boolean
+   */
+  public boolean useSmart() {
+    return this.useSmart;
+  }
+
+  /**
+   * 分词使用的词典
+   * @return Dictionary
+   */
+  public Dictionary getDictionary() {
+    return this.dictionary;
+  }
+
+  /**
+   * 创建分词会话
+   * 会话不是线程安全的，同一时间只能由一个线程使用，可通过reset反复使用
+   * @param input
+   * @return SegmenterSession
+   */
+  public SegmenterSession newSession(Reader input) {
+    return new SegmenterSession(this, input);
+  }
+
+  /**
+   * 创建一组子分词器，每个会话独立持有
+   * @return ISegmenter[]
+   */
+  ISegmenter[] newSegmenters() {
+    if (this.fused) {
+      // 由一张字符动作表驱动的合并子分词器
+      return new ISegmenter[] { new FusedSegmenter() };
+    }
+    return new ISegmenter[] {
+        // 处理字母的子分词器
+        new LetterSegmenter(),
+        // 处理中文数量词的子分词器
+        new CN_QuantifierSegmenter(),
+        // 处理中文词的子分词器
+        new CJKSegmenter() };
+  }
+
+}
@@ -0,0 +1,311 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.core;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * 分词会话
+ * 由SegmenterEngine.newSession创建，持有一次分词所需的上下文、子分词器及歧义裁决器。
+ * 会话不是线程安全的，也不加锁，同一时间只能由一个线程使用；多线程分词时每个线程使用各自的会话
+ */
+public final class SegmenterSession {
+
+  // 所属的分词引擎
+  private final SegmenterEngine engine;
+  // 字符窜reader
+  private Reader input;
+  // 分词器上下文
+  private final AnalyzeContext context;
+  // 分词处理器列表
+  private final ISegmenter[] segmenters;
+  // 分词歧义裁决器
+  private final IKArbitrator arbitrator;
+  // nextToken输出的当前词元编号
+  private int token = QuickSortSet.NONE;
+
+  SegmenterSession(SegmenterEngine engine, Reader input) {
+    this.engine = engine;
+    this.input = input;
+    this.context = new AnalyzeContext(engine.useSmart(), engine.getDictionary());
+    this.segmenters = engine.newSegmenters();
+    this.arbitrator = new IKArbitrator();
+  }
+
+  /**
+   * 所属的分词引擎
+   * @return SegmenterEngine
+   */
+  public SegmenterEngine getEngine() {
+    return this.engine;
+  }
+
+  /**
+   * 分词，获取下一个词元
+   * @return Lexeme 词元对象
+   * @throws IOException
+   */
+  public Lexeme next() throws IOException {
+    this.token = QuickSortSet.NONE;
+    int l = this.analyzeNext();
+    if (l == QuickSortSet.NONE) {
+      return null;
+    }
+    return context.toLexeme(l);
+  }
+
+  /**
+   * 分词，前进到下一个词元，不创建Lexeme对象及词元文本
+   * 当前词元通过getTokenBuffer、getTokenBegin、getTokenLength等方法读取，
+   * 下一次调用next、nextToken或reset之前有效
+   * @return boolean 词元输出完毕时返回false
+   * @throws IOException
+   */
+  public boolean nextToken() throws IOException {
+    this.token = this.analyzeNext();
+    return this.token != QuickSortSet.NONE;
+  }
+
+  /**
+   * 当前词元所在的字符缓冲区，缓冲区内容不可修改
+   * @return char[]
+   */
+  public char[] getTokenBuffer() {
+    return context.getSegmentBuff();
+  }
+
+  /**
+   * 当前词元在getTokenBuffer()中的起始位置
+   * @return int
+   */
+  public int getTokenBegin() {
+    return context.getLexemes().getBegin(this.token);
+  }
+
+  /**
+   * 当前词元的长度
+   * @return int
+   */
+  public int getTokenLength() {
+    return context.getLexemes().getLength(this.token);
+  }
+
+  /**
+   * 当前词元在文本中的起始位置
+   * @return int
+   */
+  public int getTokenBeginPosition() {
+    return context.getLexemes().getOffset() + context.getLexemes().getBegin(this.token);
+  }
+
+  /**
+   * 当前词元在文本中的结束位置
+   * @return int
+   */
+  public int getTokenEndPosition() {
+    return context.getLexemes().getOffset() + context.getLexemes().getEnd(this.token);
+  }
+
+  /**
+   * 当前词元的类型，取值为Lexeme中的类型常量
+   * @return int
+   */
+  public int getTokenType() {
+    return context.getLexemes().getType(this.token);
+  }
+
+  /**
+   * 切分reset设置的输入中剩余的全部文本，词元通过sink回调输出，不创建Lexeme对象及词元文本
+   * 词元的起始位置为在输入文本中的位置，配合TokenBuffer可将结果收集到可重用的long数组中
+   * @param sink 词元接收器
+   * @return int 输出的词元数
+   * @throws IOException
+   */
+  public int nextTokens(LexemeSink sink) throws IOException {
+    LexemeStore lexemes = context.getLexemes();
+    this.token = QuickSortSet.NONE;
+    int count = 0;
+    int l;
+    while ((l = this.analyzeNext()) != QuickSortSet.NONE) {
+      sink.accept(lexemes.getOffset() + lexemes.getBegin(l), lexemes.getLength(l),
+        lexemes.getType(l));
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * 直接切分字符数组中的文本，词元通过sink回调输出，不创建Reader、Lexeme对象及词元文本
+   * 文本短于分词缓冲区时一次复制到缓冲区后切分，省去Reader读取及缓冲区的移位、续读；
+   * 较长的文本仍按Reader方式分段切分。text的内容不会被修改。
+   * 调用后reset设置的输入被放弃，继续使用next、nextToken前需要重新reset
+   * @param text
+   * @param off 文本在text中的起始位置
+   * @param len 文本长度
+   * @param sink 词元接收器，词元的起始位置为在text中的下标
+   * @return int 输出的词元数
+   * @throws IOException
+   */
+  public int segment(char[] text, int off, int len, LexemeSink sink) throws IOException {
+    if (off < 0 || len < 0 || off > text.length - len) {
+      throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length="
+          + text.length);
+    }
+    if (len >= AnalyzeContext.BUFF_SIZE) {
+      return this.segment(new CharArrayReader(text, off, len), off, sink);
+    }
+    this.reset(null);
+    if (context.loadText(text, off, len) > 0) {
+      this.analyzeBuffer();
+    }
+    return this.output(off, sink);
+  }
+
+  /**
+   * 直接切分字符串，词元通过sink回调输出，不创建Reader、Lexeme对象及词元文本
+   * 与segment(char[], int, int, LexemeSink)相同，词元的起始位置为在text中的下标
+   * @param text
+   * @param sink 词元接收器
+   * @return int 输出的词元数
+   * @throws IOException
+   */
+  public int segment(String text, LexemeSink sink) throws IOException {
+    if (text.length() >= AnalyzeContext.BUFF_SIZE) {
+      return this.segment(new StringReader(text), 0, sink);
+    }
+    this.reset(null);
+    if (context.loadText(text) > 0) {
+      this.analyzeBuffer();
+    }
+    return this.output(0, sink);
+  }
+
+  /**
+   * 按Reader方式切分较长的文本
+   * @param reader
+   * @param base 词元位置的偏移量
+   * @param sink
+   * @return int 输出的词元数
+   * @throws IOException
+   */
+  private int segment(Reader reader, int base, LexemeSink sink) throws IOException {
+    this.reset(reader);
+    int count = 0;
+    while (this.nextToken()) {
+      sink.accept(base + this.getTokenBeginPosition(), this.getTokenLength(),
+        this.getTokenType());
+      count++;
+    }
+    this.input = null;
+    return count;
+  }
+
+  /**
+   * 输出已整段切分的结果，之后重置上下文
+   * @param base 词元位置的偏移量
+   * @param sink
+   * @return int 输出的词元数
+   */
+  private int output(int base, LexemeSink sink) {
+    LexemeStore lexemes = context.getLexemes();
+    int count = 0;
+    int l;
+    while ((l = context.nextLexeme()) != QuickSortSet.NONE) {
+      sink.accept(base + lexemes.getBegin(l), lexemes.getLength(l), lexemes.getType(l));
+      count++;
+    }
+    context.reset();
+    return count;
+  }
+
+  /**
+   * 分析下一个词元
+   * @return int 词元编号，输出完毕时返回QuickSortSet.NONE
+   * @throws IOException
+   */
+  private int analyzeNext() throws IOException {
+    int l;
+    while ((l = context.nextLexeme()) == QuickSortSet.NONE) {
+      /*
+       * 从reader中读取数据，填充buffer 如果reader是分次读入buffer的，那么buffer要 进行移位处理 移位处理上次读入的但未处理的数据
+       */
+      int available = this.input == null ? 0 : context.fillBuffer(this.input);
+      if (available <= 0) {
+        // reader已经读完
+        context.reset();
+        return QuickSortSet.NONE;
+      }
+      this.analyzeBuffer();
+    }
+    return l;
+  }
+
+  /**
+   * 切分缓冲区中已读入的字符，结果输出到上下文的结果集
+   */
+  private void analyzeBuffer() {
+    // 初始化指针
+    context.initCursor();
+    do {
+      // 遍历子分词器
+      for (ISegmenter segmenter : segmenters) {
+        segmenter.analyze(context);
+      }
+      // 字符缓冲区接近读完，需要读入新的字符
+      if (context.needRefillBuffer()) {
+        break;
+      }
+      // 向前移动指针
+    } while (context.moveCursor());
+    // 重置子分词器，为下轮循环进行初始化
+    for (ISegmenter segmenter : segmenters) {
+      segmenter.reset();
+    }
+    // 对分词进行歧义处理
+    this.arbitrator.process(context, this.engine.useSmart());
+    // 将分词结果输出到结果集，并处理未切分的单个CJK字符
+    context.outputToResult();
+    // 记录本次分词的缓冲区位移
+    context.markBufferOffset();
+  }
+
+  /**
+   * 重置会话到初始状态，开始切分新的文本
+   * @param input 为null时会话没有输入，next返回null
+   */
+  public void reset(Reader input) {
+    this.input = input;
+    this.token = QuickSortSet.NONE;
+    context.reset();
+    for (ISegmenter segmenter : segmenters) {
+      segmenter.reset();
+    }
+  }
+
+}
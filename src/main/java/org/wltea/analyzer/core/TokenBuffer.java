@@ -0,0 +1,175 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.core;
+
+import java.util.Arrays;
+
+/**
+ * 词元缓冲区
+ * 每个词元的起始位置、长度及类型压缩为一个long，存放在可扩容的long数组中，不创建Lexeme对象及词元文本；
+ * 通过clear重复使用，供词频统计、特征抽取等只需要词元位置的场景使用。
+ * 作为LexemeSink传给segment或nextTokens时，词元追加到缓冲区尾部。
+ *
+ * 压缩格式：高32位为起始位置，第8至31位为长度，低8位为类型
+ */
+public final class TokenBuffer implements LexemeSink {
+
+  // 默认初始容量
+  private static final int DEFAULT_CAPACITY = 64;
+  // 长度占用的位数
+  private static final int LENGTH_BITS = 24;
+  // 类型占用的位数
+  private static final int TYPE_BITS = 8;
+
+  // 压缩后的词元
+  private long[] tokens;
+  // 词元数
+  private int size;
+
+  public TokenBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity 初始容量
+   */
+  public TokenBuffer(int capacity) {
+    this.tokens = new long[Math.max(capacity, 1)];
+  }
+
+  /**
+   * 压缩词元
+   * @param begin 起始位置
+   * @param length 长度，小于2^24
+   * @param type 词元类型，取值为Lexeme中的类型常量
+   * @return long
+   */
+  public static long pack(int begin, int length, int type) {
+    return ((long) begin << (LENGTH_BITS + TYPE_BITS)) | ((long) length << TYPE_BITS) | type;
+  }
+
+  /**
+   * 压缩词元的起始位置
+   * @param token
+   * @return int
+   */
+  public static int begin(long token) {
+    return (int) (token >>> (LENGTH_BITS + TYPE_BITS));
+  }
+
+  /**
+   * 压缩词元的长度
+   * @param token
+   * @return int
+   */
+  public static int length(long token) {
+    return (int) (token >>> TYPE_BITS) & ((1 << LENGTH_BITS) - 1);
+  }
+
+  /**
+   * 压缩词元的类型
+   * @param token
+   * @return int
+   */
+  public static int type(long token) {
+    return (int) token & ((1 << TYPE_BITS) - 1);
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see org.wltea.analyzer.core.LexemeSink#accept(int, int, int)
+   */
+  public void accept(int begin, int length, int type) {
+    if (this.size == this.tokens.length) {
+      this.tokens = Arrays.copyOf(this.tokens, this.size << 1);
+    }
+    this.tokens[this.size++] = pack(begin, length, type);
+  }
+
+  /**
+   * 缓冲区中的词元数
+   * @return int
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * 第index个压缩词元
+   * @param index
+   * @return long
+   */
+  public long get(int index) {
+    if (index >= this.size) {
+      throw new IndexOutOfBoundsException("index=" + index + ", size=" + this.size);
+    }
+    return this.tokens[index];
+  }
+
+  /**
+   * 第index个词元的起始位置
+   * @param index
+   * @return int
+   */
+  public int getBegin(int index) {
+    return begin(this.get(index));
+  }
+
+  /**
+   * 第index个词元的长度
+   * @param index
+   * @return int
+   */
+  public int getLength(int index) {
+    return length(this.get(index));
+  }
+
+  /**
+   * 第index个词元的类型
+   * @param index
+   * @return int
+   */
+  public int getType(int index) {
+    return type(this.get(index));
+  }
+
+  /**
+   * 压缩词元数组，前size()个元素有效
+   * 数组在扩容后更换，不应长期持有
+   * @return long[]
+   */
+  public long[] getTokens() {
+    return this.tokens;
+  }
+
+  /**
+   * 清空缓冲区，保留已分配的数组
+   */
+  public void clear() {
+    this.size = 0;
+  }
+
+}
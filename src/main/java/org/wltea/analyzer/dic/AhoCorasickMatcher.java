@@ -0,0 +1,192 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+/**
+ * 主词典的Aho-Corasick匹配自动机
+ *
+ * 在双数组词典树的转移之上增加失败链接：
+ * 状态s表示已读文本中能在词典树上走通的最长后缀，读入下一个字符时沿失败链接回退直到转移成功。
+ * 每个字符只需推进一个状态，即可得到以该字符结尾的全部词典词，不再为每个起始位置维护一个Hit。
+ *
+ * 自动机持有构建时词典数组的副本，词典更新后需要重新构建；
+ * 状态为int值，可由调用方保存，不产生对象分配。
+ */
+public class AhoCorasickMatcher {
+
+  // 根状态，表示没有正在匹配的词前缀
+  public static final int ROOT = 1;
+
+  // 状态对应一个词典词
+  private static final byte WORD = 1;
+  // 状态或其失败链接上的某个状态还有子节点，即存在尚未结束的词前缀
+  private static final byte OPEN = 2;
+
+  // 双数组转移（副本）
+  private final int[] base;
+  private final int[] check;
+  private final char[] charCodes;
+  // 失败链接：当前状态的最长真后缀所对应的状态
+  private final int[] fail;
+  // 输出链接：失败链接上最近的词典词状态，0表示没有
+  private final int[] output;
+  // 状态深度，即状态所表示的词段长度
+  private final char[] depth;
+  // 状态标志位
+  private final byte[] flags;
+
+  /**
+   * 在双数组词典树上构建失败链接，参数数组由DoubleArrayTrie复制
+   * @param base
+   * @param check
+   * @param charCodes
+   * @param nodeStates
+   * @param firstChild
+   * @param sibling
+   * @param size 已使用的状态数
+   */
+  AhoCorasickMatcher(int[] base, int[] check, char[] charCodes, byte[] nodeStates,
+      char[] firstChild, char[] sibling, int size) {
+    this.base = base;
+    this.check = check;
+    this.charCodes = charCodes;
+    this.fail = new int[size];
+    this.output = new int[size];
+    this.depth = new char[size];
+    this.flags = new byte[size];
+
+    // 按层次遍历，父状态的失败链接总是先于子状态确定
+    int[] queue = new int[size];
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = ROOT;
+    this.fail[ROOT] = ROOT;
+    while (head < tail) {
+      int state = queue[head++];
+      int b = base[state];
+      for (char code = firstChild[state]; code != 0; code = sibling[b + code]) {
+        int child = b + code;
+        int f = ROOT;
+        if (state != ROOT) {
+          // 沿父状态的失败链接寻找能接受当前字符的后缀
+          f = this.fail[state];
+          int next;
+          while ((next = this.delta(f, code)) == 0 && f != ROOT) {
+            f = this.fail[f];
+          }
+          if (next != 0) {
+            f = next;
+          }
+        }
+        this.fail[child] = f;
+        this.output[child] = (this.flags[f] & WORD) != 0 ? f : this.output[f];
+        this.depth[child] = (char) (this.depth[state] + 1);
+        byte flag = (this.flags[f] & OPEN) != 0 || firstChild[child] != 0 ? OPEN : 0;
+        if (nodeStates[child] == 1) {
+          flag |= WORD;
+        }
+        this.flags[child] = flag;
+        queue[tail++] = child;
+      }
+    }
+  }
+
+  /**
+   * 读入一个字符，返回新的状态
+   * @param state 当前状态
+   * @param c 字符
+   * @return int 新状态，没有可继续匹配的后缀时返回ROOT
+   */
+  public int next(int state, char c) {
+    int code = this.charCodes[c];
+    if (code == 0) {
+      // 字符不在词典中，任何后缀都无法继续
+      return ROOT;
+    }
+    int next;
+    while ((next = this.delta(state, code)) == 0) {
+      if (state == ROOT) {
+        return ROOT;
+      }
+      state = this.fail[state];
+    }
+    return next;
+  }
+
+  /**
+   * 返回以当前位置结尾的最长词典词
+   * @param state
+   * @return int 词典词状态，没有返回0
+   */
+  public int longestWord(int state) {
+    return (this.flags[state] & WORD) != 0 ? state : this.output[state];
+  }
+
+  /**
+   * 返回以同一位置结尾的下一个较短的词典词
+   * @param wordState
+   * @return int 词典词状态，没有返回0
+   */
+  public int shorterWord(int wordState) {
+    return this.output[wordState];
+  }
+
+  /**
+   * 返回词典词的长度
+   * @param wordState
+   * @return int
+   */
+  public int wordLength(int wordState) {
+    return this.depth[wordState];
+  }
+
+  /**
+   * 判断是否还有尚未结束的词前缀
+   * 返回false时后续匹配与当前状态无关，可以回到ROOT
+   * @param state
+   * @return boolean
+   */
+  public boolean isOpen(int state) {
+    return (this.flags[state] & OPEN) != 0;
+  }
+
+  /**
+   * 双数组上的单步转移
+   * @return int 子状态，没有返回0
+   */
+  private int delta(int state, int code) {
+    int b = this.base[state];
+    if (b == 0) {
+      return 0;
+    }
+    int next = b + code;
+    if (next < this.check.length && this.check[next] == state) {
+      return next;
+    }
+    return 0;
+  }
+
+}
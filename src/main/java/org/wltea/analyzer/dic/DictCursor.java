@@ -0,0 +1,251 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.Arrays;
+
+/**
+ * 词典游标
+ * 以定长数组的槽位记录从不同位置开始、尚未结束的词前缀，每读入一个字符，
+ * 推进全部词前缀，并从当前字符开始一个新的词前缀，匹配过程不创建Hit等临时对象。
+ * 各词典树实现把自己的匹配状态保存在槽位的nodes（节点引用）及states（整数状态）中。
+ *
+ * 游标不是线程安全的，由每个子分词器各自持有
+ */
+public final class DictCursor {
+
+  // 匹配结果位：完全匹配
+  public static final int MATCH = 0x01;
+  // 匹配结果位：词前缀
+  public static final int PREFIX = 0x02;
+
+  // 槽位的初始容量，超过时加倍
+  private static final int INITIAL_CAPACITY = 16;
+
+  // 游标所属的词典，为null时固定使用trie
+  private final Dictionary dictionary;
+  // 匹配的词典（Dictionary.WORD_MAIN 或 WORD_QUANTIFIER）
+  private final int dictType;
+  // 未绑定词典时使用的词典树
+  private final DictTrie trie;
+
+  // 各槽位继续匹配使用的词典树
+  private DictTrie[] tries;
+  // 各槽位的节点引用（对象树的当前节点等）
+  Object[] nodes;
+  // 各槽位的整数状态（双数组树状态、自动机节点地址、边标签位置等）
+  int[] states;
+  // 各槽位本次匹配到的词的标志位，没有标志位时为0
+  int[] wordFlags;
+  // 各槽位词前缀的开始位置
+  int[] begins;
+  // 未结束的词前缀数目
+  private int size;
+
+  // 叠加词典树匹配基础词典一侧时使用的游标，槽位与本游标一一对应
+  private DictCursor companion;
+  // 词典树实现自行使用的临时对象（如FST的弧），owner为创建该对象的词典树
+  Object scratch;
+  DictTrie scratchOwner;
+
+  // 以当前字符结尾的词的开始位置及标志位，由长到短
+  private int[] matchBegins;
+  private int[] matchFlags;
+  private int matchCount;
+
+  /**
+   * 创建绑定词典的游标，每个新的词前缀使用词典的最新一代
+   * @param dictionary
+   * @param dictType Dictionary.WORD_MAIN 或 WORD_QUANTIFIER
+   */
+  DictCursor(Dictionary dictionary, int dictType) {
+    this(dictionary, dictType, null);
+  }
+
+  /**
+   * 创建固定使用一棵词典树的游标
+   * @param trie
+   */
+  DictCursor(DictTrie trie) {
+    this(null, 0, trie);
+  }
+
+  private DictCursor(Dictionary dictionary, int dictType, DictTrie trie) {
+    this.dictionary = dictionary;
+    this.dictType = dictType;
+    this.trie = trie;
+    this.tries = new DictTrie[INITIAL_CAPACITY];
+    this.nodes = new Object[INITIAL_CAPACITY];
+    this.states = new int[INITIAL_CAPACITY];
+    this.wordFlags = new int[INITIAL_CAPACITY];
+    this.begins = new int[INITIAL_CAPACITY];
+    this.matchBegins = new int[INITIAL_CAPACITY];
+    this.matchFlags = new int[INITIAL_CAPACITY];
+  }
+
+  /**
+   * 读入一个字符：推进全部未结束的词前缀，并从该字符开始一个新的词前缀
+   * @param charArray
+   * @param currentIndex 字符位置
+   * @return int 以该字符结尾的词的数目，通过getMatchBegin、getMatchFlags取得
+   */
+  public int advance(char[] charArray, int currentIndex) {
+    this.matchCount = 0;
+    int kept = 0;
+    for (int slot = 0; slot < this.size; slot++) {
+      int result = this.tries[slot].matchWithCursor(this, slot, charArray, currentIndex);
+      if ((result & MATCH) != 0) {
+        this.addMatch(this.begins[slot], this.wordFlags[slot]);
+      }
+      if ((result & PREFIX) != 0) {
+        // 仍是词前缀，保留槽位
+        if (kept != slot) {
+          this.move(slot, kept);
+        }
+        kept++;
+      }
+    }
+    this.size = kept;
+
+    // 从当前字符开始新的词前缀
+    this.ensureCapacity(kept + 1);
+    DictTrie rootTrie = this.dictionary != null ? this.dictionary.cursorTrie(this.dictType)
+        : this.trie;
+    this.tries[kept] = rootTrie;
+    this.begins[kept] = currentIndex;
+    rootTrie.rootCursor(this, kept);
+    int result = rootTrie.matchWithCursor(this, kept, charArray, currentIndex);
+    if ((result & MATCH) != 0) {
+      this.addMatch(currentIndex, this.wordFlags[kept]);
+    }
+    if ((result & PREFIX) != 0) {
+      this.size++;
+    }
+    return this.matchCount;
+  }
+
+  /**
+   * 以当前字符结尾的第i个词的开始位置
+   * @param i
+   * @return int
+   */
+  public int getMatchBegin(int i) {
+    return this.matchBegins[i];
+  }
+
+  /**
+   * 以当前字符结尾的第i个词的标志位，含义与Hit.getWordFlags相同
+   * @param i
+   * @return int
+   */
+  public int getMatchFlags(int i) {
+    return this.matchFlags[i];
+  }
+
+  /**
+   * 是否有未结束的词前缀
+   * @return boolean
+   */
+  public boolean hasPrefix() {
+    return this.size > 0;
+  }
+
+  /**
+   * 清空全部词前缀
+   */
+  public void reset() {
+    this.clear(this.size);
+    this.size = 0;
+    this.matchCount = 0;
+  }
+
+  /**
+   * 释放前count个槽位对词典树节点的引用
+   */
+  private void clear(int count) {
+    Arrays.fill(this.tries, 0, count, null);
+    Arrays.fill(this.nodes, 0, count, null);
+    if (this.companion != null) {
+      this.companion.clear(count);
+    }
+  }
+
+  /**
+   * 叠加词典树匹配基础词典一侧时使用的游标
+   * @return DictCursor
+   */
+  DictCursor companion() {
+    if (this.companion == null) {
+      this.companion = new DictCursor(null, 0, null);
+      this.companion.ensureCapacity(this.nodes.length);
+    }
+    return this.companion;
+  }
+
+  private void addMatch(int begin, int flags) {
+    if (this.matchCount == this.matchBegins.length) {
+      this.matchBegins = Arrays.copyOf(this.matchBegins, this.matchCount << 1);
+      this.matchFlags = Arrays.copyOf(this.matchFlags, this.matchCount << 1);
+    }
+    this.matchBegins[this.matchCount] = begin;
+    this.matchFlags[this.matchCount] = flags;
+    this.matchCount++;
+  }
+
+  /**
+   * 将槽位from的状态移动到槽位to
+   */
+  private void move(int from, int to) {
+    this.tries[to] = this.tries[from];
+    this.nodes[to] = this.nodes[from];
+    this.states[to] = this.states[from];
+    this.wordFlags[to] = this.wordFlags[from];
+    this.begins[to] = this.begins[from];
+    this.tries[from] = null;
+    this.nodes[from] = null;
+    if (this.companion != null) {
+      this.companion.move(from, to);
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    int length = this.nodes.length;
+    if (capacity > length) {
+      while (length < capacity) {
+        length <<= 1;
+      }
+      this.tries = Arrays.copyOf(this.tries, length);
+      this.nodes = Arrays.copyOf(this.nodes, length);
+      this.states = Arrays.copyOf(this.states, length);
+      this.wordFlags = Arrays.copyOf(this.wordFlags, length);
+      this.begins = Arrays.copyOf(this.begins, length);
+    }
+    if (this.companion != null) {
+      this.companion.ensureCapacity(capacity);
+    }
+  }
+
+}
@@ -0,0 +1,277 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 词典文件并行加载
+ *
+ * 每个词典文件由一个线程整体读入字节缓冲区，用CharsetDecoder一次解码后按行切分，
+ * 词条处理方式与逐行读取时一致（去除首尾空白并转为小写）。
+ * 对象树按首字划分为互不相交的分枝，各分枝由不同线程无锁构建后挂到根节点下。
+ */
+class DictFileLoader {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  // 读取缓冲区的初始大小
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // 并行线程数
+  private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+  private DictFileLoader() {
+  }
+
+  /**
+   * 并行读取多个词典文件
+   * @param dictFiles 相对类加载器的词典路径
+   * @return List<List<char[]>> 与dictFiles一一对应的词条列表，文件不存在时为null
+   */
+  static List<List<char[]>> readAll(List<String> dictFiles) {
+    List<Callable<List<char[]>>> tasks = new ArrayList<Callable<List<char[]>>>(dictFiles.size());
+    for (final String dictFile : dictFiles) {
+      tasks.add(new Callable<List<char[]>>() {
+        public List<char[]> call() {
+          return read(dictFile);
+        }
+      });
+    }
+    return invokeAll(tasks);
+  }
+
+  /**
+   * 读取一个词典文件
+   * @param dictFile 相对类加载器的词典路径
+   * @return List<char[]> 文件不存在时返回null，读取出错时返回已读取的词条
+   */
+  static List<char[]> read(String dictFile) {
+    InputStream is = DictFileLoader.class.getClassLoader().getResourceAsStream(dictFile);
+    if (is == null) {
+      return null;
+    }
+    List<char[]> words = new ArrayList<char[]>();
+    try {
+      readWords(is, words);
+    } catch (IOException ioe) {
+      System.err.println("Dictionary loading exception: " + dictFile);
+      ioe.printStackTrace();
+    } finally {
+      try {
+        is.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    return words;
+  }
+
+  /**
+   * 整体读入并解码词典流，逐行取出词条
+   * 与BufferedReader.readLine相同，以\n、\r或\r\n分行；无法解码的字节替换为U+FFFD
+   * @param is
+   * @param words 读取的词条
+   * @throws IOException
+   */
+  static void readWords(InputStream is, List<char[]> words) throws IOException {
+    ReadableByteChannel channel = Channels.newChannel(is);
+    ByteBuffer bytes = ByteBuffer.allocate(Math.max(is.available() + 1, BUFFER_SIZE));
+    while (channel.read(bytes) >= 0) {
+      if (!bytes.hasRemaining()) {
+        ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2);
+        bytes.flip();
+        larger.put(bytes);
+        bytes = larger;
+      }
+    }
+    bytes.flip();
+    CharBuffer chars = UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE).decode(bytes);
+
+    char[] buf = chars.array();
+    int end = chars.arrayOffset() + chars.limit();
+    int lineStart = chars.arrayOffset();
+    for (int i = lineStart; i < end; i++) {
+      char c = buf[i];
+      if (c == '\n' || c == '\r') {
+        addWord(buf, lineStart, i, words);
+        if (c == '\r' && i + 1 < end && buf[i + 1] == '\n') {
+          i++;
+        }
+        lineStart = i + 1;
+      }
+    }
+    addWord(buf, lineStart, end, words);
+  }
+
+  /**
+   * 去除一行的首尾空白并转为小写，空行忽略
+   */
+  private static void addWord(char[] buf, int begin, int end, List<char[]> words) {
+    while (begin < end && buf[begin] <= ' ') {
+      begin++;
+    }
+    while (end > begin && buf[end - 1] <= ' ') {
+      end--;
+    }
+    if (begin == end) {
+      return;
+    }
+    for (int i = begin; i < end; i++) {
+      char c = buf[i];
+      if (Character.toLowerCase(c) != c || Character.isSurrogate(c)) {
+        // 含有大写字母时按String.toLowerCase处理，保持与区域设置及增补字符相关的规则一致
+        words.add(new String(buf, begin, end - begin).toLowerCase().toCharArray());
+        return;
+      }
+    }
+    char[] word = new char[end - begin];
+    System.arraycopy(buf, begin, word, 0, word.length);
+    words.add(word);
+  }
+
+  /**
+   * 并行构建对象树
+   * 词条按首字计数排序后，首字相同的词条相邻；按首字边界切分为若干段，
+   * 各段的分枝互不相交，可以无锁并行构建。词条不需要完全有序，重复的词条不影响结果
+   * @param words 词条列表
+   * @return DictSegment 根节点
+   */
+  static DictSegment buildTrie(List<char[]> words) {
+    // 按首字计数排序
+    int[] starts = new int[Character.MAX_VALUE + 2];
+    int size = 0;
+    for (char[] word : words) {
+      if (word.length > 0) {
+        starts[word[0] + 1]++;
+        size++;
+      }
+    }
+    for (int c = 1; c < starts.length; c++) {
+      starts[c] += starts[c - 1];
+    }
+    final char[][] grouped = new char[size][];
+    for (char[] word : words) {
+      if (word.length > 0) {
+        grouped[starts[word[0]]++] = word;
+      }
+    }
+
+    int chunkSize = Math.max(1, size / (PARALLELISM * 4));
+    List<Callable<List<DictSegment>>> tasks = new ArrayList<Callable<List<DictSegment>>>();
+    int from = 0;
+    while (from < size) {
+      // 段的结尾对齐到首字边界
+      int to = Math.min(from + chunkSize, size);
+      while (to < size && grouped[to][0] == grouped[to - 1][0]) {
+        to++;
+      }
+      final int begin = from;
+      final int end = to;
+      tasks.add(new Callable<List<DictSegment>>() {
+        public List<DictSegment> call() {
+          List<DictSegment> branches = new ArrayList<DictSegment>();
+          int i = begin;
+          while (i < end) {
+            int j = i + 1;
+            while (j < end && grouped[j][0] == grouped[i][0]) {
+              j++;
+            }
+            branches.add(DictSegment.buildBranch(grouped, i, j));
+            i = j;
+          }
+          return branches;
+        }
+      });
+      from = to;
+    }
+
+    DictSegment root = new DictSegment((char) 0);
+    for (List<DictSegment> branches : invokeAll(tasks)) {
+      for (DictSegment branch : branches) {
+        root.addBranch(branch);
+      }
+    }
+    return root;
+  }
+
+  /**
+   * 执行全部任务并按提交顺序返回结果
+   * 单核或只有一个任务时在当前线程执行
+   */
+  private static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+    List<T> results = new ArrayList<T>(tasks.size());
+    try {
+      if (PARALLELISM == 1 || tasks.size() <= 1) {
+        for (Callable<T> task : tasks) {
+          results.add(task.call());
+        }
+        return results;
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(Math.min(PARALLELISM,
+        tasks.size()), new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "IK-DictFileLoader");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      try {
+        for (Future<T> future : executor.invokeAll(tasks)) {
+          results.add(future.get());
+        }
+      } finally {
+        executor.shutdown();
+      }
+      return results;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Dictionary loading interrupted.", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Dictionary loading exception.", e.getCause());
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException("Dictionary loading exception.", e);
+    }
+  }
+
+}
@@ -0,0 +1,371 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扩展词典及扩展停止词典的热加载服务
+ *
+ * 使用WatchService监视IKAnalyzer.cfg.xml中ext_dict、ext_stopwords配置的文件，
+ * 文件变化后重新读取该文件，与上次的内容比较得出新增及删除的词条，
+ * 只将差异以写时复制方式应用到词典，正在进行的分词不受影响。
+ * 只能监视位于文件系统目录中的词典文件，jar包内的词典文件将被忽略。
+ *
+ * 删除的扩展词只有在其他扩展词典、主词典及扩展词来源中都不存在时才会被屏蔽；
+ * 删除的停止词只有在其他扩展停止词典（包括未被监视的）中都不存在时才会被屏蔽。
+ */
+public class DictReloader implements Closeable {
+
+  // 合并连续文件事件的等待时间，编辑器保存文件时通常产生多个事件
+  private static final long DEBOUNCE_MILLIS = 100;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // 需要更新的词典
+  private final Dictionary dictionary;
+  // 扩展词典文件 ---> 上次加载的词条
+  private final Map<Path, Set<String>> extWords;
+  // 扩展停止词典文件 ---> 上次加载的词条
+  private final Map<Path, Set<String>> stopWords;
+
+  private final WatchService watchService;
+  private final Thread thread;
+
+  // 已应用到词典的热加载次数
+  private volatile long reloadCount;
+  // 最近一次热加载的延迟：从收到文件事件到新词典发布
+  private volatile long lastReloadMillis;
+  // 全部热加载的延迟之和
+  private volatile long totalReloadMillis;
+
+  /**
+   * 监视配置的扩展词典及扩展停止词典
+   * @param dictionary
+   * @param extDictFiles 扩展词典路径（相对类加载器）
+   * @param extStopWordDictFiles 扩展停止词典路径（相对类加载器）
+   * @throws IOException
+   */
+  DictReloader(Dictionary dictionary, List<String> extDictFiles, List<String> extStopWordDictFiles)
+      throws IOException {
+    this(dictionary, resolve(extDictFiles), resolve(extStopWordDictFiles));
+  }
+
+  /**
+   * 监视指定的词典文件
+   * @param dictionary
+   * @param extDictPaths 扩展词典文件
+   * @param extStopWordDictPaths 扩展停止词典文件
+   * @throws IOException
+   */
+  DictReloader(Dictionary dictionary, Set<Path> extDictPaths, Set<Path> extStopWordDictPaths)
+      throws IOException {
+    this.dictionary = dictionary;
+    this.extWords = new HashMap<Path, Set<String>>();
+    this.stopWords = new HashMap<Path, Set<String>>();
+    this.watchService = FileSystems.getDefault().newWatchService();
+    try {
+      Set<Path> dirs = new HashSet<Path>();
+      for (Path path : extDictPaths) {
+        this.extWords.put(path, readWords(path));
+        dirs.add(path.getParent());
+      }
+      for (Path path : extStopWordDictPaths) {
+        this.stopWords.put(path, readWords(path));
+        dirs.add(path.getParent());
+      }
+      // WatchService只能监视目录
+      for (Path dir : dirs) {
+        dir.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+      }
+    } catch (IOException e) {
+      this.watchService.close();
+      throw e;
+    }
+
+    this.thread = new Thread(new Runnable() {
+      public void run() {
+        watch();
+      }
+    }, "IK-DictReloader");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * 启动监视线程
+   */
+  void start() {
+    this.thread.start();
+  }
+
+  /**
+   * 停止监视
+   */
+  public void close() throws IOException {
+    this.watchService.close();
+    this.thread.interrupt();
+  }
+
+  /**
+   * 返回已应用到词典的热加载次数，文件内容没有变化的事件不计入
+   * @return long
+   */
+  public long getReloadCount() {
+    return this.reloadCount;
+  }
+
+  /**
+   * 返回最近一次热加载的延迟（毫秒），从收到文件事件到新词典发布
+   * @return long
+   */
+  public long getLastReloadMillis() {
+    return this.lastReloadMillis;
+  }
+
+  /**
+   * 返回全部热加载的延迟之和（毫秒），与getReloadCount一起可以计算平均延迟
+   * @return long
+   */
+  public long getTotalReloadMillis() {
+    return this.totalReloadMillis;
+  }
+
+  /**
+   * 监视线程主循环
+   */
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = this.watchService.take();
+        long start = System.nanoTime();
+        Set<Path> changed = new LinkedHashSet<Path>();
+        // 合并短时间内的后续事件
+        while (key != null) {
+          this.collect(key, changed);
+          key = this.watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (changed.isEmpty()) {
+          continue;
+        }
+        try {
+          if (!this.reload(changed)) {
+            // 文件内容没有变化
+            continue;
+          }
+        } catch (IOException ioe) {
+          System.err.println("Dictionary reloading exception.");
+          ioe.printStackTrace();
+          continue;
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        this.lastReloadMillis = millis;
+        this.totalReloadMillis += millis;
+        this.reloadCount++;
+      }
+    } catch (InterruptedException e) {
+      // 停止监视
+    } catch (ClosedWatchServiceException e) {
+      // 停止监视
+    }
+  }
+
+  /**
+   * 取出事件中被监视的词典文件
+   * @param key
+   * @param changed
+   */
+  private void collect(WatchKey key, Set<Path> changed) {
+    Path dir = (Path) key.watchable();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // 事件丢失，重新检查全部文件
+        changed.addAll(this.extWords.keySet());
+        changed.addAll(this.stopWords.keySet());
+        continue;
+      }
+      Path path = dir.resolve((Path) event.context());
+      if (this.extWords.containsKey(path) || this.stopWords.containsKey(path)) {
+        changed.add(path);
+      }
+    }
+    key.reset();
+  }
+
+  /**
+   * 重新读取变化的文件，计算差异并应用到词典
+   * @param changed 变化的词典文件
+   * @return boolean 词条有变化并已应用到词典时返回true
+   * @throws IOException
+   */
+  boolean reload(Set<Path> changed) throws IOException {
+    List<char[]> addedWords = new ArrayList<char[]>();
+    Set<String> removedWords = new HashSet<String>();
+    List<char[]> addedStopWords = new ArrayList<char[]>();
+    Set<String> removedStopWords = new HashSet<String>();
+    for (Path path : changed) {
+      if (this.extWords.containsKey(path)) {
+        for (String word : this.diff(this.extWords, path, addedWords)) {
+          removedWords.add(word);
+        }
+      }
+      if (this.stopWords.containsKey(path)) {
+        for (String word : this.diff(this.stopWords, path, addedStopWords)) {
+          removedStopWords.add(word);
+        }
+      }
+    }
+    // 主词典、其他扩展词典及扩展词来源中的词不能因扩展词典的删除而被屏蔽
+    if (!removedWords.isEmpty()) {
+      this.dictionary.excludeDictFileWords(removedWords);
+      DictionarySourcePoller sourcePoller = this.dictionary.getSourcePoller();
+      if (sourcePoller != null) {
+        sourcePoller.excludeSourceWords(removedWords);
+      }
+    }
+    // 其他扩展停止词典中的词，包括未被监视的jar包中的词典，不能因停止词典的删除而被屏蔽
+    if (!removedStopWords.isEmpty()) {
+      this.dictionary.excludeStopWordFileWords(removedStopWords);
+    }
+    List<char[]> disabledWords = Dictionary.toCharArrays(removedWords);
+    List<char[]> disabledStopWords = Dictionary.toCharArrays(removedStopWords);
+    if (addedWords.isEmpty() && disabledWords.isEmpty() && addedStopWords.isEmpty()
+        && disabledStopWords.isEmpty()) {
+      return false;
+    }
+    this.dictionary.update(addedWords, disabledWords, addedStopWords, disabledStopWords);
+    return true;
+  }
+
+  /**
+   * 重新读取一个词典文件，并与同类的其他词典文件比较
+   * @param files 同类词典文件 ---> 上次加载的词条
+   * @param path 变化的文件
+   * @param added 输出：新增的词条
+   * @return Set<String> 删除的词条
+   * @throws IOException
+   */
+  private Set<String> diff(Map<Path, Set<String>> files, Path path, List<char[]> added)
+      throws IOException {
+    Set<String> oldWords = files.get(path);
+    Set<String> newWords = Files.exists(path) ? readWords(path) : new HashSet<String>();
+    files.put(path, newWords);
+    for (String word : newWords) {
+      if (!oldWords.contains(word) && !this.containsElsewhere(files, path, word)) {
+        added.add(word.toCharArray());
+      }
+    }
+    Set<String> removed = new HashSet<String>();
+    for (String word : oldWords) {
+      if (!newWords.contains(word) && !this.containsElsewhere(files, path, word)) {
+        removed.add(word);
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * 判断词条是否在同类的其他词典文件中
+   */
+  private boolean containsElsewhere(Map<Path, Set<String>> files, Path path, String word) {
+    for (Map.Entry<Path, Set<String>> entry : files.entrySet()) {
+      if (!entry.getKey().equals(path) && entry.getValue().contains(word)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 读取词典文件的全部词条，处理方式与Dictionary加载词典时一致
+   * @param path
+   * @return Set<String>
+   * @throws IOException
+   */
+  private static Set<String> readWords(Path path) throws IOException {
+    Set<String> words = new HashSet<String>();
+    BufferedReader br = Files.newBufferedReader(path, UTF_8);
+    try {
+      String theWord;
+      while ((theWord = br.readLine()) != null) {
+        if (!"".equals(theWord.trim())) {
+          words.add(theWord.trim().toLowerCase());
+        }
+      }
+    } finally {
+      br.close();
+    }
+    return words;
+  }
+
+  /**
+   * 将相对类加载器的词典路径解析为文件系统中的文件
+   * @param dictFiles
+   * @return Set<Path>
+   */
+  private static Set<Path> resolve(List<String> dictFiles) {
+    Set<Path> paths = new LinkedHashSet<Path>();
+    if (dictFiles == null) {
+      return paths;
+    }
+    for (String dictFile : dictFiles) {
+      URL url = DictReloader.class.getClassLoader().getResource(dictFile);
+      if (url == null || !"file".equals(url.getProtocol())) {
+        System.out.println("无法监视词典文件：" + dictFile);
+        continue;
+      }
+      try {
+        paths.add(Paths.get(url.toURI()).toAbsolutePath().normalize());
+      } catch (URISyntaxException e) {
+        System.out.println("无法监视词典文件：" + dictFile);
+      }
+    }
+    return paths;
+  }
+
+}
@@ -25,42 +25,47 @@
  */
 package org.wltea.analyzer.dic;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 /**
  * 词典树分段，表示词典树的一个分枝
  */
-class DictSegment implements Comparable<DictSegment> {
+class DictSegment implements DictTrie {
 
-  // 公用字典表，存储汉字
-  private static final Map<Character, Character> charMap = new HashMap<Character, Character>(16,
-      0.95f);
   // 数组大小上限
   private static final int ARRAY_LENGTH_LIMIT = 3;
-
-  // Map存储结构
-  private Map<Character, DictSegment> childrenMap;
-  // 数组方式存储结构
-  private DictSegment[] childrenArray;
+  // 散列表的初始容量，必须是2的幂
+  private static final int TABLE_INITIAL_CAPACITY = 8;
+  // 散列表容量上限，超过后改用以字符为下标的直接寻址表
+  private static final int TABLE_CAPACITY_LIMIT = 4096;
+  // 直接寻址表的长度，覆盖全部BMP字符
+  private static final int DIRECT_TABLE_LENGTH = Character.MAX_VALUE + 1;
+
+  // 子节点存储结构
+  // 子节点数 <=ARRAY_LENGTH_LIMIT 时为恰好容纳全部子节点的数组，顺序查找；
+  // 超过后为以子节点字符为键的开放寻址散列表（线性探测），长度为2的幂且大于ARRAY_LENGTH_LIMIT；
+  // 散列表容量超过TABLE_CAPACITY_LIMIT后为长度DIRECT_TABLE_LENGTH、以字符为下标的直接寻址表。
+  // 两种结构只由数组长度区分，查询时只需读取一次引用，不需要装箱及创建临时对象
+  private DictSegment[] children;
 
   // 当前节点上存储的字符
-  private Character nodeChar;
+  private final char nodeChar;
   // 当前节点存储的Segment数目
-  // storeSize <=ARRAY_LENGTH_LIMIT ，使用数组存储， storeSize >ARRAY_LENGTH_LIMIT ,则使用Map存储
   private int storeSize = 0;
-  // 当前DictSegment状态 ,默认 0 , 1表示从根节点到当前节点的路径表示一个词
+  // 当前DictSegment状态 ,默认 0 , 为从根节点到当前节点的路径所表示的词的标志位组合
+  // Dictionary.WORD_MAIN（=1）表示主词典中的词，合并词典树中还使用量词、停止词及用户标签位
   private int nodeState = 0;
+  // 子树中（不含当前节点）各词的标志位的并集，标志位对应的词典以此判断是否为词前缀
+  private int childFlags = 0;
 
-  DictSegment(Character nodeChar) {
-    if (nodeChar == null) {
-      throw new IllegalArgumentException("参数为空异常，字符不能为空");
-    }
+  DictSegment(char nodeChar) {
     this.nodeChar = nodeChar;
   }
 
-  Character getNodeChar() {
+  char getNodeChar() {
     return nodeChar;
   }
 
@@ -87,10 +92,72 @@ class DictSegment implements Comparable<DictSegment> {
    * @param length
    * @return Hit 
    */
-  Hit match(char[] charArray, int begin, int length) {
+  public Hit match(char[] charArray, int begin, int length) {
     return this.match(charArray, begin, length, null);
   }
 
+  /**
+   * 从当前节点继续匹配一个字符
+   * matchedHit中记录的DictSegment即为当前节点
+   * @param charArray
+   * @param currentIndex
+   * @param matchedHit
+   * @return Hit
+   */
+  public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+    return this.match(charArray, currentIndex, 1, matchedHit);
+  }
+
+  public void rootCursor(DictCursor cursor, int slot) {
+    cursor.nodes[slot] = this;
+  }
+
+  public int matchWithCursor(DictCursor cursor, int slot, char[] charArray, int currentIndex) {
+    return matchWithCursor(cursor, slot, charArray[currentIndex], Dictionary.WORD_MAIN);
+  }
+
+  /**
+   * 按指定标志位从游标槽位记录的节点继续匹配一个字符
+   * @param cursor
+   * @param slot
+   * @param keyChar
+   * @param flag 词的标志位
+   * @return int DictCursor.MATCH、DictCursor.PREFIX的组合
+   */
+  static int matchWithCursor(DictCursor cursor, int slot, char keyChar, int flag) {
+    DictSegment ds = ((DictSegment) cursor.nodes[slot]).lookforSegment(keyChar);
+    if (ds == null) {
+      cursor.wordFlags[slot] = 0;
+      return 0;
+    }
+    int result = 0;
+    if ((ds.nodeState & flag) != 0) {
+      result |= DictCursor.MATCH;
+    }
+    cursor.wordFlags[slot] = ds.nodeState;
+    if ((ds.childFlags & flag) != 0) {
+      result |= DictCursor.PREFIX;
+      cursor.nodes[slot] = ds;
+    }
+    return result;
+  }
+
+  /**
+   * 判断词段是否为带有指定标志位的词，不创建Hit
+   * @param charArray
+   * @param begin
+   * @param length
+   * @param flag 词的标志位
+   * @return boolean
+   */
+  boolean isWord(char[] charArray, int begin, int length, int flag) {
+    DictSegment ds = this;
+    for (int i = begin; i < begin + length && ds != null; i++) {
+      ds = ds.lookforSegment(charArray[i]);
+    }
+    return ds != null && (ds.nodeState & flag) != 0;
+  }
+
   /**
    * 匹配词段
    * @param charArray
@@ -100,6 +167,20 @@ class DictSegment implements Comparable<DictSegment> {
    * @return Hit 
    */
   Hit match(char[] charArray, int begin, int length, Hit searchHit) {
+    return this.match(charArray, begin, length, searchHit, Dictionary.WORD_MAIN);
+  }
+
+  /**
+   * 按指定标志位匹配词段
+   * 完全匹配及前缀匹配都只考虑带有该标志位的词
+   * @param charArray
+   * @param begin
+   * @param length
+   * @param searchHit
+   * @param flag 词的标志位
+   * @return Hit
+   */
+  Hit match(char[] charArray, int begin, int length, Hit searchHit, int flag) {
 
     if (searchHit == null) {
       // 如果hit为空，新建
@@ -113,40 +194,23 @@ class DictSegment implements Comparable<DictSegment> {
     // 设置hit的当前处理位置
     searchHit.setEnd(begin);
 
-    Character keyChar = new Character(charArray[begin]);
-    DictSegment ds = null;
-
-    // 引用实例变量为本地变量，避免查询时遇到更新的同步问题
-    DictSegment[] segmentArray = this.childrenArray;
-    Map<Character, DictSegment> segmentMap = this.childrenMap;
-
     // STEP1 在节点中查找keyChar对应的DictSegment
-    if (segmentArray != null) {
-      // 在数组中查找
-      DictSegment keySegment = new DictSegment(keyChar);
-      int position = Arrays.binarySearch(segmentArray, 0, this.storeSize, keySegment);
-      if (position >= 0) {
-        ds = segmentArray[position];
-      }
-
-    } else if (segmentMap != null) {
-      // 在map中查找
-      ds = (DictSegment) segmentMap.get(keyChar);
-    }
+    DictSegment ds = this.lookforSegment(charArray[begin]);
 
     // STEP2 找到DictSegment，判断词的匹配状态，是否继续递归，还是返回结果
     if (ds != null) {
       if (length > 1) {
         // 词未匹配完，继续往下搜索
-        return ds.match(charArray, begin + 1, length - 1, searchHit);
+        return ds.match(charArray, begin + 1, length - 1, searchHit, flag);
       } else if (length == 1) {
 
         // 搜索最后一个char
-        if (ds.nodeState == 1) {
+        if ((ds.nodeState & flag) != 0) {
           // 添加HIT状态为完全匹配
           searchHit.setMatch();
         }
-        if (ds.hasNextNode()) {
+        searchHit.setWordFlags(ds.nodeState);
+        if ((ds.childFlags & flag) != 0) {
           // 添加HIT状态为前缀匹配
           searchHit.setPrefix();
           // 记录当前位置的DictSegment
@@ -164,16 +228,34 @@ class DictSegment implements Comparable<DictSegment> {
    * 加载填充词典片段
    * @param charArray
    */
-  void fillSegment(char[] charArray) {
-    this.fillSegment(charArray, 0, charArray.length, 1);
+  public void fillSegment(char[] charArray) {
+    this.fillSegment(charArray, 0, charArray.length, 1, Dictionary.WORD_MAIN);
+  }
+
+  /**
+   * 加载填充词典片段，并设置词的标志位
+   * @param charArray
+   * @param flags 标志位
+   */
+  void fillSegment(char[] charArray, int flags) {
+    this.fillSegment(charArray, 0, charArray.length, 1, flags);
   }
 
   /**
    * 屏蔽词典中的一个词
    * @param charArray
    */
-  void disableSegment(char[] charArray) {
-    this.fillSegment(charArray, 0, charArray.length, 0);
+  public void disableSegment(char[] charArray) {
+    this.fillSegment(charArray, 0, charArray.length, 0, Dictionary.WORD_MAIN);
+  }
+
+  /**
+   * 清除词的标志位
+   * @param charArray
+   * @param flags 标志位
+   */
+  void disableSegment(char[] charArray, int flags) {
+    this.fillSegment(charArray, 0, charArray.length, 0, flags);
   }
 
   /**
@@ -182,146 +264,278 @@ class DictSegment implements Comparable<DictSegment> {
    * @param begin
    * @param length
    * @param enabled
+   * @param flags 设置或清除的标志位
    */
-  private synchronized void fillSegment(char[] charArray, int begin, int length, int enabled) {
-    // 获取字典表中的汉字对象
-    Character beginChar = new Character(charArray[begin]);
-    Character keyChar = charMap.get(beginChar);
-    // 字典中没有该字，则将其添加入字典
-    if (keyChar == null) {
-      charMap.put(beginChar, beginChar);
-      keyChar = beginChar;
-    }
-
-    // 搜索当前节点的存储，查询对应keyChar的keyChar，如果没有则创建
-    DictSegment ds = lookforSegment(keyChar, enabled);
+  private synchronized void fillSegment(char[] charArray, int begin, int length, int enabled,
+      int flags) {
+    // 搜索当前节点的存储，查询对应keyChar的segment，如果没有则创建
+    DictSegment ds = lookforSegment(charArray[begin], enabled);
     if (ds != null) {
+      if (enabled == 1) {
+        // 当前节点的子树中加入了带有flags的词
+        this.childFlags |= flags;
+      }
       // 处理keyChar对应的segment
       if (length > 1) {
         // 词元还没有完全加入词典树
-        ds.fillSegment(charArray, begin + 1, length - 1, enabled);
+        ds.fillSegment(charArray, begin + 1, length - 1, enabled, flags);
       } else if (length == 1) {
-        // 已经是词元的最后一个char,设置当前节点状态为enabled，
+        // 已经是词元的最后一个char,设置当前节点状态，
         // enabled=1表明一个完整的词，enabled=0表示从词典中屏蔽当前词
-        ds.nodeState = enabled;
+        ds.nodeState = enabled == 1 ? ds.nodeState | flags : ds.nodeState & ~flags;
       }
     }
 
   }
 
   /**
-   * 查找本节点下对应的keyChar的segment	 * 
-   * @param keyChar
-   * @param create  =1如果没有找到，则创建新的segment ; =0如果没有找到，不创建，返回null
-   * @return
+   * 由首字相同的词条构建根节点下的一个分枝
+   * 分枝挂到根节点之前不被其他线程访问，插入时不加锁
+   * @param words 词条数组
+   * @param from 分枝的第一个词条
+   * @param to 分枝最后一个词条之后的位置
+   * @return DictSegment 首字对应的节点
    */
-  private DictSegment lookforSegment(Character keyChar, int create) {
-
-    DictSegment ds = null;
-
-    if (this.storeSize <= ARRAY_LENGTH_LIMIT) {
-      // 获取数组容器，如果数组未创建则创建数组
-      DictSegment[] segmentArray = getChildrenArray();
-      // 搜寻数组
-      DictSegment keySegment = new DictSegment(keyChar);
-      int position = Arrays.binarySearch(segmentArray, 0, this.storeSize, keySegment);
-      if (position >= 0) {
-        ds = segmentArray[position];
+  static DictSegment buildBranch(char[][] words, int from, int to) {
+    DictSegment branch = new DictSegment(words[from][0]);
+    for (int i = from; i < to; i++) {
+      char[] word = words[i];
+      DictSegment ds = branch;
+      for (int j = 1; j < word.length; j++) {
+        ds.childFlags |= Dictionary.WORD_MAIN;
+        ds = ds.lookforSegment(word[j], 1);
       }
+      ds.nodeState |= Dictionary.WORD_MAIN;
+    }
+    return branch;
+  }
 
-      // 遍历数组后没有找到对应的segment
-      if (ds == null && create == 1) {
-        ds = keySegment;
-        if (this.storeSize < ARRAY_LENGTH_LIMIT) {
-          // 数组容量未满，使用数组存储
-          segmentArray[this.storeSize] = ds;
-          // segment数目+1
-          this.storeSize++;
-          Arrays.sort(segmentArray, 0, this.storeSize);
-
-        } else {
-          // 数组容量已满，切换Map存储
-          // 获取Map容器，如果Map未创建,则创建Map
-          Map<Character, DictSegment> segmentMap = getChildrenMap();
-          // 将数组中的segment迁移到Map中
-          migrate(segmentArray, segmentMap);
-          // 存储新的segment
-          segmentMap.put(keyChar, ds);
-          // segment数目+1 ， 必须在释放数组前执行storeSize++ ， 确保极端情况下，不会取到空的数组
-          this.storeSize++;
-          // 释放当前的数组引用
-          this.childrenArray = null;
-        }
+  /**
+   * 挂接构建完成的分枝，当前节点下不能已有同一字符的子节点
+   * @param branch
+   */
+  synchronized void addBranch(DictSegment branch) {
+    this.addChild(branch);
+    this.childFlags |= branch.nodeState | branch.childFlags;
+  }
 
+  /**
+   * 写时复制更新
+   * 只复制被修改路径上的节点，其余子树由新旧词典树共享
+   * @param addedWords
+   * @param disabledWords
+   * @return DictTrie 新的根节点
+   */
+  public DictTrie update(Collection<char[]> addedWords, Collection<char[]> disabledWords) {
+    return this.update(addedWords, disabledWords, Dictionary.WORD_MAIN);
+  }
+
+  /**
+   * 写时复制更新词的标志位
+   * @param addedWords 设置标志位的词条
+   * @param disabledWords 清除标志位的词条
+   * @param flags 标志位
+   * @return DictSegment 新的根节点
+   */
+  DictSegment update(Collection<char[]> addedWords, Collection<char[]> disabledWords, int flags) {
+    // 本次更新中新建或复制的节点，只有这些节点可以修改
+    Set<DictSegment> owned = Collections.newSetFromMap(new IdentityHashMap<DictSegment, Boolean>());
+    DictSegment root = this.copyNode();
+    owned.add(root);
+    for (char[] word : addedWords) {
+      if (word.length > 0) {
+        root.fillCopy(word, 0, word.length, 1, flags, owned);
       }
+    }
+    for (char[] word : disabledWords) {
+      if (word.length > 0) {
+        root.fillCopy(word, 0, word.length, 0, flags, owned);
+      }
+    }
+    return root;
+  }
 
+  /**
+   * 在复制的节点上填充词段，沿途复制仍被旧词典树引用的子节点
+   * @param charArray
+   * @param begin
+   * @param length
+   * @param enabled
+   * @param flags 设置或清除的标志位
+   * @param owned 本次更新中新建或复制的节点
+   */
+  private void fillCopy(char[] charArray, int begin, int length, int enabled, int flags,
+      Set<DictSegment> owned) {
+    int storeSize = this.storeSize;
+    DictSegment ds = lookforSegment(charArray[begin], enabled);
+    if (ds == null) {
+      return;
+    }
+    if (this.storeSize > storeSize) {
+      // 新建的节点
+      owned.add(ds);
+    } else if (!owned.contains(ds)) {
+      // 复制旧节点，并替换当前节点中的引用
+      ds = ds.copyNode();
+      owned.add(ds);
+      this.replaceChild(ds);
+    }
+    if (enabled == 1) {
+      this.childFlags |= flags;
+    }
+    if (length > 1) {
+      ds.fillCopy(charArray, begin + 1, length - 1, enabled, flags, owned);
     } else {
-      // 获取Map容器，如果Map未创建,则创建Map
-      Map<Character, DictSegment> segmentMap = getChildrenMap();
-      // 搜索Map
-      ds = (DictSegment) segmentMap.get(keyChar);
-      if (ds == null && create == 1) {
-        // 构造新的segment
-        ds = new DictSegment(keyChar);
-        segmentMap.put(keyChar, ds);
-        // 当前节点存储segment数目+1
-        this.storeSize++;
-      }
+      ds.nodeState = enabled == 1 ? ds.nodeState | flags : ds.nodeState & ~flags;
     }
+  }
 
+  /**
+   * 复制当前节点，复制子节点容器，子节点本身共享
+   * @return DictSegment
+   */
+  private synchronized DictSegment copyNode() {
+    DictSegment copy = new DictSegment(this.nodeChar);
+    copy.nodeState = this.nodeState;
+    copy.childFlags = this.childFlags;
+    copy.storeSize = this.storeSize;
+    if (this.children != null) {
+      copy.children = this.children.clone();
+    }
+    return copy;
+  }
+
+  /**
+   * 用复制的子节点替换同一字符的原子节点
+   * @param ds
+   */
+  private void replaceChild(DictSegment ds) {
+    DictSegment[] children = this.children;
+    children[indexOf(children, ds.nodeChar)] = ds;
+  }
+
+  /**
+   * 查找本节点下对应keyChar的segment，不创建新的segment
+   * @param keyChar
+   * @return DictSegment 没有找到时返回null
+   */
+  private DictSegment lookforSegment(char keyChar) {
+    // 引用实例变量为本地变量，避免查询时遇到更新的同步问题
+    DictSegment[] children = this.children;
+    if (children == null) {
+      return null;
+    }
+    int position = indexOf(children, keyChar);
+    return position >= 0 ? children[position] : null;
+  }
+
+  /**
+   * 查找本节点下对应的keyChar的segment
+   * @param keyChar
+   * @param create  =1如果没有找到，则创建新的segment ; =0如果没有找到，不创建，返回null
+   * @return
+   */
+  private DictSegment lookforSegment(char keyChar, int create) {
+    DictSegment ds = this.lookforSegment(keyChar);
+    if (ds == null && create == 1) {
+      ds = new DictSegment(keyChar);
+      this.addChild(ds);
+    }
     return ds;
   }
 
   /**
-   * 获取数组容器
-   * 线程同步方法
+   * 添加子节点
+   * 新的存储结构构建完成后才替换children引用，读取方总是看到完整的数组或散列表
+   * @param ds
    */
-  private DictSegment[] getChildrenArray() {
-    if (this.childrenArray == null) {
-      synchronized (this) {
-        if (this.childrenArray == null) {
-          this.childrenArray = new DictSegment[ARRAY_LENGTH_LIMIT];
+  private void addChild(DictSegment ds) {
+    DictSegment[] children = this.children;
+    int newSize = this.storeSize + 1;
+    if (newSize <= ARRAY_LENGTH_LIMIT) {
+      // 数组容量恰好容纳全部子节点
+      DictSegment[] newChildren = new DictSegment[newSize];
+      if (children != null) {
+        System.arraycopy(children, 0, newChildren, 0, this.storeSize);
+      }
+      newChildren[this.storeSize] = ds;
+      this.children = newChildren;
+
+    } else if (children.length <= ARRAY_LENGTH_LIMIT
+        || (children.length < DIRECT_TABLE_LENGTH && newSize * 4 > children.length * 3)) {
+      // 切换为散列表，或散列表的装载因子超过0.75时扩容
+      int capacity = Math.max(TABLE_INITIAL_CAPACITY,
+        children.length <= ARRAY_LENGTH_LIMIT ? 0 : children.length * 2);
+      if (capacity > TABLE_CAPACITY_LIMIT) {
+        // 子节点数以千计（通常只有根节点），改为直接寻址，首字查找不再计算散列及探测
+        capacity = DIRECT_TABLE_LENGTH;
+      }
+      DictSegment[] table = new DictSegment[capacity];
+      for (DictSegment child : children) {
+        if (child != null) {
+          table[freeSlot(table, child.nodeChar)] = child;
         }
       }
+      table[freeSlot(table, ds.nodeChar)] = ds;
+      this.children = table;
+
+    } else {
+      children[freeSlot(children, ds.nodeChar)] = ds;
     }
-    return this.childrenArray;
+    this.storeSize = newSize;
   }
 
   /**
-   * 获取Map容器
-   * 线程同步方法
+   * 在数组或散列表中查找keyChar对应的位置
+   * @param children
+   * @param keyChar
+   * @return int 没有找到时返回-1
    */
-  private Map<Character, DictSegment> getChildrenMap() {
-    if (this.childrenMap == null) {
-      synchronized (this) {
-        if (this.childrenMap == null) {
-          this.childrenMap = new HashMap<Character, DictSegment>(ARRAY_LENGTH_LIMIT * 2, 0.8f);
+  private static int indexOf(DictSegment[] children, char keyChar) {
+    if (children.length <= ARRAY_LENGTH_LIMIT) {
+      for (int i = 0; i < children.length; i++) {
+        if (children[i].nodeChar == keyChar) {
+          return i;
         }
       }
+      return -1;
+    }
+    if (children.length == DIRECT_TABLE_LENGTH) {
+      return children[keyChar] != null ? keyChar : -1;
+    }
+    int mask = children.length - 1;
+    for (int i = hash(keyChar) & mask;; i = (i + 1) & mask) {
+      DictSegment ds = children[i];
+      if (ds == null) {
+        return -1;
+      }
+      if (ds.nodeChar == keyChar) {
+        return i;
+      }
     }
-    return this.childrenMap;
   }
 
   /**
-   * 将数组中的segment迁移到Map中
-   * @param segmentArray
+   * 散列表中keyChar的第一个空闲位置，直接寻址表中即为keyChar
    */
-  private void migrate(DictSegment[] segmentArray, Map<Character, DictSegment> segmentMap) {
-    for (DictSegment segment : segmentArray) {
-      if (segment != null) {
-        segmentMap.put(segment.nodeChar, segment);
-      }
+  private static int freeSlot(DictSegment[] table, char keyChar) {
+    if (table.length == DIRECT_TABLE_LENGTH) {
+      return keyChar;
+    }
+    int mask = table.length - 1;
+    int i = hash(keyChar) & mask;
+    while (table[i] != null) {
+      i = (i + 1) & mask;
     }
+    return i;
   }
 
   /**
-   * 实现Comparable接口
-   * @param o
-   * @return int
+   * 字符的散列值，打散连续的汉字编码
    */
-  public int compareTo(DictSegment o) {
-    // 对当前节点存储的char进行比较
-    return this.nodeChar.compareTo(o.nodeChar);
+  private static int hash(char keyChar) {
+    int h = keyChar * 0x9E3779B1;
+    return h ^ (h >>> 16);
   }
 
 }
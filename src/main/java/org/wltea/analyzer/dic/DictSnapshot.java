@@ -0,0 +1,325 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.cfg.ExtendedConfiguration;
+
+/**
+ * 预编译词典快照
+ *
+ * 将构建好的主词典（含扩展词典）、停止词词典和量词词典以双数组树的形式写入一个二进制文件，
+ * 启动时一次顺序读入即可恢复词典，不再逐行解析词典源文件；
+ * dict_engine=mmap时则以只读内存映射方式直接在文件上查询。
+ *
+ * 文件格式（大端序）：
+ * 魔数(int) 版本(int) 源文件校验和(long) 数据校验和(long) 数据长度(int) 数据
+ * 数据依次为主词典、停止词词典、量词词典的DoubleArrayTrie序列化结果。
+ * 源文件校验和覆盖全部词典文件的路径及内容，任何词典变化后快照自动失效；
+ * jar包中的词典使用jar目录记录的长度、修改时间及CRC，不再解压读取词典内容。
+ *
+ * 编译快照：java org.wltea.analyzer.dic.DictSnapshot [快照文件路径]
+ * 未指定路径时使用IKAnalyzer.cfg.xml中的dict_snapshot配置
+ */
+public class DictSnapshot {
+
+  // 文件魔数 "IKDS"
+  private static final int MAGIC = 0x494B4453;
+  // 文件格式版本，格式变化时递增
+  private static final int VERSION = 2;
+  // 文件头长度
+  private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 4;
+
+  public static void main(String[] args) throws IOException {
+    ExtendedConfiguration cfg = DefaultConfig.extend(DefaultConfig.getInstance());
+    String path = args.length > 0 ? args[0] : cfg.getDictSnapshot();
+    if (path == null) {
+      System.err.println("Usage: java org.wltea.analyzer.dic.DictSnapshot <snapshot file>");
+      System.exit(1);
+    }
+    long start = System.currentTimeMillis();
+    Dictionary.compileSnapshot(cfg, new File(path));
+    System.out.println("词典快照已生成：" + path + " 耗时" + (System.currentTimeMillis() - start) + "ms");
+  }
+
+  /**
+   * 计算全部词典源文件的校验和
+   * @param cfg
+   * @return long
+   * @throws IOException
+   */
+  static long checksum(Configuration cfg) throws IOException {
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[8192];
+    update(crc, buffer, cfg.getMainDictionary());
+    update(crc, buffer, cfg.getQuantifierDicionary());
+    List<String> extDictFiles = cfg.getExtDictionarys();
+    if (extDictFiles != null) {
+      for (String extDictName : extDictFiles) {
+        update(crc, buffer, extDictName);
+      }
+    }
+    // 分隔扩展词典与停止词词典，防止同一文件从一类配置移到另一类时校验和不变
+    crc.update(0);
+    List<String> extStopWordDictFiles = cfg.getExtStopWordDictionarys();
+    if (extStopWordDictFiles != null) {
+      for (String extStopWordDictName : extStopWordDictFiles) {
+        update(crc, buffer, extStopWordDictName);
+      }
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * 将词典文件的路径及内容计入校验和，找不到的文件只计入路径
+   * jar包中的词典计入jar目录记录
+   */
+  private static void update(CRC32 crc, byte[] buffer, String path) throws IOException {
+    byte[] name = path.getBytes("UTF-8");
+    crc.update(name, 0, name.length);
+    URL url = DictSnapshot.class.getClassLoader().getResource(path);
+    if (url == null) {
+      crc.update(0);
+      return;
+    }
+    if (updateJarEntry(crc, url)) {
+      return;
+    }
+    InputStream is = url.openStream();
+    try {
+      crc.update(3);
+      int n;
+      while ((n = is.read(buffer)) > 0) {
+        crc.update(buffer, 0, n);
+      }
+    } finally {
+      is.close();
+    }
+  }
+
+  /**
+   * 将jar包中词典的jar目录记录计入校验和，不解压读取词典内容
+   * jar目录中的CRC即词典内容的CRC，文件系统中的词典仍逐字节计算
+   * @return boolean 不是jar包中的词典或jar目录中没有CRC时返回false
+   */
+  private static boolean updateJarEntry(CRC32 crc, URL url) throws IOException {
+    if (!"jar".equals(url.getProtocol())) {
+      return false;
+    }
+    URLConnection connection = url.openConnection();
+    if (connection instanceof JarURLConnection) {
+      JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+      if (entry != null && entry.getSize() >= 0 && entry.getCrc() != -1) {
+        crc.update(2);
+        update(crc, entry.getSize());
+        update(crc, entry.getTime());
+        update(crc, entry.getCrc());
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void update(CRC32 crc, long value) {
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      crc.update((int) (value >>> shift));
+    }
+  }
+
+  /**
+   * 写入词典快照
+   * 先写入临时文件再改名，避免其他进程读到不完整的快照
+   * @param file
+   * @param sourceChecksum 词典源文件校验和
+   * @param mainDict
+   * @param stopWordDict
+   * @param quantifierDict
+   * @throws IOException
+   */
+  static void write(File file, long sourceChecksum, DoubleArrayTrie mainDict,
+      DoubleArrayTrie stopWordDict, DoubleArrayTrie quantifierDict) throws IOException {
+    int length = mainDict.byteSize() + stopWordDict.byteSize() + quantifierDict.byteSize();
+    ByteBuffer buf = ByteBuffer.allocate(HEADER_LENGTH + length);
+    buf.position(HEADER_LENGTH);
+    mainDict.writeTo(buf);
+    stopWordDict.writeTo(buf);
+    quantifierDict.writeTo(buf);
+
+    CRC32 crc = new CRC32();
+    crc.update(buf.array(), HEADER_LENGTH, length);
+    buf.clear();
+    buf.putInt(MAGIC);
+    buf.putInt(VERSION);
+    buf.putLong(sourceChecksum);
+    buf.putLong(crc.getValue());
+    buf.putInt(length);
+    buf.clear();
+
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Cannot create directory " + parent);
+    }
+    File tmp = new File(file.getPath() + ".tmp");
+    FileOutputStream out = new FileOutputStream(tmp);
+    try {
+      FileChannel channel = out.getChannel();
+      while (buf.hasRemaining()) {
+        channel.write(buf);
+      }
+      channel.force(false);
+    } finally {
+      out.close();
+    }
+    if (!tmp.renameTo(file)) {
+      // 部分平台不允许覆盖已存在的文件
+      file.delete();
+      if (!tmp.renameTo(file)) {
+        throw new IOException("Cannot rename " + tmp + " to " + file);
+      }
+    }
+  }
+
+  /**
+   * 读取词典快照
+   * @param file
+   * @param sourceChecksum 当前词典源文件的校验和
+   * @return DoubleArrayTrie[] 依次为主词典、停止词词典、量词词典；快照格式或校验和不一致时返回null
+   * @throws IOException
+   */
+  static DoubleArrayTrie[] read(File file, long sourceChecksum) throws IOException {
+    FileInputStream in = new FileInputStream(file);
+    try {
+      FileChannel channel = in.getChannel();
+      ByteBuffer header = readHeader(channel, sourceChecksum);
+      if (header == null) {
+        return null;
+      }
+      long dataChecksum = header.getLong();
+      int length = header.getInt();
+      ByteBuffer buf = ByteBuffer.allocate(length);
+      if (!readFully(channel, buf)) {
+        return null;
+      }
+      CRC32 crc = new CRC32();
+      crc.update(buf.array(), 0, length);
+      if (crc.getValue() != dataChecksum) {
+        return null;
+      }
+      return new DoubleArrayTrie[] { DoubleArrayTrie.readFrom(buf), DoubleArrayTrie.readFrom(buf),
+          DoubleArrayTrie.readFrom(buf) };
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * 以只读内存映射方式打开词典快照
+   * 映射在词典对象被回收前一直有效，关闭文件不影响映射
+   * @param file
+   * @param sourceChecksum 当前词典源文件的校验和
+   * @return MappedDoubleArrayTrie[] 依次为主词典、停止词词典、量词词典；快照格式或校验和不一致时返回null
+   * @throws IOException
+   */
+  static MappedDoubleArrayTrie[] map(File file, long sourceChecksum) throws IOException {
+    FileInputStream in = new FileInputStream(file);
+    try {
+      FileChannel channel = in.getChannel();
+      ByteBuffer header = readHeader(channel, sourceChecksum);
+      if (header == null) {
+        return null;
+      }
+      long dataChecksum = header.getLong();
+      int length = header.getInt();
+      ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, length);
+      // 分块复制校验，数据页同时被载入页缓存
+      CRC32 crc = new CRC32();
+      byte[] chunk = new byte[65536];
+      while (buf.hasRemaining()) {
+        int n = Math.min(chunk.length, buf.remaining());
+        buf.get(chunk, 0, n);
+        crc.update(chunk, 0, n);
+      }
+      if (crc.getValue() != dataChecksum) {
+        return null;
+      }
+      buf.clear();
+      return new MappedDoubleArrayTrie[] { new MappedDoubleArrayTrie(buf),
+          new MappedDoubleArrayTrie(buf), new MappedDoubleArrayTrie(buf) };
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * 读取并校验文件头
+   * @param channel
+   * @param sourceChecksum 当前词典源文件的校验和
+   * @return ByteBuffer 位于数据校验和之前的文件头；格式、校验和或长度不一致时返回null
+   * @throws IOException
+   */
+  private static ByteBuffer readHeader(FileChannel channel, long sourceChecksum) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    if (!readFully(channel, header) || header.getInt() != MAGIC || header.getInt() != VERSION
+        || header.getLong() != sourceChecksum) {
+      return null;
+    }
+    int length = header.getInt(HEADER_LENGTH - 4);
+    if (length < 0 || length != channel.size() - HEADER_LENGTH) {
+      return null;
+    }
+    return header;
+  }
+
+  /**
+   * 读满缓冲区，并将缓冲区翻转为读模式
+   * @return boolean 文件长度不足时返回false
+   */
+  private static boolean readFully(FileChannel channel, ByteBuffer buf) throws IOException {
+    while (buf.hasRemaining()) {
+      if (channel.read(buf) < 0) {
+        return false;
+      }
+    }
+    buf.flip();
+    return true;
+  }
+
+}
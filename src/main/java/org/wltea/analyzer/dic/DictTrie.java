@@ -0,0 +1,93 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.Collection;
+
+/**
+ * 词典树接口
+ * 屏蔽词典树的存储实现（对象树DictSegment、双数组树DoubleArrayTrie）
+ */
+interface DictTrie {
+
+  /**
+   * 从根节点开始匹配词段
+   * @param charArray
+   * @param begin
+   * @param length
+   * @return Hit 匹配结果描述
+   */
+  Hit match(char[] charArray, int begin, int length);
+
+  /**
+   * 从已匹配的Hit继续向下匹配一个字符
+   * @param charArray
+   * @param currentIndex
+   * @param matchedHit
+   * @return Hit
+   */
+  Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit);
+
+  /**
+   * 将游标的槽位置为根节点状态
+   * @param cursor
+   * @param slot
+   */
+  void rootCursor(DictCursor cursor, int slot);
+
+  /**
+   * 从游标槽位记录的状态继续匹配一个字符，更新槽位的状态及词的标志位
+   * 匹配过程不创建临时对象
+   * @param cursor
+   * @param slot
+   * @param charArray
+   * @param currentIndex
+   * @return int DictCursor.MATCH、DictCursor.PREFIX的组合，不匹配时为0
+   */
+  int matchWithCursor(DictCursor cursor, int slot, char[] charArray, int currentIndex);
+
+  /**
+   * 加载填充词典片段
+   * @param charArray
+   */
+  void fillSegment(char[] charArray);
+
+  /**
+   * 屏蔽词典中的一个词
+   * @param charArray
+   */
+  void disableSegment(char[] charArray);
+
+  /**
+   * 写时复制更新
+   * 返回包含本次修改的新词典树，当前词典树保持不变，可被其他线程继续读取
+   * @param addedWords 加载的词条
+   * @param disabledWords 屏蔽的词条
+   * @return DictTrie 新的词典树
+   */
+  DictTrie update(Collection<char[]> addedWords, Collection<char[]> disabledWords);
+
+}
@@ -26,48 +26,147 @@
 package org.wltea.analyzer.dic;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.cfg.ExtendedConfiguration;
 
 /**
- * 词典管理类,单子模式
+ * 词典管理类
+ * 进程内共享一个由initial初始化的基础词典（单子），
+ * 可在基础词典上创建租户词典，租户词典只保存自己的扩展词条，主词典数据与基础词典共用
  */
 public class Dictionary {
 
+  // 主词典树实现：对象树
+  static final String ENGINE_TRIE = "trie";
+  // 主词典树实现：双数组树
+  static final String ENGINE_DAT = "dat";
+  // 主词典树实现：内存映射的双数组树快照
+  static final String ENGINE_MMAP = "mmap";
+  // 主词典树实现：路径压缩的基数树
+  static final String ENGINE_RADIX = "radix";
+  // 主词典树实现：Lucene FST最小无环自动机
+  static final String ENGINE_FST = "fst";
+  // 中文词典匹配方式：Aho-Corasick自动机
+  static final String MATCHER_AC = "ac";
+
+  // 词的标志位：主词典中的词
+  public static final int WORD_MAIN = 1;
+  // 词的标志位：量词
+  public static final int WORD_QUANTIFIER = 2;
+  // 词的标志位：停止词
+  public static final int WORD_STOP = 4;
+  // 词的标志位：第一个用户标签，其余用户标签依次左移
+  public static final int WORD_USER_TAG = 8;
+
   /*
    * 词典单子实例
    */
-  private static Dictionary singleton;
+  private static volatile Dictionary singleton;
 
   /*
-   * 主词典对象
+   * 当前一代词典，更新时构建新的一代并以原子操作整体替换
+   */
+  private final AtomicReference<Generation> current = new AtomicReference<Generation>();
+
+  /**
+   * 配置对象
    */
-  private DictSegment _MainDict;
+  private ExtendedConfiguration cfg;
 
   /*
-   * 停止词词典
+   * 租户词典共享的基础词典，基础词典自身为null
    */
-  private DictSegment _StopWordDict;
+  private final Dictionary base;
+
   /*
-   * 量词词典
+   * 扩展词典热加载服务，未启用时为null
    */
-  private DictSegment _QuantifierDict;
+  private DictReloader reloader;
+  /*
+   * 扩展词来源轮询服务，没有词来源时为null
+   */
+  private DictionarySourcePoller sourcePoller;
+
+  private Dictionary(Configuration cfg) {
+    this.cfg = DefaultConfig.extend(cfg);
+    this.base = null;
+    if (!this.loadSnapshot()) {
+      String engine = this.cfg.getDictEngine();
+      if (MATCHER_AC.equalsIgnoreCase(this.cfg.getCJKMatcher()) && !ENGINE_DAT.equalsIgnoreCase(engine)
+          && !ENGINE_MMAP.equalsIgnoreCase(engine)) {
+        // 匹配自动机基于双数组树构建
+        engine = ENGINE_DAT;
+      }
+      DictTrie mainDict = newDictTrie(engine, this.loadMainDict());
+      if (mainDict instanceof DictSegment) {
+        // 对象树方式下，量词及停止词合并到主词典树中，一次匹配给出全部归属
+        DictSegment root = (DictSegment) mainDict;
+        for (char[] word : this.loadQuantifierDict()) {
+          root.fillSegment(word, WORD_QUANTIFIER);
+        }
+        for (char[] word : this.loadStopWordDict()) {
+          root.fillSegment(word, WORD_STOP);
+        }
+        this.current.set(unified(root));
+      } else {
+        // FST方式下量词词典同样使用自动机
+        String quantifierEngine = ENGINE_FST.equalsIgnoreCase(engine) ? ENGINE_FST : ENGINE_TRIE;
+        this.current.set(new Generation(mainDict, newDictTrie(ENGINE_TRIE,
+          this.loadStopWordDict()), newDictTrie(quantifierEngine, this.loadQuantifierDict()),
+            this.buildMatcher(mainDict), null));
+      }
+    }
+  }
 
   /**
-   * 配置对象
+   * 从词典源文件载入全部词典，使用指定的词典树实现
+   * @param cfg
+   * @param engine 词典树实现名称
    */
-  private Configuration cfg;
+  private Dictionary(Configuration cfg, String engine) {
+    this.cfg = DefaultConfig.extend(cfg);
+    this.base = null;
+    this.current.set(new Generation(newDictTrie(engine, this.loadMainDict()), newDictTrie(engine,
+      this.loadStopWordDict()), newDictTrie(engine, this.loadQuantifierDict()), null, null));
+  }
 
-  private Dictionary(Configuration cfg) {
-    this.cfg = cfg;
-    this.loadMainDict();
-    this.loadStopWordDict();
-    this.loadQuantifierDict();
+  /**
+   * 创建租户词典
+   * @param base 基础词典
+   * @param cfg 租户配置，为null时不载入扩展词典
+   */
+  private Dictionary(Dictionary base, Configuration cfg) {
+    this.cfg = cfg != null ? DefaultConfig.extend(cfg) : base.cfg;
+    this.base = base;
+    Generation baseGeneration = base.generation();
+    OverlayDictTrie mainDict = new OverlayDictTrie(baseGeneration.mainDict);
+    OverlayDictTrie stopWordDict = new OverlayDictTrie(baseGeneration.stopWordDict);
+    if (cfg != null) {
+      // 租户的扩展词典及扩展停止词典只载入到叠加树中
+      List<char[]> words = new ArrayList<char[]>();
+      this.loadExtDict(words);
+      for (char[] word : words) {
+        mainDict.fillSegment(word);
+      }
+      for (char[] word : this.loadStopWordDict()) {
+        stopWordDict.fillSegment(word);
+      }
+    }
+    this.current.set(overlay(baseGeneration, mainDict, stopWordDict));
   }
 
   /**
@@ -82,7 +181,12 @@ public class Dictionary {
     if (singleton == null) {
       synchronized (Dictionary.class) {
         if (singleton == null) {
-          singleton = new Dictionary(cfg);
+          Dictionary dictionary = new Dictionary(cfg);
+          if (dictionary.cfg.isDictReload()) {
+            dictionary.startReloader();
+          }
+          dictionary.addRemoteDictionarySources();
+          singleton = dictionary;
           return singleton;
         }
       }
@@ -101,18 +205,98 @@ public class Dictionary {
     return singleton;
   }
 
+  /**
+   * 在当前的基础词典上创建租户词典
+   * 租户词典载入cfg中配置的扩展词典及扩展停止词典，主词典及量词词典与基础词典共用，
+   * 基础词典的更新（热加载等）对租户词典立即可见。
+   * 租户词典的addWords、disableWords只影响该租户
+   * @param cfg 租户配置
+   * @return Dictionary 租户词典
+   */
+  public Dictionary newTenant(Configuration cfg) {
+    return new Dictionary(this.base != null ? this.base : this, cfg);
+  }
+
+  /**
+   * 在当前的基础词典上创建没有扩展词条的租户词典
+   * @return Dictionary 租户词典
+   */
+  public Dictionary newTenant() {
+    return new Dictionary(this.base != null ? this.base : this, null);
+  }
+
+  /**
+   * 获取扩展词典热加载服务，可用于读取热加载次数及延迟
+   * @return DictReloader 未启用（dict_reload不为true）时返回null
+   */
+  public DictReloader getReloader() {
+    return this.reloader;
+  }
+
+  /**
+   * 启动扩展词典热加载服务
+   */
+  private void startReloader() {
+    try {
+      this.reloader = new DictReloader(this, cfg.getExtDictionarys(),
+          cfg.getExtStopWordDictionarys());
+      this.reloader.start();
+    } catch (IOException ioe) {
+      System.err.println("Dictionary reloader starting exception.");
+      ioe.printStackTrace();
+    }
+  }
+
+  /**
+   * 添加扩展词来源，按remote_dict_interval配置的间隔定时读取
+   * 来源的词条变化以增量方式应用到主词典
+   * @param source
+   */
+  public synchronized void addDictionarySource(DictionarySource source) {
+    if (this.sourcePoller == null) {
+      // 先添加来源再启动，第一次轮询即读取该来源
+      this.sourcePoller = new DictionarySourcePoller(this, cfg.getRemoteDictInterval());
+      this.sourcePoller.addSource(source);
+      this.sourcePoller.start();
+      return;
+    }
+    this.sourcePoller.addSource(source);
+  }
+
+  /**
+   * 获取扩展词来源轮询服务，可用于读取轮询及更新次数
+   * @return DictionarySourcePoller 没有词来源时返回null
+   */
+  public synchronized DictionarySourcePoller getSourcePoller() {
+    return this.sourcePoller;
+  }
+
+  /**
+   * 添加remote_ext_dict配置的远程扩展词典
+   */
+  private void addRemoteDictionarySources() {
+    List<String> remoteDictUrls = cfg.getRemoteExtDictionarys();
+    if (remoteDictUrls != null) {
+      for (String remoteDictUrl : remoteDictUrls) {
+        System.out.println("加载远程扩展词典：" + remoteDictUrl);
+        try {
+          this.addDictionarySource(new HttpDictionarySource(new URL(remoteDictUrl)));
+        } catch (MalformedURLException e) {
+          System.err.println("Remote Dictionary url exception.");
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+
   /**
    * 批量加载新词条
    * @param words Collection<String>词条列表
    */
   public void addWords(Collection<String> words) {
     if (words != null) {
-      for (String word : words) {
-        if (word != null) {
-          // 批量加载词条到主内存词典中
-          singleton._MainDict.fillSegment(word.trim().toLowerCase().toCharArray());
-        }
-      }
+      // 批量加载词条到主内存词典中
+      this.updateMainDict(toCharArrays(words), Collections.<char[]> emptyList());
     }
   }
 
@@ -122,13 +306,231 @@ public class Dictionary {
    */
   public void disableWords(Collection<String> words) {
     if (words != null) {
-      for (String word : words) {
-        if (word != null) {
-          // 批量屏蔽词条
-          singleton._MainDict.disableSegment(word.trim().toLowerCase().toCharArray());
+      // 批量屏蔽词条
+      this.updateMainDict(Collections.<char[]> emptyList(), toCharArrays(words));
+    }
+  }
+
+  /**
+   * 以写时复制方式更新主词典
+   * 新词典在旁路构建完成后以一次原子替换发布，读取方从不阻塞；
+   * 已取得旧词典（或旧词典Hit）的分词过程在旧词典上完成。
+   * 多个更新并发时，替换失败的一方基于最新的词典重新构建
+   * @param addedWords 加载的词条
+   * @param disabledWords 屏蔽的词条
+   */
+  private void updateMainDict(List<char[]> addedWords, List<char[]> disabledWords) {
+    List<char[]> none = Collections.emptyList();
+    this.update(addedWords, disabledWords, none, none);
+  }
+
+  /**
+   * 以写时复制方式同时更新主词典及停止词词典，两者在同一代中发布
+   * @param addedWords 加载的主词典词条
+   * @param disabledWords 屏蔽的主词典词条
+   * @param addedStopWords 加载的停止词
+   * @param disabledStopWords 屏蔽的停止词
+   */
+  void update(List<char[]> addedWords, List<char[]> disabledWords, List<char[]> addedStopWords,
+      List<char[]> disabledStopWords) {
+    boolean mainChanged = !addedWords.isEmpty() || !disabledWords.isEmpty();
+    boolean stopChanged = !addedStopWords.isEmpty() || !disabledStopWords.isEmpty();
+    Generation oldGeneration;
+    Generation newGeneration;
+    do {
+      oldGeneration = this.generation();
+      if (oldGeneration.isUnified()) {
+        // 合并词典树中只清除或设置对应的标志位
+        DictSegment root = (DictSegment) oldGeneration.mainDict;
+        if (mainChanged) {
+          root = root.update(addedWords, disabledWords, WORD_MAIN);
         }
+        if (stopChanged) {
+          root = root.update(addedStopWords, disabledStopWords, WORD_STOP);
+        }
+        newGeneration = unified(root);
+        continue;
+      }
+      DictTrie mainDict = oldGeneration.mainDict;
+      AhoCorasickMatcher mainMatcher = oldGeneration.mainMatcher;
+      if (mainChanged) {
+        mainDict = mainDict.update(addedWords, disabledWords);
+        mainMatcher = this.buildMatcher(mainDict);
+      }
+      DictTrie stopWordDict = oldGeneration.stopWordDict;
+      if (stopChanged) {
+        stopWordDict = stopWordDict.update(addedStopWords, disabledStopWords);
+      }
+      if (this.base != null) {
+        newGeneration = overlay(oldGeneration.base, (OverlayDictTrie) mainDict,
+          (OverlayDictTrie) stopWordDict);
+      } else {
+        newGeneration = new Generation(mainDict, stopWordDict, oldGeneration.quantifierDict,
+            mainMatcher, null);
       }
+    } while (!this.current.compareAndSet(oldGeneration, newGeneration));
+  }
+
+  /**
+   * 是否支持词条标签
+   * 只有对象树（dict_engine=trie）的基础词典将主词典、量词及停止词合并为带标志位的词典树，
+   * 支持tagWords，停止词判断也直接使用词元的标志位；
+   * 其他词典树实现（dat、mmap、radix、fst）及租户词典不保存标志位。
+   * 词典创建时即已确定，之后的更新不会改变
+   * @return boolean
+   */
+  public boolean supportsWordTags() {
+    return this.generation().isUnified();
+  }
+
+  /**
+   * 为词条设置用户标签
+   * 标签保存在合并词典树的节点上，中文词元的getWordFlags中可读取，不影响分词结果。
+   * 词典不支持标签（supportsWordTags返回false）时不做任何修改
+   * @param words 词条列表
+   * @param tags WORD_USER_TAG及其左移得到的标签组合
+   * @return boolean 标签已设置时返回true，词典不支持标签时返回false
+   */
+  public boolean tagWords(Collection<String> words, int tags) {
+    if (tags == 0 || (tags & (WORD_USER_TAG - 1)) != 0) {
+      throw new IllegalArgumentException("tags must be user tags: " + tags);
+    }
+    if (!this.supportsWordTags()) {
+      return false;
+    }
+    List<char[]> none = Collections.emptyList();
+    List<char[]> taggedWords = toCharArrays(words);
+    Generation oldGeneration;
+    Generation newGeneration;
+    do {
+      oldGeneration = this.generation();
+      newGeneration = unified(((DictSegment) oldGeneration.mainDict).update(taggedWords, none,
+        tags));
+    } while (!this.current.compareAndSet(oldGeneration, newGeneration));
+    return true;
+  }
+
+  /**
+   * 构建合并词典树的一代词典，量词及停止词词典为合并树上的标志位视图
+   * @param root 合并词典树
+   * @return Generation
+   */
+  private static Generation unified(DictSegment root) {
+    return new Generation(root, new FlagDictTrie(root, WORD_STOP), new FlagDictTrie(root,
+        WORD_QUANTIFIER), null, null);
+  }
+
+  /**
+   * 获取当前一代词典
+   * 租户词典在基础词典更新后，将租户的叠加词条重新叠加到基础词典的新一代上
+   * @return Generation
+   */
+  private Generation generation() {
+    Generation generation = this.current.get();
+    if (this.base == null) {
+      return generation;
+    }
+    Generation baseGeneration = this.base.generation();
+    while (generation.base != baseGeneration) {
+      Generation rebased = overlay(baseGeneration,
+        ((OverlayDictTrie) generation.mainDict).rebase(baseGeneration.mainDict),
+        ((OverlayDictTrie) generation.stopWordDict).rebase(baseGeneration.stopWordDict));
+      if (this.current.compareAndSet(generation, rebased)) {
+        return rebased;
+      }
+      generation = this.current.get();
+    }
+    return generation;
+  }
+
+  /**
+   * 构建叠加在基础词典某一代上的租户词典
+   * 租户没有叠加的主词典词条时沿用基础词典的匹配自动机，否则逐个Hit匹配
+   * @param baseGeneration
+   * @param mainDict
+   * @param stopWordDict
+   * @return Generation
+   */
+  private static Generation overlay(Generation baseGeneration, OverlayDictTrie mainDict,
+      OverlayDictTrie stopWordDict) {
+    return new Generation(mainDict, stopWordDict, baseGeneration.quantifierDict,
+        mainDict.isEmpty() ? baseGeneration.mainMatcher : null, baseGeneration);
+  }
+
+  /**
+   * 将词条统一转为小写字符数组，忽略null及空白词条
+   * @param words
+   * @return List<char[]>
+   */
+  static List<char[]> toCharArrays(Collection<String> words) {
+    List<char[]> result = new ArrayList<char[]>(words.size());
+    for (String word : words) {
+      if (word != null && !"".equals(word.trim())) {
+        result.add(word.trim().toLowerCase().toCharArray());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 为主词典构建Aho-Corasick匹配自动机
+   * @param mainDict
+   * @return AhoCorasickMatcher 未启用（cjk_matcher不为ac）时返回null
+   */
+  private AhoCorasickMatcher buildMatcher(DictTrie mainDict) {
+    if (!MATCHER_AC.equalsIgnoreCase(cfg.getCJKMatcher())) {
+      return null;
+    }
+    if (mainDict instanceof MappedDoubleArrayTrie) {
+      // 自动机需要堆内的转移数组副本
+      mainDict = ((MappedDoubleArrayTrie) mainDict).toHeap();
+    }
+    if (mainDict instanceof DoubleArrayTrie) {
+      return ((DoubleArrayTrie) mainDict).buildMatcher();
+    }
+    return null;
+  }
+
+  /**
+   * 获取主词典的Aho-Corasick匹配自动机
+   * 自动机与主词典同属一代，主词典更新后返回新的自动机
+   * @return AhoCorasickMatcher 未启用（cjk_matcher不为ac）时返回null
+   */
+  public AhoCorasickMatcher getMainDictMatcher() {
+    return this.generation().mainMatcher;
+  }
+
+  /**
+   * 创建主词典游标
+   * 游标逐字推进全部未结束的词前缀，匹配过程不创建Hit，每个子分词器各自持有
+   * @return DictCursor
+   */
+  public DictCursor newMainDictCursor() {
+    return new DictCursor(this, WORD_MAIN);
+  }
+
+  /**
+   * 创建量词词典游标
+   * @return DictCursor
+   */
+  public DictCursor newQuantifierDictCursor() {
+    return new DictCursor(this, WORD_QUANTIFIER);
+  }
+
+  /**
+   * 游标从新的位置开始匹配时使用的词典树，总是当前一代
+   * @param dictType WORD_MAIN 或 WORD_QUANTIFIER
+   * @return DictTrie
+   */
+  DictTrie cursorTrie(int dictType) {
+    Generation generation = this.generation();
+    if (dictType == WORD_QUANTIFIER) {
+      return generation.quantifierDict;
+    }
+    if (generation.mainDict instanceof OverlayDictTrie) {
+      return ((OverlayDictTrie) generation.mainDict).cursorTrie();
     }
+    return generation.mainDict;
   }
 
   /**
@@ -137,7 +539,7 @@ public class Dictionary {
    * @return Hit 匹配结果描述
    */
   public Hit matchInMainDict(char[] charArray) {
-    return singleton._MainDict.match(charArray);
+    return this.generation().mainDict.match(charArray, 0, charArray.length);
   }
 
   /**
@@ -148,7 +550,7 @@ public class Dictionary {
    * @return Hit 匹配结果描述
    */
   public Hit matchInMainDict(char[] charArray, int begin, int length) {
-    return singleton._MainDict.match(charArray, begin, length);
+    return this.generation().mainDict.match(charArray, begin, length);
   }
 
   /**
@@ -159,7 +561,7 @@ public class Dictionary {
    * @return Hit 匹配结果描述
    */
   public Hit matchInQuantifierDict(char[] charArray, int begin, int length) {
-    return singleton._QuantifierDict.match(charArray, begin, length);
+    return this.generation().quantifierDict.match(charArray, begin, length);
   }
 
   /**
@@ -170,8 +572,7 @@ public class Dictionary {
    * @return Hit
    */
   public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
-    DictSegment ds = matchedHit.getMatchedDictSegment();
-    return ds.match(charArray, currentIndex, 1, matchedHit);
+    return matchedHit.getMatchedTrie().matchWithHit(charArray, currentIndex, matchedHit);
   }
 
   /**
@@ -182,179 +583,321 @@ public class Dictionary {
    * @return boolean
    */
   public boolean isStopWord(char[] charArray, int begin, int length) {
-    return singleton._StopWordDict.match(charArray, begin, length).isMatch();
+    return this.generation().stopWordDict.match(charArray, begin, length).isMatch();
   }
 
   /**
-   * 加载主词典及扩展词典
+   * 判断是否是停止词
+   * 合并词典树中，词元创建时已取得的标志位即包含停止词的归属，不需要再次匹配
+   * @param charArray
+   * @param begin
+   * @param length
+   * @param wordFlags 词元的标志位（Hit.getWordFlags），未知时为负数
+   * @return boolean
    */
-  private void loadMainDict() {
-    // 建立一个主词典实例
-    _MainDict = new DictSegment((char) 0);
-    // 读取主词典文件
-    InputStream is = this.getClass().getClassLoader().getResourceAsStream(cfg.getMainDictionary());
-    if (is == null) {
-      throw new RuntimeException("Main Dictionary not found!!!");
+  public boolean isStopWord(char[] charArray, int begin, int length, int wordFlags) {
+    Generation generation = this.generation();
+    if (wordFlags >= 0 && generation.isUnified()) {
+      return (wordFlags & WORD_STOP) != 0;
     }
+    return generation.stopWordDict.match(charArray, begin, length).isMatch();
+  }
 
+  /**
+   * 根据配置创建空的主词典树
+   * @param engine 词典树实现名称
+   * @return DictTrie
+   */
+  static DictTrie newDictTrie(String engine) {
+    if (ENGINE_DAT.equalsIgnoreCase(engine) || ENGINE_MMAP.equalsIgnoreCase(engine)) {
+      return new DoubleArrayTrie();
+    }
+    if (ENGINE_RADIX.equalsIgnoreCase(engine)) {
+      return new RadixSegment();
+    }
+    if (ENGINE_FST.equalsIgnoreCase(engine)) {
+      return FstDictTrie.build(Collections.<char[]> emptyList());
+    }
+    return new DictSegment((char) 0);
+  }
+
+  /**
+   * 根据配置创建主词典树，并载入词条
+   * @param engine 词典树实现名称
+   * @param words 词条列表
+   * @return DictTrie
+   */
+  static DictTrie newDictTrie(String engine, List<char[]> words) {
+    // 无法使用内存映射快照时，以堆内双数组树代替
+    if (ENGINE_DAT.equalsIgnoreCase(engine) || ENGINE_MMAP.equalsIgnoreCase(engine)) {
+      // 双数组树一次性批量构建
+      DoubleArrayTrie dat = new DoubleArrayTrie();
+      dat.build(words);
+      return dat;
+    }
+    if (ENGINE_RADIX.equalsIgnoreCase(engine)) {
+      RadixSegment root = new RadixSegment();
+      for (char[] word : words) {
+        root.fillSegment(word);
+      }
+      return root;
+    }
+    if (ENGINE_FST.equalsIgnoreCase(engine)) {
+      return FstDictTrie.build(words);
+    }
+    // 对象树按首字分枝并行构建
+    return DictFileLoader.buildTrie(words);
+  }
+
+  /**
+   * 编译词典快照
+   * 从词典源文件构建双数组树形式的主词典、停止词词典和量词词典，并写入快照文件
+   * @param cfg
+   * @param file 快照文件
+   * @throws IOException
+   */
+  static void compileSnapshot(Configuration cfg, File file) throws IOException {
+    compileSnapshot(cfg, file, DictSnapshot.checksum(cfg));
+  }
+
+  /**
+   * 编译词典快照
+   * @param cfg
+   * @param file 快照文件
+   * @param checksum 词典源文件校验和
+   * @throws IOException
+   */
+  private static void compileSnapshot(Configuration cfg, File file, long checksum)
+      throws IOException {
+    Generation generation = new Dictionary(cfg, ENGINE_DAT).current.get();
+    DictSnapshot.write(file, checksum, (DoubleArrayTrie) generation.mainDict,
+      (DoubleArrayTrie) generation.stopWordDict, (DoubleArrayTrie) generation.quantifierDict);
+  }
+
+  /**
+   * 从预编译的词典快照载入词典
+   * dict_engine=mmap时以内存映射方式打开快照，快照不存在或已过期则先重新编译
+   * 快照未配置、不存在或与词典源文件不一致时，返回false
+   * @return boolean
+   */
+  private boolean loadSnapshot() {
+    String path = cfg.getDictSnapshot();
+    boolean mapped = ENGINE_MMAP.equalsIgnoreCase(cfg.getDictEngine());
+    if (path == null) {
+      if (mapped) {
+        System.err.println("dict_engine=mmap 需要配置 dict_snapshot，改用堆内双数组树");
+      }
+      return false;
+    }
+    File file = new File(path);
     try {
-      BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"), 512);
-      String theWord = null;
-      do {
-        theWord = br.readLine();
-        if (theWord != null && !"".equals(theWord.trim())) {
-          _MainDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
-        }
-      } while (theWord != null);
+      long checksum = DictSnapshot.checksum(cfg);
+      DictTrie[] dicts = null;
+      if (file.isFile()) {
+        dicts = mapped ? DictSnapshot.map(file, checksum) : DictSnapshot.read(file, checksum);
+      }
+      if (dicts == null && mapped) {
+        // 编译快照供本机的其他进程共享
+        System.out.println("编译词典快照：" + path);
+        compileSnapshot(cfg, file, checksum);
+        dicts = DictSnapshot.map(file, checksum);
+      }
+      if (dicts == null) {
+        System.out.println("词典快照不存在或已过期：" + path);
+        return false;
+      }
+      System.out.println("加载词典快照：" + path);
+      this.current.set(new Generation(dicts[0], dicts[1], dicts[2], this.buildMatcher(dicts[0]),
+          null));
+      return true;
 
     } catch (IOException ioe) {
-      System.err.println("Main Dictionary loading exception.");
+      System.err.println("Dictionary snapshot loading exception.");
       ioe.printStackTrace();
+      return false;
+    }
+  }
 
-    } finally {
+  /**
+   * 从待屏蔽的词条中去除主词典及扩展词典文件中仍然存在的词
+   * 扩展词来源删除一个词时，该词可能仍由其他词典文件提供，不能被屏蔽。
+   * 逐行扫描词典文件，不在内存中保留词条
+   * @param words 待屏蔽的词条（小写）
+   * @throws IOException
+   */
+  void excludeDictFileWords(Set<String> words) throws IOException {
+    List<String> dictFiles = new ArrayList<String>();
+    dictFiles.add(cfg.getMainDictionary());
+    if (cfg.getExtDictionarys() != null) {
+      dictFiles.addAll(cfg.getExtDictionarys());
+    }
+    this.excludeFileWords(dictFiles, words);
+  }
+
+  /**
+   * 从待屏蔽的停止词中去除扩展停止词典文件中仍然存在的词
+   * 被监视的停止词典删除一个词时，该词可能仍由其他扩展停止词典（包括jar包中不被监视的词典）提供，不能被屏蔽
+   * @param words 待屏蔽的停止词（小写）
+   * @throws IOException
+   */
+  void excludeStopWordFileWords(Set<String> words) throws IOException {
+    List<String> dictFiles = cfg.getExtStopWordDictionarys();
+    if (dictFiles != null) {
+      this.excludeFileWords(dictFiles, words);
+    }
+  }
+
+  /**
+   * 逐行扫描词典文件，从words中去除文件中存在的词，找不到的文件忽略
+   * @param dictFiles 相对类加载器的词典路径
+   * @param words
+   * @throws IOException
+   */
+  private void excludeFileWords(List<String> dictFiles, Set<String> words) throws IOException {
+    for (String dictFile : dictFiles) {
+      if (words.isEmpty()) {
+        return;
+      }
+      InputStream is = this.getClass().getClassLoader().getResourceAsStream(dictFile);
+      if (is == null) {
+        continue;
+      }
       try {
-        if (is != null) {
-          is.close();
-          is = null;
+        BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+        String theWord = null;
+        while ((theWord = br.readLine()) != null && !words.isEmpty()) {
+          words.remove(theWord.trim().toLowerCase());
         }
-      } catch (IOException e) {
-        e.printStackTrace();
+      } finally {
+        is.close();
       }
     }
-    // 加载扩展词典
-    this.loadExtDict();
+  }
+
+  /**
+   * 加载主词典及扩展词典
+   * 各词典文件并行读取
+   * @return List<char[]> 主词典及扩展词典的全部词条
+   */
+  private List<char[]> loadMainDict() {
+    List<String> dictFiles = new ArrayList<String>();
+    dictFiles.add(cfg.getMainDictionary());
+    List<String> extDictFiles = this.extDictFiles();
+    dictFiles.addAll(extDictFiles);
+    List<List<char[]>> loaded = DictFileLoader.readAll(dictFiles);
+    if (loaded.get(0) == null) {
+      throw new RuntimeException("Main Dictionary not found!!!");
+    }
+    return concat(loaded);
   }
 
   /**
    * 加载用户配置的扩展词典到主词库表
+   * @param words 主词典词条列表
    */
-  private void loadExtDict() {
-    // 加载扩展词典配置
+  private void loadExtDict(List<char[]> words) {
+    // 如果找不到扩展的字典，则忽略
+    words.addAll(concat(DictFileLoader.readAll(this.extDictFiles())));
+  }
+
+  /**
+   * 用户配置的扩展词典
+   * @return List<String>
+   */
+  private List<String> extDictFiles() {
     List<String> extDictFiles = cfg.getExtDictionarys();
-    if (extDictFiles != null) {
-      InputStream is = null;
-      for (String extDictName : extDictFiles) {
-        // 读取扩展词典文件
-        System.out.println("加载扩展词典：" + extDictName);
-        is = this.getClass().getClassLoader().getResourceAsStream(extDictName);
-        // 如果找不到扩展的字典，则忽略
-        if (is == null) {
-          continue;
-        }
-        try {
-          BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"), 512);
-          String theWord = null;
-          do {
-            theWord = br.readLine();
-            if (theWord != null && !"".equals(theWord.trim())) {
-              // 加载扩展词典数据到主内存词典中
-              // System.out.println(theWord);
-              _MainDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
-            }
-          } while (theWord != null);
-
-        } catch (IOException ioe) {
-          System.err.println("Extension Dictionary loading exception.");
-          ioe.printStackTrace();
-
-        } finally {
-          try {
-            if (is != null) {
-              is.close();
-              is = null;
-            }
-          } catch (IOException e) {
-            e.printStackTrace();
-          }
-        }
-      }
+    if (extDictFiles == null) {
+      return Collections.emptyList();
+    }
+    for (String extDictName : extDictFiles) {
+      System.out.println("加载扩展词典：" + extDictName);
     }
+    return extDictFiles;
   }
 
   /**
    * 加载用户扩展的停止词词典
+   * @return List<char[]> 停止词词条
    */
-  private void loadStopWordDict() {
-    // 建立一个主词典实例
-    _StopWordDict = new DictSegment((char) 0);
+  private List<char[]> loadStopWordDict() {
     // 加载扩展停止词典
     List<String> extStopWordDictFiles = cfg.getExtStopWordDictionarys();
-    if (extStopWordDictFiles != null) {
-      InputStream is = null;
-      for (String extStopWordDictName : extStopWordDictFiles) {
-        System.out.println("加载扩展停止词典：" + extStopWordDictName);
-        // 读取扩展词典文件
-        is = this.getClass().getClassLoader().getResourceAsStream(extStopWordDictName);
-        // 如果找不到扩展的字典，则忽略
-        if (is == null) {
-          continue;
-        }
-        try {
-          BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"), 512);
-          String theWord = null;
-          do {
-            theWord = br.readLine();
-            if (theWord != null && !"".equals(theWord.trim())) {
-              // System.out.println(theWord);
-              // 加载扩展停止词典数据到内存中
-              _StopWordDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
-            }
-          } while (theWord != null);
-
-        } catch (IOException ioe) {
-          System.err.println("Extension Stop word Dictionary loading exception.");
-          ioe.printStackTrace();
-
-        } finally {
-          try {
-            if (is != null) {
-              is.close();
-              is = null;
-            }
-          } catch (IOException e) {
-            e.printStackTrace();
-          }
-        }
-      }
+    if (extStopWordDictFiles == null) {
+      return new ArrayList<char[]>();
+    }
+    for (String extStopWordDictName : extStopWordDictFiles) {
+      System.out.println("加载扩展停止词典：" + extStopWordDictName);
     }
+    // 如果找不到扩展的字典，则忽略
+    return concat(DictFileLoader.readAll(extStopWordDictFiles));
   }
 
   /**
    * 加载量词词典
+   * @return List<char[]> 量词词条
    */
-  private void loadQuantifierDict() {
-    // 建立一个量词典实例
-    _QuantifierDict = new DictSegment((char) 0);
+  private List<char[]> loadQuantifierDict() {
     // 读取量词词典文件
-    InputStream is = this.getClass().getClassLoader()
-        .getResourceAsStream(cfg.getQuantifierDicionary());
-    if (is == null) {
+    List<char[]> words = DictFileLoader.read(cfg.getQuantifierDicionary());
+    if (words == null) {
       throw new RuntimeException("Quantifier Dictionary not found!!!");
     }
-    try {
-      BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"), 512);
-      String theWord = null;
-      do {
-        theWord = br.readLine();
-        if (theWord != null && !"".equals(theWord.trim())) {
-          _QuantifierDict.fillSegment(theWord.trim().toLowerCase().toCharArray());
-        }
-      } while (theWord != null);
-
-    } catch (IOException ioe) {
-      System.err.println("Quantifier Dictionary loading exception.");
-      ioe.printStackTrace();
+    return words;
+  }
 
-    } finally {
-      try {
-        if (is != null) {
-          is.close();
-          is = null;
-        }
-      } catch (IOException e) {
-        e.printStackTrace();
+  /**
+   * 合并各词典文件的词条，跳过不存在的文件
+   * @param loaded
+   * @return List<char[]>
+   */
+  private static List<char[]> concat(List<List<char[]>> loaded) {
+    int size = 0;
+    for (List<char[]> words : loaded) {
+      size += words != null ? words.size() : 0;
+    }
+    List<char[]> all = new ArrayList<char[]>(size);
+    for (List<char[]> words : loaded) {
+      if (words != null) {
+        all.addAll(words);
       }
     }
+    return all;
+  }
+
+  /**
+   * 一代词典数据
+   * 发布后不再修改，主词典及其匹配自动机总是一起替换
+   */
+  private static final class Generation {
+
+    // 主词典
+    final DictTrie mainDict;
+    // 停止词词典
+    final DictTrie stopWordDict;
+    // 量词词典
+    final DictTrie quantifierDict;
+    // 主词典的Aho-Corasick匹配自动机，未启用时为null
+    final AhoCorasickMatcher mainMatcher;
+    // 租户词典叠加的基础词典一代，基础词典为null
+    final Generation base;
+
+    Generation(DictTrie mainDict, DictTrie stopWordDict, DictTrie quantifierDict,
+        AhoCorasickMatcher mainMatcher, Generation base) {
+      this.mainDict = mainDict;
+      this.stopWordDict = stopWordDict;
+      this.quantifierDict = quantifierDict;
+      this.mainMatcher = mainMatcher;
+      this.base = base;
+    }
+
+    /**
+     * 是否为主词典、量词及停止词的合并词典树（租户词典除外）
+     * @return boolean
+     */
+    boolean isUnified() {
+      return this.base == null && this.stopWordDict instanceof FlagDictTrie;
+    }
+
   }
 
 }
@@ -0,0 +1,45 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * 扩展词来源接口
+ * 由DictionarySourcePoller定时读取，词条的变化以增量方式应用到主词典
+ */
+public interface DictionarySource {
+
+  /**
+   * 读取当前的全部词条
+   * 词条未变化时返回null，调用方保留上次读取的词条
+   * @return Set<String> 全部词条（已去除首尾空白并转为小写）
+   * @throws IOException
+   */
+  Set<String> fetch() throws IOException;
+
+}
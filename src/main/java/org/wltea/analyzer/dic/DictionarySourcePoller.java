@@ -0,0 +1,217 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时读取扩展词来源，并将词条变化增量应用到主词典
+ *
+ * 全部来源的词条合并后与上次比较，新增的词加载到主词典，
+ * 删除的词在主词典及扩展词典文件中都不存在时才会被屏蔽。
+ */
+public class DictionarySourcePoller implements Closeable {
+
+  // 需要更新的词典
+  private final Dictionary dictionary;
+  // 轮询间隔（秒）
+  private final long interval;
+  // 词来源 ---> 上次读取的词条
+  private final Map<DictionarySource, Set<String>> sources;
+  // 已从来源删除、但因扫描词典文件失败尚未屏蔽的词条，下次轮询时重试
+  private final Set<String> pendingRemovals;
+  private final ScheduledExecutorService executor;
+
+  // 已完成的轮询次数
+  private volatile long pollCount;
+  // 已应用到词典的更新次数
+  private volatile long updateCount;
+
+  /**
+   * @param dictionary
+   * @param interval 轮询间隔（秒）
+   */
+  DictionarySourcePoller(Dictionary dictionary, long interval) {
+    this.dictionary = dictionary;
+    this.interval = interval;
+    this.sources = new LinkedHashMap<DictionarySource, Set<String>>();
+    this.pendingRemovals = new HashSet<String>();
+    this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "IK-DictionarySourcePoller");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * 添加词来源，下次轮询时读取
+   * @param source
+   */
+  synchronized void addSource(DictionarySource source) {
+    this.sources.put(source, Collections.<String> emptySet());
+  }
+
+  /**
+   * 启动定时轮询，立即进行第一次读取
+   */
+  void start() {
+    this.executor.scheduleWithFixedDelay(new Runnable() {
+      public void run() {
+        try {
+          poll();
+        } catch (RuntimeException e) {
+          // 异常不能中断后续的定时轮询
+          e.printStackTrace();
+        }
+      }
+    }, 0, this.interval, TimeUnit.SECONDS);
+  }
+
+  /**
+   * 停止轮询
+   */
+  public void close() throws IOException {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * 返回已完成的轮询次数
+   * @return long
+   */
+  public long getPollCount() {
+    return this.pollCount;
+  }
+
+  /**
+   * 返回已应用到词典的更新次数，词条没有变化的轮询不计入
+   * @return long
+   */
+  public long getUpdateCount() {
+    return this.updateCount;
+  }
+
+  /**
+   * 读取全部来源，将词条变化应用到词典
+   * @return boolean 词条有变化并已应用到词典时返回true
+   */
+  synchronized boolean poll() {
+    this.pollCount++;
+    Set<String> oldWords = new HashSet<String>();
+    Set<String> newWords = new HashSet<String>();
+    boolean changed = false;
+    for (Map.Entry<DictionarySource, Set<String>> entry : this.sources.entrySet()) {
+      oldWords.addAll(entry.getValue());
+      Set<String> words = null;
+      try {
+        words = entry.getKey().fetch();
+      } catch (IOException ioe) {
+        // 读取失败时保留上次的词条
+        System.err.println("Dictionary source loading exception.");
+        ioe.printStackTrace();
+      }
+      if (words != null) {
+        entry.setValue(words);
+        changed = true;
+      }
+      newWords.addAll(entry.getValue());
+    }
+    if (!changed && this.pendingRemovals.isEmpty()) {
+      return false;
+    }
+
+    List<char[]> addedWords = new ArrayList<char[]>();
+    for (String word : newWords) {
+      if (!oldWords.contains(word)) {
+        addedWords.add(word.toCharArray());
+      }
+    }
+    // 上次未能屏蔽的词条一并处理，其间重新出现在来源中的词不再屏蔽
+    Set<String> removedWords = new HashSet<String>(this.pendingRemovals);
+    removedWords.addAll(oldWords);
+    removedWords.removeAll(newWords);
+    this.pendingRemovals.clear();
+    if (!removedWords.isEmpty()) {
+      try {
+        this.excludeDictFileWords(removedWords);
+      } catch (IOException ioe) {
+        // 无法确认是否仍由词典文件提供，本次不屏蔽，下次轮询时重试
+        System.err.println("Dictionary file scanning exception.");
+        ioe.printStackTrace();
+        this.pendingRemovals.addAll(removedWords);
+        removedWords.clear();
+      }
+    }
+    List<char[]> disabledWords = new ArrayList<char[]>(removedWords.size());
+    for (String word : removedWords) {
+      disabledWords.add(word.toCharArray());
+    }
+    if (addedWords.isEmpty() && disabledWords.isEmpty()) {
+      return false;
+    }
+    List<char[]> none = Collections.emptyList();
+    this.dictionary.update(addedWords, disabledWords, none, none);
+    this.updateCount++;
+    return true;
+  }
+
+  /**
+   * 从待屏蔽的词条中去除词典文件中仍然存在的词
+   * @param words
+   * @throws IOException
+   */
+  void excludeDictFileWords(Set<String> words) throws IOException {
+    this.dictionary.excludeDictFileWords(words);
+  }
+
+  /**
+   * 从待屏蔽的词条中去除来源中仍然存在的词
+   * 扩展词典文件删除一个词时，该词可能仍由来源提供，不能被屏蔽
+   * @param words 待屏蔽的词条（小写）
+   */
+  synchronized void excludeSourceWords(Set<String> words) {
+    for (Set<String> sourceWords : this.sources.values()) {
+      if (words.isEmpty()) {
+        return;
+      }
+      words.removeAll(sourceWords);
+    }
+  }
+
+}
@@ -0,0 +1,795 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 双数组词典树
+ *
+ * 字符先映射为紧凑的字符编码code（按首次出现顺序从1开始分配），
+ * 状态s经字符编码code转移到状态t = base[s] + code，当且仅当check[t] == s时转移有效。
+ * 每个状态只占用几个数组槽位，不再为每个字符创建DictSegment对象和子节点容器。
+ * firstChild/sibling按编码升序记录子节点链表，用于插入新词时的冲突迁移。
+ * 编码0表示字符不在词典中，同时作为链表结束标记。
+ *
+ * 词典加载时使用build批量构建：词条排序后逐层为每个节点一次性分配全部子节点；
+ * 运行期通过fillSegment插入的新词在槽位冲突时迁移子节点较少的一方。
+ */
+class DoubleArrayTrie implements DictTrie {
+
+  // 根节点状态下标，下标0不使用
+  private static final int ROOT = 1;
+  // 数组初始大小
+  private static final int INITIAL_CAPACITY = 65536 * 2;
+  // 子节点数目达到该值的节点，从上一个大节点附近开始搜索空闲槽位
+  private static final int LARGE_NODE = 64;
+  // 大节点回溯搜索的槽位数
+  private static final int LARGE_NODE_WINDOW = 16384;
+
+  // 词条字典序比较器
+  private static final Comparator<char[]> CHARS_COMPARATOR = new Comparator<char[]>() {
+    public int compare(char[] o1, char[] o2) {
+      int n = Math.min(o1.length, o2.length);
+      for (int i = 0; i < n; i++) {
+        if (o1[i] != o2[i]) {
+          return o1[i] - o2[i];
+        }
+      }
+      return o1.length - o2.length;
+    }
+  };
+
+  // 状态转移基址，0表示尚无子节点
+  private int[] base;
+  // 状态转移校验，记录父状态下标，0表示空闲槽位
+  private int[] check;
+  // 状态对应的词条状态，1表示从根节点到当前状态的路径表示一个词
+  private byte[] nodeStates;
+  // 第一个子节点的字符编码
+  private char[] firstChild;
+  // 下一个兄弟节点的字符编码
+  private char[] sibling;
+  // 槽位占用位图，与check同步维护，搜索空闲槽位时每次可跳过64个槽位
+  private long[] used;
+  // 字符 ---> 字符编码 映射表
+  private final char[] charCodes;
+  // 下一个可分配的字符编码
+  private int nextCode;
+
+  // 空闲槽位的搜索起点
+  private int nextCheckPos;
+  // 上一个大节点的放置位置
+  private int largeNodePos;
+  // 已使用的最大下标+1
+  private int size;
+
+  DoubleArrayTrie() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param capacity 数组初始大小
+   */
+  private DoubleArrayTrie(int capacity) {
+    this.charCodes = new char[Character.MAX_VALUE + 1];
+    this.nextCode = 1;
+    this.resize(capacity);
+    this.occupy(0, -1);
+    this.occupy(ROOT, -1);
+    this.nextCheckPos = ROOT + 1;
+    this.size = ROOT + 1;
+  }
+
+  /**
+   * 匹配词段
+   * @param charArray
+   * @param begin
+   * @param length
+   * @return Hit
+   */
+  public Hit match(char[] charArray, int begin, int length) {
+    Hit searchHit = new Hit();
+    searchHit.setBegin(begin);
+    return this.match(charArray, begin, length, ROOT, searchHit);
+  }
+
+  /**
+   * 从Hit记录的状态继续匹配一个字符
+   * @param charArray
+   * @param currentIndex
+   * @param matchedHit
+   * @return Hit
+   */
+  public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+    int state = matchedHit.getMatchedState();
+    // 将HIT状态重置
+    matchedHit.setUnmatch();
+    return this.match(charArray, currentIndex, 1, state, matchedHit);
+  }
+
+  public void rootCursor(DictCursor cursor, int slot) {
+    cursor.states[slot] = ROOT;
+  }
+
+  public int matchWithCursor(DictCursor cursor, int slot, char[] charArray, int currentIndex) {
+    // 引用实例变量为本地变量，避免查询时遇到更新的同步问题
+    int[] check = this.check;
+    cursor.wordFlags[slot] = 0;
+    int state = cursor.states[slot];
+    int b = this.base[state];
+    if (b == 0) {
+      return 0;
+    }
+    int code = this.charCodes[charArray[currentIndex]];
+    if (code == 0) {
+      return 0;
+    }
+    int next = b + code;
+    if (next >= check.length || check[next] != state) {
+      return 0;
+    }
+    int result = this.nodeStates[next] == 1 ? DictCursor.MATCH : 0;
+    if (this.firstChild[next] != 0) {
+      result |= DictCursor.PREFIX;
+      cursor.states[slot] = next;
+    }
+    return result;
+  }
+
+  /**
+   * 从指定状态开始匹配词段
+   * @param charArray
+   * @param begin
+   * @param length
+   * @param state
+   * @param searchHit
+   * @return Hit
+   */
+  private Hit match(char[] charArray, int begin, int length, int state, Hit searchHit) {
+    // 引用实例变量为本地变量，避免查询时遇到更新的同步问题
+    int[] base = this.base;
+    int[] check = this.check;
+    char[] charCodes = this.charCodes;
+
+    int end = begin + length;
+    for (int i = begin; i < end; i++) {
+      // 设置hit的当前处理位置
+      searchHit.setEnd(i);
+      int b = base[state];
+      if (b == 0) {
+        // 当前状态没有子节点，不匹配
+        return searchHit;
+      }
+      int code = charCodes[charArray[i]];
+      if (code == 0) {
+        // 字符不在词典中，不匹配
+        return searchHit;
+      }
+      int next = b + code;
+      if (next >= check.length || check[next] != state) {
+        // 没有找到对应字符的转移，不匹配
+        return searchHit;
+      }
+      state = next;
+    }
+
+    if (this.nodeStates[state] == 1) {
+      // 添加HIT状态为完全匹配
+      searchHit.setMatch();
+    }
+    if (this.firstChild[state] != 0) {
+      // 添加HIT状态为前缀匹配，并记录当前状态
+      searchHit.setPrefix();
+      searchHit.setMatchedState(this, state);
+    }
+    return searchHit;
+  }
+
+  /**
+   * 加载填充词典片段
+   * @param charArray
+   */
+  public synchronized void fillSegment(char[] charArray) {
+    this.fillSegment(charArray, 1);
+  }
+
+  /**
+   * 屏蔽词典中的一个词
+   * @param charArray
+   */
+  public synchronized void disableSegment(char[] charArray) {
+    this.fillSegment(charArray, 0);
+  }
+
+  /**
+   * 写时复制更新
+   * 复制全部数组后在副本上插入及屏蔽词条，当前对象的数组不做任何修改
+   * @param addedWords
+   * @param disabledWords
+   * @return DictTrie 新的双数组树
+   */
+  public DictTrie update(Collection<char[]> addedWords, Collection<char[]> disabledWords) {
+    DoubleArrayTrie dat = this.copy();
+    dat.apply(addedWords, disabledWords);
+    return dat;
+  }
+
+  /**
+   * 在当前对象上插入及屏蔽词条
+   * @param addedWords
+   * @param disabledWords
+   */
+  synchronized void apply(Collection<char[]> addedWords, Collection<char[]> disabledWords) {
+    for (char[] word : addedWords) {
+      this.fillSegment(word, 1);
+    }
+    for (char[] word : disabledWords) {
+      this.fillSegment(word, 0);
+    }
+  }
+
+  /**
+   * 复制当前双数组树
+   * @return DoubleArrayTrie
+   */
+  private synchronized DoubleArrayTrie copy() {
+    int n = this.size;
+    DoubleArrayTrie dat = new DoubleArrayTrie(ROOT + 1);
+    System.arraycopy(this.charCodes, 0, dat.charCodes, 0, this.charCodes.length);
+    dat.nextCode = this.nextCode;
+    dat.nextCheckPos = this.nextCheckPos;
+    dat.largeNodePos = this.largeNodePos;
+    dat.base = Arrays.copyOf(this.base, n);
+    dat.nodeStates = Arrays.copyOf(this.nodeStates, n);
+    dat.firstChild = Arrays.copyOf(this.firstChild, n);
+    dat.sibling = Arrays.copyOf(this.sibling, n);
+    dat.used = Arrays.copyOf(this.used, (n + 63) >> 6);
+    dat.check = Arrays.copyOf(this.check, n);
+    dat.size = n;
+    return dat;
+  }
+
+  /**
+   * 批量构建词典树，丢弃已有的全部词条
+   * 字符编码按出现频率分配，高频字符编码较小，数组更紧凑
+   * @param words 词条列表，该列表会被排序
+   */
+  synchronized void build(List<char[]> words) {
+    // 按字典序排序，相同前缀的词条相邻
+    Collections.sort(words, CHARS_COMPARATOR);
+
+    // 统计字符频率，分配字符编码
+    final int[] counts = new int[Character.MAX_VALUE + 1];
+    for (char[] word : words) {
+      for (char c : word) {
+        counts[c]++;
+      }
+    }
+    Character[] chars = new Character[Character.MAX_VALUE + 1];
+    int distinct = 0;
+    for (int c = 0; c < counts.length; c++) {
+      if (counts[c] > 0) {
+        chars[distinct++] = (char) c;
+      }
+    }
+    Arrays.sort(chars, 0, distinct, new Comparator<Character>() {
+      public int compare(Character o1, Character o2) {
+        return counts[o2] - counts[o1];
+      }
+    });
+    Arrays.fill(this.charCodes, (char) 0);
+    for (int i = 0; i < distinct; i++) {
+      this.charCodes[chars[i]] = (char) (i + 1);
+    }
+    this.nextCode = distinct + 1;
+
+    // 重置数组，逐层构建
+    this.check = null;
+    this.resize(Math.max(INITIAL_CAPACITY, words.size() * 2));
+    this.occupy(0, -1);
+    this.occupy(ROOT, -1);
+    this.nextCheckPos = ROOT + 1;
+    this.largeNodePos = 0;
+    this.size = ROOT + 1;
+    this.place(words, ROOT, 0, 0, words.size());
+    // 释放数组尾部未使用的空间
+    this.resize(this.size);
+  }
+
+  /**
+   * 为状态一次性分配全部子节点，并递归处理子节点
+   * words[lo, hi)中的词条共享长度为depth的前缀，该前缀对应状态state
+   * @param words 已排序的词条
+   * @param state
+   * @param depth
+   * @param lo
+   * @param hi
+   */
+  private void place(List<char[]> words, int state, int depth, int lo, int hi) {
+    // 跳过长度等于depth的词条（可能重复），它们以当前状态结尾
+    while (lo < hi && words.get(lo).length == depth) {
+      if (depth > 0) {
+        this.nodeStates[state] = 1;
+      }
+      lo++;
+    }
+    if (lo >= hi) {
+      return;
+    }
+
+    // 统计子节点数目
+    int count = 0;
+    for (int i = lo; i < hi; i++) {
+      if (i == lo || words.get(i)[depth] != words.get(i - 1)[depth]) {
+        count++;
+      }
+    }
+    // 编码在高32位，便于按编码排序；低32位为子节点区间的序号
+    long[] children = new long[count];
+    int[] bounds = new int[count + 1];
+    int k = 0;
+    for (int i = lo; i < hi; i++) {
+      if (i == lo || words.get(i)[depth] != words.get(i - 1)[depth]) {
+        long code = this.charCodes[words.get(i)[depth]];
+        children[k] = (code << 32) | k;
+        bounds[k++] = i;
+      }
+    }
+    bounds[count] = hi;
+    Arrays.sort(children);
+
+    char[] labels = new char[count];
+    for (int i = 0; i < count; i++) {
+      labels[i] = (char) (children[i] >>> 32);
+    }
+    int b = this.findBase(labels);
+    this.base[state] = b;
+    // 先占用全部子节点槽位，再递归处理下一层
+    this.firstChild[state] = labels[0];
+    for (int i = 0; i < count; i++) {
+      int next = b + labels[i];
+      this.occupy(next, state);
+      this.sibling[next] = i + 1 < count ? labels[i + 1] : 0;
+      if (next >= this.size) {
+        this.size = next + 1;
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      int j = (int) children[i];
+      this.place(words, b + labels[i], depth + 1, bounds[j], bounds[j + 1]);
+    }
+  }
+
+  /**
+   * 返回已使用的数组槽位数
+   * @return int
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * 基于当前词条构建Aho-Corasick匹配自动机
+   * 自动机复制转移数组，之后对词典树的修改不影响自动机
+   * @return AhoCorasickMatcher
+   */
+  synchronized AhoCorasickMatcher buildMatcher() {
+    int n = this.size;
+    return new AhoCorasickMatcher(Arrays.copyOf(this.base, n), Arrays.copyOf(this.check, n),
+        this.charCodes.clone(), this.nodeStates, this.firstChild, this.sibling, n);
+  }
+
+  /**
+   * 返回序列化后的字节数
+   * @return int
+   */
+  synchronized int byteSize() {
+    // 4个int状态 + 字符编码表 + 每个状态13字节（base、check、firstChild、sibling、nodeStates）
+    return 4 * 4 + this.charCodes.length * 2 + this.size * 13;
+  }
+
+  /**
+   * 将数组序列化到缓冲区，只写入已使用的部分
+   * @param buf
+   */
+  synchronized void writeTo(ByteBuffer buf) {
+    int n = this.size;
+    buf.putInt(this.nextCode);
+    buf.putInt(n);
+    buf.putInt(this.nextCheckPos);
+    buf.putInt(this.largeNodePos);
+    buf.asCharBuffer().put(this.charCodes);
+    buf.position(buf.position() + this.charCodes.length * 2);
+    buf.asIntBuffer().put(this.base, 0, n);
+    buf.position(buf.position() + n * 4);
+    buf.asIntBuffer().put(this.check, 0, n);
+    buf.position(buf.position() + n * 4);
+    buf.asCharBuffer().put(this.firstChild, 0, n);
+    buf.position(buf.position() + n * 2);
+    buf.asCharBuffer().put(this.sibling, 0, n);
+    buf.position(buf.position() + n * 2);
+    buf.put(this.nodeStates, 0, n);
+  }
+
+  /**
+   * 从缓冲区读取writeTo写入的数组
+   * @param buf
+   * @return DoubleArrayTrie
+   */
+  static DoubleArrayTrie readFrom(ByteBuffer buf) {
+    DoubleArrayTrie dat = new DoubleArrayTrie(ROOT + 1);
+    dat.nextCode = buf.getInt();
+    int n = buf.getInt();
+    dat.nextCheckPos = buf.getInt();
+    dat.largeNodePos = buf.getInt();
+    buf.asCharBuffer().get(dat.charCodes);
+    buf.position(buf.position() + dat.charCodes.length * 2);
+    int[] base = new int[n];
+    buf.asIntBuffer().get(base);
+    buf.position(buf.position() + n * 4);
+    int[] check = new int[n];
+    buf.asIntBuffer().get(check);
+    buf.position(buf.position() + n * 4);
+    char[] firstChild = new char[n];
+    buf.asCharBuffer().get(firstChild);
+    buf.position(buf.position() + n * 2);
+    char[] sibling = new char[n];
+    buf.asCharBuffer().get(sibling);
+    buf.position(buf.position() + n * 2);
+    byte[] nodeStates = new byte[n];
+    buf.get(nodeStates);
+    // 槽位占用位图由check还原
+    long[] used = new long[(n + 63) >> 6];
+    for (int i = 0; i < n; i++) {
+      if (check[i] != 0) {
+        used[i >> 6] |= 1L << (i & 63);
+      }
+    }
+    dat.base = base;
+    dat.nodeStates = nodeStates;
+    dat.firstChild = firstChild;
+    dat.sibling = sibling;
+    dat.used = used;
+    dat.check = check;
+    dat.size = n;
+    return dat;
+  }
+
+  /**
+   * 加载填充词典片段
+   * @param charArray
+   * @param enabled =1表明一个完整的词，=0表示从词典中屏蔽当前词
+   */
+  private void fillSegment(char[] charArray, int enabled) {
+    if (charArray.length == 0) {
+      return;
+    }
+    int state = ROOT;
+    for (char c : charArray) {
+      char code = this.charCodes[c];
+      int next = code == 0 ? -1 : this.child(state, code);
+      if (next < 0) {
+        if (enabled == 0) {
+          // 屏蔽的词不在词典中，无需处理
+          return;
+        }
+        if (code == 0) {
+          // 为新字符分配编码
+          code = (char) this.nextCode++;
+          this.charCodes[c] = code;
+        }
+        next = this.insertChild(state, code);
+      }
+      state = next;
+    }
+    this.nodeStates[state] = (byte) enabled;
+  }
+
+  /**
+   * 查找状态下字符编码c对应的子状态
+   * @param state
+   * @param c
+   * @return int 子状态下标，没有则返回-1
+   */
+  private int child(int state, char c) {
+    int b = this.base[state];
+    if (b == 0) {
+      return -1;
+    }
+    int next = b + c;
+    if (next < this.check.length && this.check[next] == state) {
+      return next;
+    }
+    return -1;
+  }
+
+  /**
+   * 为状态添加字符编码c对应的子状态，必要时迁移冲突的节点
+   * @param state
+   * @param c
+   * @return int 新的子状态下标
+   */
+  private int insertChild(int state, char c) {
+    if (this.base[state] == 0) {
+      // 当前节点尚无子节点，为其分配base
+      this.base[state] = this.findBase(new char[] { c });
+    } else {
+      int next = this.base[state] + c;
+      this.ensureCapacity(next + 1);
+      if (this.check[next] != 0) {
+        int owner = this.check[next];
+        if (owner > 0 && this.countChildren(owner) <= this.countChildren(state)) {
+          // 占用槽位的节点子节点较少，迁移占用者；当前节点可能是被迁移的子节点
+          state = this.relocate(owner, this.labelsOf(owner, (char) 0), state);
+        } else {
+          // 迁移当前节点的全部子节点，为新字符腾出位置
+          this.relocate(state, this.labelsOf(state, c), state);
+        }
+      }
+    }
+
+    int next = this.base[state] + c;
+    this.ensureCapacity(next + 1);
+    this.occupy(next, state);
+    this.linkChild(state, c, next);
+    if (next >= this.size) {
+      this.size = next + 1;
+    }
+    return next;
+  }
+
+  /**
+   * 将状态的全部子节点迁移到新的base上
+   * @param parent 被迁移子节点的父状态
+   * @param labels 迁移后需要容纳的全部字符编码（升序）
+   * @param tracked 需要追踪新位置的状态
+   * @return int tracked迁移后的下标
+   */
+  private int relocate(int parent, char[] labels, int tracked) {
+    int oldBase = this.base[parent];
+    int newBase = this.findBase(labels);
+    for (char label = this.firstChild[parent]; label != 0; label = this.sibling[newBase + label]) {
+      int from = oldBase + label;
+      int to = newBase + label;
+      this.base[to] = this.base[from];
+      this.occupy(to, parent);
+      this.nodeStates[to] = this.nodeStates[from];
+      this.firstChild[to] = this.firstChild[from];
+      this.sibling[to] = this.sibling[from];
+      // 孙节点的check改为指向新位置
+      int childBase = this.base[from];
+      for (char g = this.firstChild[from]; g != 0; g = this.sibling[childBase + g]) {
+        this.check[childBase + g] = to;
+      }
+      // 释放原槽位
+      this.base[from] = 0;
+      this.release(from);
+      this.nodeStates[from] = 0;
+      this.firstChild[from] = 0;
+      this.sibling[from] = 0;
+      if (tracked == from) {
+        tracked = to;
+      }
+      if (to >= this.size) {
+        this.size = to + 1;
+      }
+    }
+    this.base[parent] = newBase;
+    return tracked;
+  }
+
+  /**
+   * 搜索能容纳全部字符编码的base
+   * @param labels 升序排列的字符编码
+   * @return int base
+   */
+  private int findBase(char[] labels) {
+    int first = labels[0];
+    int last = labels[labels.length - 1];
+    int pos = Math.max(first + 1, this.nextCheckPos);
+    int nonZero = 0;
+    boolean firstFree = true;
+    boolean large = labels.length >= LARGE_NODE;
+    if (large) {
+      // 子节点很多的节点很难放入已经密集的区域，从上一个大节点附近开始搜索
+      pos = Math.max(pos, this.largeNodePos - LARGE_NODE_WINDOW);
+    }
+
+    outer: while (true) {
+      // 跳到下一个空闲槽位
+      int free = this.nextFree(pos);
+      nonZero += free - pos;
+      pos = free;
+      if (firstFree) {
+        this.nextCheckPos = pos;
+        firstFree = false;
+      }
+
+      int b = pos - first;
+      this.ensureCapacity(b + last + 1);
+      for (int i = 1; i < labels.length; i++) {
+        if (this.isUsed(b + labels[i])) {
+          pos++;
+          continue outer;
+        }
+      }
+      if (large) {
+        this.largeNodePos = pos;
+      }
+      // 搜索区间已经非常密集，下次从当前位置开始搜索
+      if (1.0 * nonZero / (pos - this.nextCheckPos + 1) >= 0.95) {
+        this.nextCheckPos = pos;
+      }
+      return b;
+    }
+  }
+
+  /**
+   * 返回不小于pos的第一个空闲槽位，超出数组容量的槽位都是空闲的
+   * @param pos
+   * @return int
+   */
+  private int nextFree(int pos) {
+    long[] used = this.used;
+    int index = pos >> 6;
+    if (index >= used.length) {
+      return pos;
+    }
+    long free = ~used[index] & (-1L << (pos & 63));
+    while (free == 0) {
+      if (++index >= used.length) {
+        return index << 6;
+      }
+      free = ~used[index];
+    }
+    return (index << 6) + Long.numberOfTrailingZeros(free);
+  }
+
+  /**
+   * 判断槽位是否已被占用
+   * @param pos
+   * @return boolean
+   */
+  private boolean isUsed(int pos) {
+    return (this.used[pos >> 6] & (1L << (pos & 63))) != 0;
+  }
+
+  /**
+   * 占用槽位
+   * @param pos
+   * @param parent 父状态
+   */
+  private void occupy(int pos, int parent) {
+    this.check[pos] = parent;
+    this.used[pos >> 6] |= 1L << (pos & 63);
+  }
+
+  /**
+   * 释放槽位
+   * @param pos
+   */
+  private void release(int pos) {
+    this.check[pos] = 0;
+    this.used[pos >> 6] &= ~(1L << (pos & 63));
+  }
+
+  /**
+   * 按字符编码升序将子节点挂入父节点的子节点链表
+   * @param parent
+   * @param c
+   * @param next 子节点下标
+   */
+  private void linkChild(int parent, char c, int next) {
+    char head = this.firstChild[parent];
+    if (head == 0 || c < head) {
+      this.sibling[next] = head;
+      this.firstChild[parent] = c;
+      return;
+    }
+    int b = this.base[parent];
+    char prev = head;
+    while (this.sibling[b + prev] != 0 && this.sibling[b + prev] < c) {
+      prev = this.sibling[b + prev];
+    }
+    this.sibling[next] = this.sibling[b + prev];
+    this.sibling[b + prev] = c;
+  }
+
+  /**
+   * 返回状态的全部子节点字符编码，并按升序插入额外的字符编码
+   * @param state
+   * @param extra 额外的字符编码，0表示没有
+   * @return char[]
+   */
+  private char[] labelsOf(int state, char extra) {
+    int count = this.countChildren(state) + (extra != 0 ? 1 : 0);
+    char[] labels = new char[count];
+    int i = 0;
+    int b = this.base[state];
+    for (char label = this.firstChild[state]; label != 0; label = this.sibling[b + label]) {
+      labels[i++] = label;
+    }
+    if (extra != 0) {
+      labels[i] = extra;
+      Arrays.sort(labels);
+    }
+    return labels;
+  }
+
+  /**
+   * 统计状态的子节点数目
+   * @param state
+   * @return int
+   */
+  private int countChildren(int state) {
+    int count = 0;
+    int b = this.base[state];
+    for (char label = this.firstChild[state]; label != 0; label = this.sibling[b + label]) {
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * 确保数组容量
+   * @param capacity
+   */
+  private void ensureCapacity(int capacity) {
+    if (capacity > this.check.length) {
+      this.resize(Math.max(capacity, this.check.length + (this.check.length >> 1)));
+    }
+  }
+
+  /**
+   * 调整数组大小
+   * @param newSize
+   */
+  private void resize(int newSize) {
+    if (this.check == null) {
+      this.base = new int[newSize];
+      this.check = new int[newSize];
+      this.nodeStates = new byte[newSize];
+      this.firstChild = new char[newSize];
+      this.sibling = new char[newSize];
+      this.used = new long[(newSize + 63) >> 6];
+    } else {
+      // 先扩展附属数组，最后替换check，保证查询时不会越界
+      this.nodeStates = Arrays.copyOf(this.nodeStates, newSize);
+      this.firstChild = Arrays.copyOf(this.firstChild, newSize);
+      this.sibling = Arrays.copyOf(this.sibling, newSize);
+      this.used = Arrays.copyOf(this.used, (newSize + 63) >> 6);
+      this.base = Arrays.copyOf(this.base, newSize);
+      this.check = Arrays.copyOf(this.check, newSize);
+    }
+  }
+
+}
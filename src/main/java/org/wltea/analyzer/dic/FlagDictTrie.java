@@ -0,0 +1,91 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.Collection;
+
+/**
+ * 合并词典树上某一标志位的视图
+ * 主词典、量词及停止词保存在同一棵DictSegment树中，节点状态为各词典标志位的组合；
+ * 视图在合并树上匹配，完全匹配及前缀匹配都只考虑带有指定标志位的词，
+ * 结果与独立的词典树一致
+ */
+class FlagDictTrie implements DictTrie {
+
+  // 合并词典树的根节点
+  private final DictSegment root;
+  // 视图对应的标志位
+  private final int flag;
+
+  FlagDictTrie(DictSegment root, int flag) {
+    this.root = root;
+    this.flag = flag;
+  }
+
+  DictSegment getRoot() {
+    return root;
+  }
+
+  public Hit match(char[] charArray, int begin, int length) {
+    return this.redirect(this.root.match(charArray, begin, length, null, this.flag));
+  }
+
+  public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+    return this.redirect(matchedHit.getMatchedDictSegment().match(charArray, currentIndex, 1,
+      matchedHit, this.flag));
+  }
+
+  public void rootCursor(DictCursor cursor, int slot) {
+    cursor.nodes[slot] = this.root;
+  }
+
+  public int matchWithCursor(DictCursor cursor, int slot, char[] charArray, int currentIndex) {
+    return DictSegment.matchWithCursor(cursor, slot, charArray[currentIndex], this.flag);
+  }
+
+  /**
+   * 由视图继续后续的匹配，保持按视图的标志位匹配
+   */
+  private Hit redirect(Hit hit) {
+    if (hit.isPrefix()) {
+      hit.setMatchedState(this, 0);
+    }
+    return hit;
+  }
+
+  public void fillSegment(char[] charArray) {
+    this.root.fillSegment(charArray, this.flag);
+  }
+
+  public void disableSegment(char[] charArray) {
+    this.root.disableSegment(charArray, this.flag);
+  }
+
+  public DictTrie update(Collection<char[]> addedWords, Collection<char[]> disabledWords) {
+    return new FlagDictTrie(this.root.update(addedWords, disabledWords, this.flag), this.flag);
+  }
+
+}
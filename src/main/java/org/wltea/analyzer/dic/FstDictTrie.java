@@ -0,0 +1,329 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.store.InputStreamDataInput;
+import org.apache.lucene.store.OutputStreamDataOutput;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.IntsRefFSTEnum;
+import org.apache.lucene.util.fst.NoOutputs;
+
+/**
+ * 基于Lucene FST的只读词典树
+ *
+ * 词条按UTF-16编码单元构建为最小无环自动机，公共前缀及公共后缀都只存储一次，
+ * 自动机数据保存在一块连续的byte[]中，可直接序列化。
+ * Hit中记录当前自动机节点的地址，逐字匹配的语义与DictSegment相同。
+ * 自动机构建后不能修改，update时按合并后的词条重新构建
+ */
+class FstDictTrie implements DictTrie {
+
+  // 词条按UTF-16编码单元排序，与FST要求的输入顺序一致
+  private static final Comparator<char[]> WORD_ORDER = new Comparator<char[]>() {
+    public int compare(char[] a, char[] b) {
+      int length = Math.min(a.length, b.length);
+      for (int i = 0; i < length; i++) {
+        if (a[i] != b[i]) {
+          return a[i] - b[i];
+        }
+      }
+      return a.length - b.length;
+    }
+  };
+
+  // 词条自动机，没有词条时为null
+  private final FST<Object> fst;
+  // 根节点地址
+  private final int root;
+
+  private FstDictTrie(FST<Object> fst) {
+    this.fst = fst;
+    this.root = fst == null ? 0 : (int) fst.getFirstArc(new FST.Arc<Object>()).target;
+  }
+
+  /**
+   * 批量构建词典树
+   * @param words 词条列表，可以无序及重复
+   * @return FstDictTrie
+   */
+  static FstDictTrie build(Collection<char[]> words) {
+    return build(words, Collections.<String> emptySet());
+  }
+
+  /**
+   * 批量构建词典树
+   * @param words 词条列表，可以无序及重复
+   * @param excludedWords 不加入词典树的词条
+   * @return FstDictTrie
+   */
+  private static FstDictTrie build(Collection<char[]> words, Set<String> excludedWords) {
+    char[][] sorted = words.toArray(new char[words.size()][]);
+    Arrays.sort(sorted, WORD_ORDER);
+    try {
+      Builder<Object> builder = new Builder<Object>(FST.INPUT_TYPE.BYTE2,
+          NoOutputs.getSingleton());
+      IntsRefBuilder input = new IntsRefBuilder();
+      char[] last = null;
+      for (char[] word : sorted) {
+        if (word.length == 0 || (last != null && WORD_ORDER.compare(last, word) == 0)
+            || excludedWords.contains(new String(word))) {
+          continue;
+        }
+        input.clear();
+        for (char c : word) {
+          input.append(c);
+        }
+        builder.add(input.get(), NoOutputs.getSingleton().getNoOutput());
+        last = word;
+      }
+      return new FstDictTrie(builder.finish());
+    } catch (IOException e) {
+      // 只在内存中构建，不会发生
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * 从序列化数据读取词典树
+   * @param is
+   * @return FstDictTrie
+   * @throws IOException
+   */
+  static FstDictTrie readFrom(InputStream is) throws IOException {
+    InputStreamDataInput in = new InputStreamDataInput(is);
+    if (in.readByte() == 0) {
+      return new FstDictTrie(null);
+    }
+    return new FstDictTrie(new FST<Object>(in, NoOutputs.getSingleton()));
+  }
+
+  /**
+   * 序列化词典树
+   * @param os
+   * @throws IOException
+   */
+  void writeTo(OutputStream os) throws IOException {
+    OutputStreamDataOutput out = new OutputStreamDataOutput(os);
+    out.writeByte((byte) (this.fst == null ? 0 : 1));
+    if (this.fst != null) {
+      this.fst.save(out);
+    }
+  }
+
+  /**
+   * 自动机占用的内存
+   * @return long 字节数
+   */
+  long ramBytesUsed() {
+    return this.fst == null ? 0 : this.fst.ramBytesUsed();
+  }
+
+  /**
+   * 匹配词段
+   * @param charArray
+   * @param begin
+   * @param length
+   * @return Hit
+   */
+  public Hit match(char[] charArray, int begin, int length) {
+    Hit searchHit = new Hit();
+    searchHit.setBegin(begin);
+    return this.match(charArray, begin, length, this.root, searchHit);
+  }
+
+  /**
+   * 从已匹配的Hit继续向下匹配一个字符
+   * @param charArray
+   * @param currentIndex
+   * @param matchedHit
+   * @return Hit
+   */
+  public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+    int node = matchedHit.getMatchedState();
+    // 将HIT状态重置
+    matchedHit.setUnmatch();
+    return this.match(charArray, currentIndex, 1, node, matchedHit);
+  }
+
+  public void rootCursor(DictCursor cursor, int slot) {
+    cursor.states[slot] = this.root;
+  }
+
+  public int matchWithCursor(DictCursor cursor, int slot, char[] charArray, int currentIndex) {
+    cursor.wordFlags[slot] = 0;
+    if (this.fst == null) {
+      return 0;
+    }
+    if (cursor.scratchOwner != this) {
+      // 查找转移使用的弧及读取器由游标保存，同一自动机上的匹配重复使用
+      cursor.scratch = new Scratch(this.fst);
+      cursor.scratchOwner = this;
+    }
+    Scratch scratch = (Scratch) cursor.scratch;
+    scratch.follow.target = cursor.states[slot];
+    try {
+      if (this.fst.findTargetArc(charArray[currentIndex], scratch.follow, scratch.arc,
+        scratch.reader) == null) {
+        return 0;
+      }
+    } catch (IOException e) {
+      // 自动机数据在内存中，不会发生
+      throw new IllegalStateException(e);
+    }
+    int result = scratch.arc.isFinal() ? DictCursor.MATCH : 0;
+    if (FST.targetHasArcs(scratch.arc)) {
+      result |= DictCursor.PREFIX;
+      cursor.states[slot] = (int) scratch.arc.target;
+    }
+    return result;
+  }
+
+  /**
+   * 从指定节点开始匹配词段
+   * @param charArray
+   * @param begin
+   * @param length
+   * @param node 自动机节点地址
+   * @param searchHit
+   * @return Hit
+   */
+  private Hit match(char[] charArray, int begin, int length, int node, Hit searchHit) {
+    if (this.fst == null) {
+      searchHit.setEnd(begin);
+      return searchHit;
+    }
+    FST.BytesReader reader = this.fst.getBytesReader();
+    FST.Arc<Object> follow = new FST.Arc<Object>();
+    FST.Arc<Object> arc = new FST.Arc<Object>();
+    follow.target = node;
+    int end = begin + length;
+    try {
+      for (int i = begin; i < end; i++) {
+        // 设置hit的当前处理位置
+        searchHit.setEnd(i);
+        if (this.fst.findTargetArc(charArray[i], follow, arc, reader) == null) {
+          return searchHit;
+        }
+        follow.copyFrom(arc);
+      }
+    } catch (IOException e) {
+      // 自动机数据在内存中，不会发生
+      throw new IllegalStateException(e);
+    }
+    if (arc.isFinal()) {
+      // 添加HIT状态为完全匹配
+      searchHit.setMatch();
+    }
+    if (FST.targetHasArcs(arc)) {
+      // 添加HIT状态为前缀匹配，并记录下一个节点
+      searchHit.setPrefix();
+      searchHit.setMatchedState(this, (int) arc.target);
+    }
+    return searchHit;
+  }
+
+  public void fillSegment(char[] charArray) {
+    throw new UnsupportedOperationException("FST dictionary is read-only, use update");
+  }
+
+  public void disableSegment(char[] charArray) {
+    throw new UnsupportedOperationException("FST dictionary is read-only, use update");
+  }
+
+  /**
+   * 合并现有词条及新增词条，去除屏蔽的词条后重新构建自动机
+   * @param addedWords
+   * @param disabledWords
+   * @return DictTrie 新的词典树
+   */
+  public DictTrie update(Collection<char[]> addedWords, Collection<char[]> disabledWords) {
+    List<char[]> words = this.words();
+    words.addAll(addedWords);
+    Set<String> excludedWords = new HashSet<String>();
+    for (char[] word : disabledWords) {
+      excludedWords.add(new String(word));
+    }
+    return build(words, excludedWords);
+  }
+
+  /**
+   * 枚举自动机中的全部词条
+   * @return List<char[]>
+   */
+  private List<char[]> words() {
+    List<char[]> words = new ArrayList<char[]>();
+    if (this.fst == null) {
+      return words;
+    }
+    try {
+      IntsRefFSTEnum<Object> fstEnum = new IntsRefFSTEnum<Object>(this.fst);
+      IntsRefFSTEnum.InputOutput<Object> term;
+      while ((term = fstEnum.next()) != null) {
+        IntsRef input = term.input;
+        char[] word = new char[input.length];
+        for (int i = 0; i < input.length; i++) {
+          word[i] = (char) input.ints[input.offset + i];
+        }
+        words.add(word);
+      }
+    } catch (IOException e) {
+      // 自动机数据在内存中，不会发生
+      throw new IllegalStateException(e);
+    }
+    return words;
+  }
+
+  /**
+   * 游标匹配时重复使用的弧及读取器
+   */
+  private static final class Scratch {
+
+    final FST.BytesReader reader;
+    final FST.Arc<Object> follow = new FST.Arc<Object>();
+    final FST.Arc<Object> arc = new FST.Arc<Object>();
+
+    Scratch(FST<Object> fst) {
+      this.reader = fst.getBytesReader();
+    }
+
+  }
+
+}
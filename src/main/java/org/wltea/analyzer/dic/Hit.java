@@ -38,9 +38,18 @@ public class Hit {
 
   // 该HIT当前状态，默认未匹配
   private int hitState = UNMATCH;
+  // 当前匹配到的词的标志位（Dictionary.WORD_MAIN等），由支持多标志位的词典树设置
+  private int wordFlags;
 
   // 记录词典匹配过程中，当前匹配到的词典分支节点
   private DictSegment matchedDictSegment;
+  // 记录词典匹配过程中，用于继续匹配的词典树
+  private DictTrie matchedTrie;
+  // 记录词典匹配过程中，当前匹配到的词典树状态（非DictSegment实现时使用）
+  private int matchedState;
+  // 记录叠加词典匹配过程中，基础词典与租户词典各自的匹配结果（OverlayDictTrie使用）
+  private Hit baseHit;
+  private Hit overlayHit;
   /*
    * 词段开始位置
    */
@@ -90,6 +99,20 @@ public class Hit {
    */
   public void setUnmatch() {
     this.hitState = UNMATCH;
+    this.wordFlags = 0;
+  }
+
+  /**
+   * 获取当前匹配到的词的标志位
+   * 合并词典树中，一次匹配同时给出主词典、量词、停止词及用户标签的归属
+   * @return int Dictionary.WORD_MAIN、WORD_QUANTIFIER、WORD_STOP及用户标签的组合
+   */
+  public int getWordFlags() {
+    return wordFlags;
+  }
+
+  void setWordFlags(int wordFlags) {
+    this.wordFlags = wordFlags;
   }
 
   public DictSegment getMatchedDictSegment() {
@@ -98,6 +121,45 @@ public class Hit {
 
   public void setMatchedDictSegment(DictSegment matchedDictSegment) {
     this.matchedDictSegment = matchedDictSegment;
+    this.matchedTrie = matchedDictSegment;
+  }
+
+  DictTrie getMatchedTrie() {
+    return matchedTrie;
+  }
+
+  int getMatchedState() {
+    return matchedState;
+  }
+
+  /**
+   * 记录当前匹配到的词典树及其状态
+   * @param matchedTrie
+   * @param matchedState
+   */
+  void setMatchedState(DictTrie matchedTrie, int matchedState) {
+    this.matchedTrie = matchedTrie;
+    this.matchedState = matchedState;
+  }
+
+  Hit getBaseHit() {
+    return baseHit;
+  }
+
+  Hit getOverlayHit() {
+    return overlayHit;
+  }
+
+  /**
+   * 记录叠加词典树及基础词典、租户词典各自的匹配结果
+   * @param matchedTrie
+   * @param baseHit
+   * @param overlayHit
+   */
+  void setOverlayHits(DictTrie matchedTrie, Hit baseHit, Hit overlayHit) {
+    this.matchedTrie = matchedTrie;
+    this.baseHit = baseHit;
+    this.overlayHit = overlayHit;
   }
 
   public int getBegin() {
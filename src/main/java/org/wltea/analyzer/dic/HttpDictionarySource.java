@@ -0,0 +1,136 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 从HTTP地址读取扩展词，每行一个词，UTF-8编码
+ *
+ * 使用条件请求（If-None-Match / If-Modified-Since），
+ * 词表未变化时服务端返回304，一次请求不传输词表内容；
+ * 词表变化时以流的方式逐行读取响应，支持gzip压缩。
+ */
+public class HttpDictionarySource implements DictionarySource {
+
+  // 默认连接超时（毫秒）
+  private static final int CONNECT_TIMEOUT = 5000;
+  // 默认读取超时（毫秒）
+  private static final int READ_TIMEOUT = 30000;
+
+  // 词表地址
+  private final URL url;
+  // 上次响应的ETag
+  private String etag;
+  // 上次响应的Last-Modified
+  private String lastModified;
+
+  /**
+   * @param url 词表地址
+   */
+  public HttpDictionarySource(URL url) {
+    this.url = url;
+  }
+
+  /**
+   * 以条件请求读取词表
+   * @return Set<String> 全部词条；词表未变化（304）时返回null
+   * @throws IOException 请求失败或服务端返回错误状态
+   */
+  public Set<String> fetch() throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) this.url.openConnection();
+    conn.setConnectTimeout(CONNECT_TIMEOUT);
+    conn.setReadTimeout(READ_TIMEOUT);
+    conn.setUseCaches(false);
+    conn.setRequestProperty("Accept-Encoding", "gzip");
+    if (this.etag != null) {
+      conn.setRequestProperty("If-None-Match", this.etag);
+    }
+    if (this.lastModified != null) {
+      conn.setRequestProperty("If-Modified-Since", this.lastModified);
+    }
+
+    int code = conn.getResponseCode();
+    if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+      // 词表未变化
+      closeQuietly(conn.getErrorStream());
+      return null;
+    }
+    if (code != HttpURLConnection.HTTP_OK) {
+      closeQuietly(conn.getErrorStream());
+      throw new IOException("Unexpected HTTP status " + code + " from " + this.url);
+    }
+
+    Set<String> words = new HashSet<String>();
+    InputStream is = conn.getInputStream();
+    try {
+      if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+        is = new GZIPInputStream(is);
+      }
+      BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+      String theWord = null;
+      while ((theWord = br.readLine()) != null) {
+        if (!"".equals(theWord.trim())) {
+          words.add(theWord.trim().toLowerCase());
+        }
+      }
+    } finally {
+      // 读完并关闭响应流，连接可被复用
+      is.close();
+    }
+    // 词表读取成功后才记录版本，失败时下次重新完整读取
+    this.etag = conn.getHeaderField("ETag");
+    this.lastModified = conn.getHeaderField("Last-Modified");
+    return words;
+  }
+
+  /**
+   * 返回词表地址
+   * @return URL
+   */
+  public URL getUrl() {
+    return this.url;
+  }
+
+  private static void closeQuietly(InputStream is) {
+    if (is != null) {
+      try {
+        is.close();
+      } catch (IOException e) {
+        // 忽略
+      }
+    }
+  }
+
+}
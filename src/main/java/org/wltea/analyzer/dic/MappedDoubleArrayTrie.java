@@ -0,0 +1,222 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * 内存映射的只读双数组词典树
+ *
+ * 直接在词典快照文件的MappedByteBuffer上查询，数组不复制到堆内。
+ * 同一主机上映射同一快照文件的多个JVM共享操作系统的页缓存，
+ * 词典数据对GC不可见，不再增加老年代的扫描及晋升压力。
+ * 数据布局与DoubleArrayTrie.writeTo一致。
+ */
+class MappedDoubleArrayTrie implements DictTrie {
+
+  // 根节点状态下标
+  private static final int ROOT = 1;
+
+  // 映射的快照数据，只使用绝对位置读取，可被多线程共享
+  private final ByteBuffer buf;
+  // 本词典树数据在buf中的起始位置
+  private final int offset;
+  // 状态数目
+  private final int size;
+  // 各数组在buf中的起始位置
+  private final int codesOffset;
+  private final int baseOffset;
+  private final int checkOffset;
+  private final int firstChildOffset;
+  private final int nodeStatesOffset;
+
+  /**
+   * 映射buf当前位置开始的词典树，并将buf的位置移到该词典树数据之后
+   * @param buf
+   */
+  MappedDoubleArrayTrie(ByteBuffer buf) {
+    this.buf = buf;
+    this.offset = buf.position();
+    // 跳过nextCode
+    this.size = buf.getInt(this.offset + 4);
+    this.codesOffset = this.offset + 4 * 4;
+    this.baseOffset = this.codesOffset + (Character.MAX_VALUE + 1) * 2;
+    this.checkOffset = this.baseOffset + this.size * 4;
+    this.firstChildOffset = this.checkOffset + this.size * 4;
+    // firstChild之后为sibling，查询时不需要
+    this.nodeStatesOffset = this.firstChildOffset + this.size * 4;
+    if (this.nodeStatesOffset + this.size > buf.limit()) {
+      throw new IllegalArgumentException("Truncated dictionary data");
+    }
+    buf.position(this.nodeStatesOffset + this.size);
+  }
+
+  /**
+   * 匹配词段
+   * @param charArray
+   * @param begin
+   * @param length
+   * @return Hit
+   */
+  public Hit match(char[] charArray, int begin, int length) {
+    Hit searchHit = new Hit();
+    searchHit.setBegin(begin);
+    return this.match(charArray, begin, length, ROOT, searchHit);
+  }
+
+  /**
+   * 从Hit记录的状态继续匹配一个字符
+   * @param charArray
+   * @param currentIndex
+   * @param matchedHit
+   * @return Hit
+   */
+  public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+    int state = matchedHit.getMatchedState();
+    // 将HIT状态重置
+    matchedHit.setUnmatch();
+    return this.match(charArray, currentIndex, 1, state, matchedHit);
+  }
+
+  public void rootCursor(DictCursor cursor, int slot) {
+    cursor.states[slot] = ROOT;
+  }
+
+  public int matchWithCursor(DictCursor cursor, int slot, char[] charArray, int currentIndex) {
+    cursor.wordFlags[slot] = 0;
+    ByteBuffer buf = this.buf;
+    int state = cursor.states[slot];
+    int b = buf.getInt(this.baseOffset + (state << 2));
+    if (b == 0) {
+      return 0;
+    }
+    int code = buf.getChar(this.codesOffset + (charArray[currentIndex] << 1));
+    if (code == 0) {
+      return 0;
+    }
+    int next = b + code;
+    if (next >= this.size || buf.getInt(this.checkOffset + (next << 2)) != state) {
+      return 0;
+    }
+    int result = buf.get(this.nodeStatesOffset + next) == 1 ? DictCursor.MATCH : 0;
+    if (buf.getChar(this.firstChildOffset + (next << 1)) != 0) {
+      result |= DictCursor.PREFIX;
+      cursor.states[slot] = next;
+    }
+    return result;
+  }
+
+  /**
+   * 从指定状态开始匹配词段
+   * @param charArray
+   * @param begin
+   * @param length
+   * @param state
+   * @param searchHit
+   * @return Hit
+   */
+  private Hit match(char[] charArray, int begin, int length, int state, Hit searchHit) {
+    ByteBuffer buf = this.buf;
+    int end = begin + length;
+    for (int i = begin; i < end; i++) {
+      // 设置hit的当前处理位置
+      searchHit.setEnd(i);
+      int b = buf.getInt(this.baseOffset + (state << 2));
+      if (b == 0) {
+        // 当前状态没有子节点，不匹配
+        return searchHit;
+      }
+      int code = buf.getChar(this.codesOffset + (charArray[i] << 1));
+      if (code == 0) {
+        // 字符不在词典中，不匹配
+        return searchHit;
+      }
+      int next = b + code;
+      if (next >= this.size || buf.getInt(this.checkOffset + (next << 2)) != state) {
+        // 没有找到对应字符的转移，不匹配
+        return searchHit;
+      }
+      state = next;
+    }
+
+    if (buf.get(this.nodeStatesOffset + state) == 1) {
+      // 添加HIT状态为完全匹配
+      searchHit.setMatch();
+    }
+    if (buf.getChar(this.firstChildOffset + (state << 1)) != 0) {
+      // 添加HIT状态为前缀匹配，并记录当前状态
+      searchHit.setPrefix();
+      searchHit.setMatchedState(this, state);
+    }
+    return searchHit;
+  }
+
+  /**
+   * 写时复制更新，新的词典树为堆内双数组树
+   * @param addedWords
+   * @param disabledWords
+   * @return DictTrie
+   */
+  public DictTrie update(Collection<char[]> addedWords, Collection<char[]> disabledWords) {
+    DoubleArrayTrie dat = this.toHeap();
+    dat.apply(addedWords, disabledWords);
+    return dat;
+  }
+
+  /**
+   * 映射的词典只读，需要修改时使用update
+   */
+  public void fillSegment(char[] charArray) {
+    throw new UnsupportedOperationException("Mapped dictionary is read-only");
+  }
+
+  /**
+   * 映射的词典只读，需要修改时使用update
+   */
+  public void disableSegment(char[] charArray) {
+    throw new UnsupportedOperationException("Mapped dictionary is read-only");
+  }
+
+  /**
+   * 将映射的数据复制为可修改的堆内双数组树
+   * @return DoubleArrayTrie
+   */
+  DoubleArrayTrie toHeap() {
+    ByteBuffer data = this.buf.duplicate();
+    data.position(this.offset);
+    return DoubleArrayTrie.readFrom(data);
+  }
+
+  /**
+   * 返回状态数目
+   * @return int
+   */
+  int size() {
+    return this.size;
+  }
+
+}
@@ -0,0 +1,197 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 叠加词典树
+ * 在共享的基础词典树之上叠加租户自己的词条，基础词典树只读，由多个租户共用；
+ * 租户新增的词保存在added树中，屏蔽的基础词典词条保存在disabled树中。
+ * 匹配时在同一次扫描中同时推进基础词典及added树
+ */
+class OverlayDictTrie implements DictTrie {
+
+  // 游标槽位状态：基础词典一侧仍是词前缀
+  private static final int BASE_PREFIX = 0x01;
+  // 游标槽位状态：租户新增词条一侧仍是词前缀
+  private static final int ADDED_PREFIX = 0x02;
+
+  // 共享的基础词典树
+  private final DictTrie base;
+  // 租户新增的词条
+  private final DictSegment added;
+  // 租户屏蔽的基础词典词条
+  private final DictSegment disabled;
+
+  OverlayDictTrie(DictTrie base) {
+    this(base, new DictSegment((char) 0), new DictSegment((char) 0));
+  }
+
+  private OverlayDictTrie(DictTrie base, DictSegment added, DictSegment disabled) {
+    this.base = base;
+    this.added = added;
+    this.disabled = disabled;
+  }
+
+  /**
+   * 租户是否没有任何叠加词条，此时匹配直接委托给基础词典树
+   * @return boolean
+   */
+  boolean isEmpty() {
+    return !this.added.hasNextNode() && !this.disabled.hasNextNode();
+  }
+
+  /**
+   * 游标匹配使用的词典树，没有叠加词条时直接使用基础词典树
+   * @return DictTrie
+   */
+  DictTrie cursorTrie() {
+    return this.isEmpty() ? this.base : this;
+  }
+
+  /**
+   * 基础词典更新后，将租户词条叠加到新的基础词典树上
+   * @param newBase
+   * @return OverlayDictTrie
+   */
+  OverlayDictTrie rebase(DictTrie newBase) {
+    return new OverlayDictTrie(newBase, this.added, this.disabled);
+  }
+
+  public Hit match(char[] charArray, int begin, int length) {
+    if (this.isEmpty()) {
+      return this.base.match(charArray, begin, length);
+    }
+    Hit hit = new Hit();
+    hit.setBegin(begin);
+    hit.setEnd(begin + length - 1);
+    return this.combine(charArray, hit, this.base.match(charArray, begin, length),
+      this.added.match(charArray, begin, length));
+  }
+
+  public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+    Hit baseHit = this.next(charArray, currentIndex, matchedHit.getBaseHit());
+    Hit overlayHit = this.next(charArray, currentIndex, matchedHit.getOverlayHit());
+    matchedHit.setUnmatch();
+    matchedHit.setEnd(currentIndex);
+    return this.combine(charArray, matchedHit, baseHit, overlayHit);
+  }
+
+  /**
+   * 基础词典一侧的状态保存在游标的companion中，租户新增词条一侧的状态保存在游标本身
+   */
+  public void rootCursor(DictCursor cursor, int slot) {
+    cursor.states[slot] = BASE_PREFIX | ADDED_PREFIX;
+    this.added.rootCursor(cursor, slot);
+    this.base.rootCursor(cursor.companion(), slot);
+  }
+
+  public int matchWithCursor(DictCursor cursor, int slot, char[] charArray, int currentIndex) {
+    int sides = cursor.states[slot];
+    DictCursor baseCursor = cursor.companion();
+    int baseResult = 0;
+    int wordFlags = 0;
+    if ((sides & BASE_PREFIX) != 0) {
+      baseResult = this.base.matchWithCursor(baseCursor, slot, charArray, currentIndex);
+      wordFlags |= baseCursor.wordFlags[slot];
+    }
+    int addedResult = 0;
+    if ((sides & ADDED_PREFIX) != 0) {
+      addedResult = this.added.matchWithCursor(cursor, slot, charArray, currentIndex);
+      wordFlags |= cursor.wordFlags[slot];
+    }
+    // 与combine相同：租户新增的词总是成词，基础词典的词未被租户屏蔽时成词
+    int result = 0;
+    if ((addedResult & DictCursor.MATCH) != 0 || ((baseResult & DictCursor.MATCH) != 0
+        && !this.isDisabled(charArray, cursor.begins[slot], currentIndex))) {
+      result |= DictCursor.MATCH;
+    }
+    if (((baseResult | addedResult) & DictCursor.PREFIX) != 0) {
+      result |= DictCursor.PREFIX;
+    }
+    cursor.states[slot] = ((baseResult & DictCursor.PREFIX) != 0 ? BASE_PREFIX : 0)
+        | ((addedResult & DictCursor.PREFIX) != 0 ? ADDED_PREFIX : 0);
+    cursor.wordFlags[slot] = (result & DictCursor.MATCH) != 0 ? wordFlags : wordFlags
+        & ~Dictionary.WORD_MAIN;
+    return result;
+  }
+
+  /**
+   * 推进一侧的匹配，已经不是词前缀的一侧不再继续匹配
+   */
+  private Hit next(char[] charArray, int currentIndex, Hit hit) {
+    if (hit.isPrefix()) {
+      return hit.getMatchedTrie().matchWithHit(charArray, currentIndex, hit);
+    }
+    hit.setUnmatch();
+    return hit;
+  }
+
+  /**
+   * 合并两侧的匹配结果：租户新增的词总是成词，基础词典的词未被租户屏蔽时成词
+   */
+  private Hit combine(char[] charArray, Hit hit, Hit baseHit, Hit overlayHit) {
+    if (overlayHit.isMatch()
+        || (baseHit.isMatch() && !this.isDisabled(charArray, hit.getBegin(), hit.getEnd()))) {
+      hit.setMatch();
+    }
+    if (baseHit.isPrefix() || overlayHit.isPrefix()) {
+      hit.setPrefix();
+    }
+    // 租户屏蔽的词去掉主词典标志位，其余标志位（如用户标签）沿用基础词典
+    int wordFlags = baseHit.getWordFlags() | overlayHit.getWordFlags();
+    hit.setWordFlags(hit.isMatch() ? wordFlags : wordFlags & ~Dictionary.WORD_MAIN);
+    hit.setOverlayHits(this, baseHit, overlayHit);
+    return hit;
+  }
+
+  private boolean isDisabled(char[] charArray, int begin, int end) {
+    return this.disabled.hasNextNode()
+        && this.disabled.isWord(charArray, begin, end - begin + 1, Dictionary.WORD_MAIN);
+  }
+
+  public void fillSegment(char[] charArray) {
+    this.added.fillSegment(charArray);
+    this.disabled.disableSegment(charArray);
+  }
+
+  public void disableSegment(char[] charArray) {
+    this.disabled.fillSegment(charArray);
+    this.added.disableSegment(charArray);
+  }
+
+  public DictTrie update(Collection<char[]> addedWords, Collection<char[]> disabledWords) {
+    // 新增的词从屏蔽树中移除，屏蔽的词从新增树中移除；同时新增及屏蔽的词以屏蔽为准
+    List<char[]> none = Collections.emptyList();
+    DictTrie disabled = this.disabled.update(none, addedWords).update(disabledWords, none);
+    return new OverlayDictTrie(this.base, (DictSegment) this.added.update(addedWords,
+      disabledWords), (DictSegment) disabled);
+  }
+
+}
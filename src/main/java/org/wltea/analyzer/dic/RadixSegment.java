@@ -0,0 +1,424 @@
+/**
+ *
+ * IK 中文分词  版本 5.0
+ * IK Analyzer release 5.0
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * 源代码由林良益(linliangyi2005@gmail.com)提供
+ * 版权声明 2012，乌龙茶工作室
+ * provided by Linliangyi and copyright 2012 by Oolong studio
+ *
+ */
+package org.wltea.analyzer.dic;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * 路径压缩的词典树分段（基数树）
+ * 只有一个子节点且不成词的连续字符合并为一个节点，节点以char[]保存整段边标签。
+ * 成语、地名、人名等长尾词条在前一两个字之后多为单链，合并后每段只需一个节点对象。
+ * Hit中记录当前节点及已匹配的边标签长度，逐字匹配的语义与DictSegment相同
+ */
+class RadixSegment implements DictTrie {
+
+  // 数组大小上限
+  private static final int ARRAY_LENGTH_LIMIT = 3;
+  // 散列表的初始容量，必须是2的幂
+  private static final int TABLE_INITIAL_CAPACITY = 8;
+  // 散列表容量上限，超过后改用以字符为下标的直接寻址表
+  private static final int TABLE_CAPACITY_LIMIT = 4096;
+  // 直接寻址表的长度，覆盖全部BMP字符
+  private static final int DIRECT_TABLE_LENGTH = Character.MAX_VALUE + 1;
+  private static final char[] EMPTY_LABEL = new char[0];
+
+  // 子节点存储结构，与DictSegment相同：
+  // 子节点数 <=ARRAY_LENGTH_LIMIT 时为恰好容纳全部子节点的数组，超过后为开放寻址散列表，
+  // 散列表容量超过TABLE_CAPACITY_LIMIT后为以字符为下标的直接寻址表
+  private RadixSegment[] children;
+
+  // 从父节点到当前节点的边标签，根节点为空
+  private final char[] label;
+  // 边标签的首字符，父节点按该字符查找当前节点
+  private final char nodeChar;
+  // 当前节点存储的子节点数目
+  private int storeSize = 0;
+  // 当前节点状态 ,默认 0 , 1表示从根节点到边标签末尾的路径表示一个词
+  private int nodeState = 0;
+
+  RadixSegment() {
+    this(EMPTY_LABEL);
+  }
+
+  private RadixSegment(char[] label) {
+    this.label = label;
+    this.nodeChar = label.length > 0 ? label[0] : 0;
+  }
+
+  /*
+   * 判断是否有下一个节点
+   */
+  boolean hasNextNode() {
+    return this.storeSize > 0;
+  }
+
+  public Hit match(char[] charArray, int begin, int length) {
+    Hit searchHit = new Hit();
+    searchHit.setBegin(begin);
+    return this.match(charArray, begin, length, this.label.length, searchHit);
+  }
+
+  /**
+   * 从当前节点继续匹配一个字符
+   * matchedHit中记录当前节点及边标签上已匹配的字符数
+   * @param charArray
+   * @param currentIndex
+   * @param matchedHit
+   * @return Hit
+   */
+  public Hit matchWithHit(char[] charArray, int currentIndex, Hit matchedHit) {
+    int offset = matchedHit.getMatchedState();
+    // 将HIT状态重置
+    matchedHit.setUnmatch();
+    return this.match(charArray, currentIndex, 1, offset, matchedHit);
+  }
+
+  public void rootCursor(DictCursor cursor, int slot) {
+    cursor.nodes[slot] = this;
+    cursor.states[slot] = this.label.length;
+  }
+
+  public int matchWithCursor(DictCursor cursor, int slot, char[] charArray, int currentIndex) {
+    cursor.wordFlags[slot] = 0;
+    RadixSegment node = (RadixSegment) cursor.nodes[slot];
+    int offset = cursor.states[slot];
+    char keyChar = charArray[currentIndex];
+    if (offset < node.label.length) {
+      // 沿边标签匹配
+      if (node.label[offset] != keyChar) {
+        return 0;
+      }
+      offset++;
+    } else {
+      node = node.lookforSegment(keyChar);
+      if (node == null) {
+        return 0;
+      }
+      offset = 1;
+    }
+    int result;
+    if (offset < node.label.length) {
+      // 停在边标签中间，必然是词前缀
+      result = DictCursor.PREFIX;
+    } else {
+      result = node.nodeState == 1 ? DictCursor.MATCH : 0;
+      if (node.hasNextNode()) {
+        result |= DictCursor.PREFIX;
+      }
+    }
+    cursor.nodes[slot] = node;
+    cursor.states[slot] = offset;
+    return result;
+  }
+
+  /**
+   * 从当前节点边标签的指定位置开始匹配词段
+   * @param charArray
+   * @param begin
+   * @param length
+   * @param offset 当前节点边标签上已匹配的字符数
+   * @param searchHit
+   * @return Hit
+   */
+  private Hit match(char[] charArray, int begin, int length, int offset, Hit searchHit) {
+    RadixSegment node = this;
+    int end = begin + length;
+    for (int i = begin; i < end; i++) {
+      // 设置hit的当前处理位置
+      searchHit.setEnd(i);
+      if (offset < node.label.length) {
+        // 沿边标签匹配
+        if (node.label[offset] != charArray[i]) {
+          return searchHit;
+        }
+        offset++;
+      } else {
+        node = node.lookforSegment(charArray[i]);
+        if (node == null) {
+          return searchHit;
+        }
+        offset = 1;
+      }
+    }
+    if (offset < node.label.length) {
+      // 停在边标签中间，必然是词前缀
+      searchHit.setPrefix();
+    } else {
+      if (node.nodeState == 1) {
+        // 添加HIT状态为完全匹配
+        searchHit.setMatch();
+      }
+      if (node.hasNextNode()) {
+        // 添加HIT状态为前缀匹配
+        searchHit.setPrefix();
+      }
+    }
+    if (searchHit.isPrefix()) {
+      // 记录当前节点及边标签位置
+      searchHit.setMatchedState(node, offset);
+    }
+    return searchHit;
+  }
+
+  /**
+   * 加载填充词典片段
+   * @param charArray
+   */
+  public synchronized void fillSegment(char[] charArray) {
+    if (charArray.length > 0) {
+      this.fill(charArray, 0, 1, null);
+    }
+  }
+
+  /**
+   * 屏蔽词典中的一个词
+   * @param charArray
+   */
+  public synchronized void disableSegment(char[] charArray) {
+    if (charArray.length > 0) {
+      this.fill(charArray, 0, 0, null);
+    }
+  }
+
+  /**
+   * 写时复制更新
+   * 只复制被修改路径上的节点，其余子树由新旧词典树共享
+   * @param addedWords
+   * @param disabledWords
+   * @return DictTrie 新的根节点
+   */
+  public synchronized DictTrie update(Collection<char[]> addedWords,
+      Collection<char[]> disabledWords) {
+    // 本次更新中新建或复制的节点，只有这些节点可以修改
+    Set<RadixSegment> owned = Collections
+        .newSetFromMap(new IdentityHashMap<RadixSegment, Boolean>());
+    RadixSegment root = this.copyNode(this.label);
+    owned.add(root);
+    for (char[] word : addedWords) {
+      if (word.length > 0) {
+        root.fill(word, 0, 1, owned);
+      }
+    }
+    for (char[] word : disabledWords) {
+      if (word.length > 0) {
+        root.fill(word, 0, 0, owned);
+      }
+    }
+    return root;
+  }
+
+  /**
+   * 从当前节点（边标签已匹配完）开始填充词段
+   * 需要拆分的节点总是以新节点替换，已取得旧节点的查询不受影响
+   * @param charArray
+   * @param begin
+   * @param enabled =1加载词条，=0屏蔽词条
+   * @param owned 写时复制更新中新建或复制的节点，原地修改时为null
+   */
+  private void fill(char[] charArray, int begin, int enabled, Set<RadixSegment> owned) {
+    if (begin == charArray.length) {
+      // enabled=1表明一个完整的词，enabled=0表示从词典中屏蔽当前词
+      this.nodeState = enabled;
+      return;
+    }
+    RadixSegment child = this.lookforSegment(charArray[begin]);
+    if (child == null) {
+      if (enabled == 1) {
+        // 剩余的字符作为一个节点
+        child = new RadixSegment(Arrays.copyOfRange(charArray, begin, charArray.length));
+        child.nodeState = 1;
+        this.addChild(child);
+      }
+      return;
+    }
+    int common = 1;
+    while (common < child.label.length && begin + common < charArray.length
+        && child.label[common] == charArray[begin + common]) {
+      common++;
+    }
+    if (common < child.label.length) {
+      if (enabled == 0) {
+        // 词在边标签中间结束或分叉，词典中没有该词
+        return;
+      }
+      // 在公共前缀处拆分节点
+      RadixSegment head = new RadixSegment(Arrays.copyOfRange(child.label, 0, common));
+      RadixSegment tail = child.copyNode(Arrays.copyOfRange(child.label, common,
+        child.label.length));
+      head.addChild(tail);
+      this.replaceChild(head);
+      if (owned != null) {
+        owned.add(head);
+        owned.add(tail);
+      }
+      child = head;
+    } else if (owned != null && !owned.contains(child)) {
+      // 复制旧节点，并替换当前节点中的引用
+      child = child.copyNode(child.label);
+      owned.add(child);
+      this.replaceChild(child);
+    }
+    child.fill(charArray, begin + common, enabled, owned);
+  }
+
+  /**
+   * 复制节点，使用新的边标签，复制子节点容器，子节点本身共享
+   * @param label
+   * @return RadixSegment
+   */
+  private RadixSegment copyNode(char[] label) {
+    RadixSegment copy = new RadixSegment(label);
+    copy.nodeState = this.nodeState;
+    copy.storeSize = this.storeSize;
+    if (this.children != null) {
+      copy.children = this.children.clone();
+    }
+    return copy;
+  }
+
+  /**
+   * 用新的子节点替换同一首字符的原子节点
+   * @param node
+   */
+  private void replaceChild(RadixSegment node) {
+    RadixSegment[] children = this.children;
+    children[indexOf(children, node.nodeChar)] = node;
+  }
+
+  /**
+   * 查找本节点下边标签以keyChar开头的子节点
+   * @param keyChar
+   * @return RadixSegment 没有找到时返回null
+   */
+  private RadixSegment lookforSegment(char keyChar) {
+    // 引用实例变量为本地变量，避免查询时遇到更新的同步问题
+    RadixSegment[] children = this.children;
+    if (children == null) {
+      return null;
+    }
+    int position = indexOf(children, keyChar);
+    return position >= 0 ? children[position] : null;
+  }
+
+  /**
+   * 添加子节点
+   * 新的存储结构构建完成后才替换children引用，读取方总是看到完整的数组或散列表
+   * @param node
+   */
+  private void addChild(RadixSegment node) {
+    RadixSegment[] children = this.children;
+    int newSize = this.storeSize + 1;
+    if (newSize <= ARRAY_LENGTH_LIMIT) {
+      // 数组容量恰好容纳全部子节点
+      RadixSegment[] newChildren = new RadixSegment[newSize];
+      if (children != null) {
+        System.arraycopy(children, 0, newChildren, 0, this.storeSize);
+      }
+      newChildren[this.storeSize] = node;
+      this.children = newChildren;
+
+    } else if (children.length <= ARRAY_LENGTH_LIMIT
+        || (children.length < DIRECT_TABLE_LENGTH && newSize * 4 > children.length * 3)) {
+      // 切换为散列表，或散列表的装载因子超过0.75时扩容
+      int capacity = Math.max(TABLE_INITIAL_CAPACITY,
+        children.length <= ARRAY_LENGTH_LIMIT ? 0 : children.length * 2);
+      if (capacity > TABLE_CAPACITY_LIMIT) {
+        // 子节点数以千计（通常只有根节点），改为直接寻址，首字查找不再计算散列及探测
+        capacity = DIRECT_TABLE_LENGTH;
+      }
+      RadixSegment[] table = new RadixSegment[capacity];
+      for (RadixSegment child : children) {
+        if (child != null) {
+          table[freeSlot(table, child.nodeChar)] = child;
+        }
+      }
+      table[freeSlot(table, node.nodeChar)] = node;
+      this.children = table;
+
+    } else {
+      children[freeSlot(children, node.nodeChar)] = node;
+    }
+    this.storeSize = newSize;
+  }
+
+  /**
+   * 在数组或散列表中查找keyChar对应的位置
+   * @param children
+   * @param keyChar
+   * @return int 没有找到时返回-1
+   */
+  private static int indexOf(RadixSegment[] children, char keyChar) {
+    if (children.length <= ARRAY_LENGTH_LIMIT) {
+      for (int i = 0; i < children.length; i++) {
+        if (children[i].nodeChar == keyChar) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    if (children.length == DIRECT_TABLE_LENGTH) {
+      return children[keyChar] != null ? keyChar : -1;
+    }
+    int mask = children.length - 1;
+    for (int i = hash(keyChar) & mask;; i = (i + 1) & mask) {
+      RadixSegment node = children[i];
+      if (node == null) {
+        return -1;
+      }
+      if (node.nodeChar == keyChar) {
+        return i;
+      }
+    }
+  }
+
+  /**
+   * 散列表中keyChar的第一个空闲位置，直接寻址表中即为keyChar
+   */
+  private static int freeSlot(RadixSegment[] table, char keyChar) {
+    if (table.length == DIRECT_TABLE_LENGTH) {
+      return keyChar;
+    }
+    int mask = table.length - 1;
+    int i = hash(keyChar) & mask;
+    while (table[i] != null) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * 字符的散列值，打散连续的汉字编码
+   */
+  private static int hash(char keyChar) {
+    int h = keyChar * 0x9E3779B1;
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -29,6 +29,9 @@ import java.io.Reader;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.Tokenizer;
 
+import org.wltea.analyzer.core.SegmenterEngine;
+import org.wltea.analyzer.dic.Dictionary;
+
 /**
  * IK分词器，Lucene Analyzer接口实现
  * 兼容Lucene 4.0版本
@@ -37,6 +40,12 @@ public final class IKAnalyzer extends Analyzer {
 
   private boolean useSmart;
 
+  // 分词使用的词典，为null时使用词典单例
+  private Dictionary dictionary;
+
+  // 各Tokenizer共享的分词引擎，首次构造分词组件时创建，切换useSmart后重新创建
+  private volatile SegmenterEngine engine;
+
   public boolean useSmart() {
     return useSmart;
   }
@@ -64,13 +73,37 @@ public final class IKAnalyzer extends Analyzer {
     this.useSmart = useSmart;
   }
 
+  /**
+   * IK分词器Lucene Analyzer接口实现类
+   *
+   * @param useSmart 当为true时，分词器进行智能切分
+   * @param dictionary 分词使用的词典，如Dictionary.newTenant创建的租户词典
+   */
+  public IKAnalyzer(boolean useSmart, Dictionary dictionary) {
+    this(useSmart);
+    this.dictionary = dictionary;
+  }
+
   /**
    * 重载Analyzer接口，构造分词组件
    */
   @Override
   protected TokenStreamComponents createComponents(String fieldName, final Reader in) {
-    Tokenizer _IKTokenizer = new IKTokenizer(in, this.useSmart());
+    Tokenizer _IKTokenizer = new IKTokenizer(in, this.getEngine());
     return new TokenStreamComponents(_IKTokenizer);
   }
 
+  /**
+   * 获取共享的分词引擎，避免每个Tokenizer重复读取配置文件
+   * @return SegmenterEngine
+   */
+  private SegmenterEngine getEngine() {
+    SegmenterEngine current = this.engine;
+    if (current == null || current.useSmart() != this.useSmart) {
+      current = IKTokenizer.newEngine(this.useSmart, this.dictionary);
+      this.engine = current;
+    }
+    return current;
+  }
+
 }
@@ -34,8 +34,12 @@ import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
 
-import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
 import org.wltea.analyzer.core.Lexeme;
+import org.wltea.analyzer.core.SegmenterEngine;
+import org.wltea.analyzer.core.SegmenterSession;
+import org.wltea.analyzer.dic.Dictionary;
 
 /**
  * IK分词器 Lucene Tokenizer适配器类
@@ -43,8 +47,8 @@ import org.wltea.analyzer.core.Lexeme;
  */
 public final class IKTokenizer extends Tokenizer {
 
-  // IK分词器实现
-  private IKSegmenter _IKImplement;
+  // IK分词器实现，Tokenizer只由一个线程使用，直接使用无锁的分词会话
+  private final SegmenterSession _IKImplement;
 
   // 词元文本属性
   private final CharTermAttribute termAtt;
@@ -61,11 +65,36 @@ public final class IKTokenizer extends Tokenizer {
    * @param useSmart
    */
   public IKTokenizer(Reader in, boolean useSmart) {
+    this(in, useSmart, null);
+  }
+
+  /**
+   * Lucene 4.0 Tokenizer适配器类构造函数
+   * @param in
+   * @param useSmart
+   * @param dictionary 分词使用的词典，为null时使用词典单例
+   */
+  public IKTokenizer(Reader in, boolean useSmart, Dictionary dictionary) {
+    this(in, newEngine(useSmart, dictionary));
+  }
+
+  /**
+   * Lucene 4.0 Tokenizer适配器类构造函数
+   * @param in
+   * @param engine 分词引擎，可被多个Tokenizer共享
+   */
+  public IKTokenizer(Reader in, SegmenterEngine engine) {
     super(in);
     offsetAtt = addAttribute(OffsetAttribute.class);
     termAtt = addAttribute(CharTermAttribute.class);
     typeAtt = addAttribute(TypeAttribute.class);
-    _IKImplement = new IKSegmenter(input, useSmart);
+    _IKImplement = engine.newSession(input);
+  }
+
+  static SegmenterEngine newEngine(boolean useSmart, Dictionary dictionary) {
+    Configuration cfg = DefaultConfig.getInstance();
+    cfg.setUseSmart(useSmart);
+    return new SegmenterEngine(cfg, dictionary);
   }
 
   /*
@@ -76,19 +105,18 @@ public final class IKTokenizer extends Tokenizer {
   public boolean incrementToken() throws IOException {
     // 清除所有的词元属性
     clearAttributes();
-    Lexeme nextLexeme = _IKImplement.next();
-    if (nextLexeme != null) {
-      // 将Lexeme转成Attributes
-      // 设置词元文本
-      termAtt.append(nextLexeme.getLexemeText());
-      // 设置词元长度
-      termAtt.setLength(nextLexeme.getLength());
+    if (_IKImplement.nextToken()) {
+      // 将词元直接写入Attributes，不创建Lexeme及词元文本
+      // 从分词缓冲区复制词元文本
+      termAtt.copyBuffer(_IKImplement.getTokenBuffer(), _IKImplement.getTokenBegin(),
+        _IKImplement.getTokenLength());
       // 设置词元位移
-      offsetAtt.setOffset(nextLexeme.getBeginPosition(), nextLexeme.getEndPosition());
+      offsetAtt.setOffset(_IKImplement.getTokenBeginPosition(),
+        _IKImplement.getTokenEndPosition());
       // 记录分词的最后位置
-      endPosition = nextLexeme.getEndPosition();
+      endPosition = _IKImplement.getTokenEndPosition();
       // 记录词元分类
-      typeAtt.setType(nextLexeme.getLexemeTypeString());
+      typeAtt.setType(Lexeme.toTypeString(_IKImplement.getTokenType()));
       // 返会true告知还有下个词元
       return true;
     }
@@ -0,0 +1,83 @@
+package org.wltea.analyzer.cfg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.wltea.analyzer.core.IKSegmenter;
+
+/**
+ * 只实现Configuration基本配置项的自定义配置测试
+ */
+public class DefaultConfigTest {
+
+  @Test
+  public void testExtendDefaultConfig() {
+    Configuration cfg = DefaultConfig.getInstance();
+    assertSame(cfg, DefaultConfig.extend(cfg));
+  }
+
+  @Test
+  public void testExtendCustomConfig() {
+    ExtendedConfiguration cfg = DefaultConfig.extend(new CustomConfig());
+    cfg.setUseSmart(true);
+    assertTrue(cfg.useSmart());
+    assertEquals("org/wltea/analyzer/dic/main2012.dic", cfg.getMainDictionary());
+    assertEquals("trie", cfg.getDictEngine());
+    assertEquals("classic", cfg.getCJKMatcher());
+    assertEquals("classic", cfg.getSegmenter());
+    assertNull(cfg.getDictSnapshot());
+    assertFalse(cfg.isDictReload());
+    assertTrue(cfg.getRemoteExtDictionarys().isEmpty());
+    assertEquals(60, cfg.getRemoteDictInterval());
+    assertEquals(60, cfg.getDictInitialTimeout());
+  }
+
+  @Test
+  public void testSegmentWithCustomConfig() throws Exception {
+    CustomConfig cfg = new CustomConfig();
+    cfg.setUseSmart(true);
+    IKSegmenter segmenter = new IKSegmenter(new StringReader("中华人民共和国"), cfg);
+    assertEquals("中华人民共和国", segmenter.next().getLexemeText());
+  }
+
+  /**
+   * 第三方配置实现，只实现Configuration接口
+   */
+  private static class CustomConfig implements Configuration {
+
+    private boolean useSmart;
+
+    public boolean useSmart() {
+      return this.useSmart;
+    }
+
+    public void setUseSmart(boolean useSmart) {
+      this.useSmart = useSmart;
+    }
+
+    public String getMainDictionary() {
+      return "org/wltea/analyzer/dic/main2012.dic";
+    }
+
+    public String getQuantifierDicionary() {
+      return "org/wltea/analyzer/dic/quantifier.dic";
+    }
+
+    public List<String> getExtDictionarys() {
+      return new ArrayList<String>();
+    }
+
+    public List<String> getExtStopWordDictionarys() {
+      return new ArrayList<String>();
+    }
+  }
+
+}
@@ -0,0 +1,59 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * 分词器上下文测试：跨越多个缓冲区的长文本
+ */
+public class AnalyzeContextTest {
+
+  // 细粒度切分时词元数多于字符数，单个缓冲区的结果超过结果队列的初始容量
+  private static final String SENTENCE = "中华人民共和国，";
+
+  @Test
+  public void testLongText() throws Exception {
+    int perSentence = count(SENTENCE, false);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      sb.append(SENTENCE);
+    }
+    String text = sb.toString();
+    assertEquals(perSentence * 2000, count(text, false));
+    assertEquals(count(SENTENCE, true) * 2000, count(text, true));
+  }
+
+  @Test
+  public void testTextWithoutLexemes() throws Exception {
+    for (boolean useSmart : new boolean[] { false, true }) {
+      // 单字及标点文本没有原始词元，歧义处理得到空路径
+      assertEquals(0, count("，。！", useSmart));
+      assertEquals(count("中", useSmart), count("中", useSmart));
+      assertEquals(1, count("乂", useSmart));
+    }
+  }
+
+  /**
+   * 分词并校验每个词元的位置与文本一致
+   */
+  private static int count(String text, boolean useSmart) throws Exception {
+    IKSegmenter segmenter = new IKSegmenter(new StringReader(text), useSmart);
+    int count = 0;
+    int lastBegin = -1;
+    Lexeme lexeme;
+    while ((lexeme = segmenter.next()) != null) {
+      assertEquals(text.substring(lexeme.getBeginPosition(), lexeme.getEndPosition()),
+        lexeme.getLexemeText());
+      if (lexeme.getBeginPosition() < lastBegin) {
+        throw new AssertionError("lexeme out of order at " + lexeme.getBeginPosition());
+      }
+      lastBegin = lexeme.getBeginPosition();
+      count++;
+    }
+    return count;
+  }
+
+}
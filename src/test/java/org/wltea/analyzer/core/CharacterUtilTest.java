@@ -0,0 +1,30 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * 字符规格化及类型表测试
+ */
+public class CharacterUtilTest {
+
+  @Test
+  public void testTableMatchesCharFunctions() {
+    char[] chars = new char[Character.MAX_VALUE + 1];
+    int[] charTypes = new int[chars.length];
+    for (int c = 0; c < chars.length; c++) {
+      chars[c] = (char) c;
+    }
+    CharacterUtil.regularize(chars, charTypes, 0, chars.length);
+    for (int c = 0; c < chars.length; c++) {
+      char regularized = CharacterUtil.regularize((char) c);
+      assertEquals(regularized, chars[c]);
+      assertEquals(CharacterUtil.identifyCharType(regularized), charTypes[c]);
+    }
+    assertEquals('a', chars['A']);
+    assertEquals(CharacterUtil.CHAR_CHINESE, charTypes['中']);
+    assertEquals(CharacterUtil.CHAR_ARABIC, charTypes['１']);
+  }
+
+}
@@ -0,0 +1,101 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.wltea.analyzer.cfg.DefaultConfig;
+
+/**
+ * 合并子分词器与原子分词器的对比测试
+ */
+public class FusedSegmenterTest {
+
+  // 覆盖英文、数字、连接符、中文数词及量词的语料
+  private static final String MIXED = "IK Analyzer 3.0版本于2012年12月推出，windows2000及"
+      + "linliangyi2005@gmail.com、C++、1,000.5元、三百二十五个、第一季度增长了百分之二十五点五。"
+      + "ＡＢＣ全角１２３字符，5个苹果和十二斤梨。";
+
+  @Test
+  public void testMixedText() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      sb.append(MIXED);
+    }
+    assertSameLexemes(MIXED);
+    assertSameLexemes(sb.toString());
+  }
+
+  @Test
+  public void testBundledCorpora() throws IOException {
+    for (String name : new String[] { "THUOCL_it.txt.file", "THUOCL_caijing.txt.file",
+        "THUOCL_poem.txt.file" }) {
+      assertSameLexemes(readCorpus(name));
+    }
+  }
+
+  @Test
+  public void testEngineKeepsConfig() {
+    DefaultConfig cfg = (DefaultConfig) DefaultConfig.getInstance();
+    cfg.setUseSmart(true);
+    cfg.setSegmenter(IKSegmenter.SEGMENTER_FUSED);
+    SegmenterEngine engine = new SegmenterEngine(cfg);
+    // 创建引擎后修改配置，不影响已创建的引擎
+    cfg.setUseSmart(false);
+    cfg.setSegmenter("classic");
+    assertTrue(engine.useSmart());
+    ISegmenter[] segmenters = engine.newSegmenters();
+    assertEquals(1, segmenters.length);
+    assertTrue(segmenters[0] instanceof FusedSegmenter);
+    assertEquals(3, new SegmenterEngine(cfg).newSegmenters().length);
+  }
+
+  private static void assertSameLexemes(String text) throws IOException {
+    for (boolean useSmart : new boolean[] { false, true }) {
+      assertEquals(segment(text, useSmart, "classic"), segment(text, useSmart,
+        IKSegmenter.SEGMENTER_FUSED));
+    }
+  }
+
+  private static List<String> segment(String text, boolean useSmart, String segmenter)
+      throws IOException {
+    DefaultConfig cfg = (DefaultConfig) DefaultConfig.getInstance();
+    cfg.setUseSmart(useSmart);
+    cfg.setSegmenter(segmenter);
+    IKSegmenter ikSegmenter = new IKSegmenter(new StringReader(text), cfg);
+    List<String> lexemes = new ArrayList<String>();
+    Lexeme lexeme;
+    while ((lexeme = ikSegmenter.next()) != null) {
+      lexemes.add(lexeme.getBeginPosition() + "-" + lexeme.getEndPosition() + ":"
+          + lexeme.getLexemeText() + ":" + lexeme.getLexemeTypeString());
+    }
+    return lexemes;
+  }
+
+  /**
+   * 读取测试资源中的词表，去掉换行后作为连续文本
+   */
+  private static String readCorpus(String name) throws IOException {
+    InputStream is = FusedSegmenterTest.class.getClassLoader().getResourceAsStream(name);
+    StringBuilder sb = new StringBuilder();
+    try {
+      BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+      String line;
+      while ((line = br.readLine()) != null) {
+        sb.append(line);
+      }
+    } finally {
+      is.close();
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,218 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.cfg.ExtendedConfiguration;
+import org.wltea.analyzer.dic.Dictionary;
+
+/**
+ * 后台词典初始化及预热测试
+ * 后台初始化是JVM内共享的状态，失败及未预热的场景需在预热完成之前执行
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class IKSegmenterInitialTest {
+
+  @Test
+  public void testFailedInitial() throws Exception {
+    TestConfig broken = new TestConfig();
+    broken.failure = new IllegalStateException("broken");
+    RecordingListener listener = new RecordingListener();
+    Future<Dictionary> failed = IKSegmenter.initialAsync(broken, true, listener);
+    assertTrue(listener.latch.await(60, TimeUnit.SECONDS));
+    assertSame(broken.failure, listener.cause);
+    try {
+      failed.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(broken.failure, e.getCause());
+    }
+    // 失败的初始化不再保留，再次调用重新初始化
+    Future<Dictionary> retry = IKSegmenter.initialAsync(DefaultConfig.getInstance(), false);
+    assertNotSame(failed, retry);
+    assertSame(Dictionary.getSingleton(), retry.get(60, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testGatedWarmup() throws Exception {
+    Future<Dictionary> plain = IKSegmenter.initialAsync(DefaultConfig.getInstance(), false);
+    Dictionary dictionary = plain.get(60, TimeUnit.SECONDS);
+    // 未预热的初始化之后要求预热，启动新的初始化
+    TestConfig gated = new TestConfig();
+    gated.gate = new CountDownLatch(1);
+    Future<Dictionary> warm = IKSegmenter.initialAsync(gated, true);
+    assertNotSame(plain, warm);
+    assertSame(warm, IKSegmenter.initialAsync(DefaultConfig.getInstance(), false));
+
+    // 初始化尚未结束，创建分词器等待超时
+    TestConfig impatient = new TestConfig();
+    impatient.timeout = 0;
+    try {
+      new SegmenterEngine(impatient);
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().contains("超时"));
+    }
+
+    gated.gate.countDown();
+    assertSame(dictionary, warm.get(60, TimeUnit.SECONDS));
+    assertSame(dictionary, new SegmenterEngine(impatient).getDictionary());
+    assertSame(warm, IKSegmenter.initialAsync(DefaultConfig.getInstance(), true));
+  }
+
+  @Test
+  public void testInitialAsync() throws Exception {
+    Configuration cfg = DefaultConfig.getInstance();
+    Future<Dictionary> future = IKSegmenter.initialAsync(cfg, true);
+    // 初始化期间创建的分词器等待同一次加载
+    List<String> words = segment(cfg, "这是一个中文分词的例子");
+    Dictionary dictionary = future.get(60, TimeUnit.SECONDS);
+    assertSame(Dictionary.getSingleton(), dictionary);
+    assertSame(future, IKSegmenter.initialAsync(cfg, false));
+    assertEquals(words, segment(cfg, "这是一个中文分词的例子"));
+  }
+
+  @Test
+  public void testInitialListener() throws Exception {
+    Configuration cfg = DefaultConfig.getInstance();
+    RecordingListener first = new RecordingListener();
+    Future<Dictionary> future = IKSegmenter.initialAsync(cfg, false, first);
+    assertTrue(first.latch.await(60, TimeUnit.SECONDS));
+    assertSame(future.get(), first.dictionary);
+
+    // 初始化结束后注册的回调在当前线程中立即得到通知
+    RecordingListener late = new RecordingListener();
+    IKSegmenter.initialAsync(cfg, false, late);
+    assertEquals(0, late.latch.getCount());
+    assertSame(Thread.currentThread(), late.thread);
+    assertSame(future.get(), late.dictionary);
+  }
+
+  private static class RecordingListener implements InitialListener {
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    volatile Dictionary dictionary;
+    volatile Thread thread;
+    volatile Throwable cause;
+
+    public void initialized(Dictionary dictionary) {
+      this.dictionary = dictionary;
+      this.thread = Thread.currentThread();
+      this.latch.countDown();
+    }
+
+    public void failed(Throwable cause) {
+      this.cause = cause;
+      this.thread = Thread.currentThread();
+      this.latch.countDown();
+    }
+  }
+
+  /**
+   * 可以让预热失败或暂停的配置，其余配置项同DefaultConfig
+   */
+  private static class TestConfig implements ExtendedConfiguration {
+
+    private final DefaultConfig cfg = (DefaultConfig) DefaultConfig.getInstance();
+    // 预热时抛出的异常
+    volatile RuntimeException failure;
+    // 预热在此等待
+    volatile CountDownLatch gate;
+    // 等待后台初始化的超时时间（秒）
+    volatile long timeout = 60;
+
+    public boolean useSmart() {
+      return cfg.useSmart();
+    }
+
+    public void setUseSmart(boolean useSmart) {
+      cfg.setUseSmart(useSmart);
+    }
+
+    public String getMainDictionary() {
+      return cfg.getMainDictionary();
+    }
+
+    public String getQuantifierDicionary() {
+      return cfg.getQuantifierDicionary();
+    }
+
+    public List<String> getExtDictionarys() {
+      return cfg.getExtDictionarys();
+    }
+
+    public List<String> getExtStopWordDictionarys() {
+      return cfg.getExtStopWordDictionarys();
+    }
+
+    public String getDictEngine() {
+      return cfg.getDictEngine();
+    }
+
+    public String getDictSnapshot() {
+      return cfg.getDictSnapshot();
+    }
+
+    public String getCJKMatcher() {
+      return cfg.getCJKMatcher();
+    }
+
+    public String getSegmenter() {
+      // 只有分词引擎读取子分词器配置，预热在此失败或暂停
+      if (failure != null) {
+        throw failure;
+      }
+      if (gate != null) {
+        try {
+          gate.await(60, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return cfg.getSegmenter();
+    }
+
+    public boolean isDictReload() {
+      return cfg.isDictReload();
+    }
+
+    public List<String> getRemoteExtDictionarys() {
+      return cfg.getRemoteExtDictionarys();
+    }
+
+    public long getRemoteDictInterval() {
+      return cfg.getRemoteDictInterval();
+    }
+
+    public long getDictInitialTimeout() {
+      return timeout;
+    }
+  }
+
+  private static List<String> segment(Configuration cfg, String text) throws Exception {
+    IKSegmenter segmenter = new IKSegmenter(new StringReader(text), cfg);
+    List<String> words = new ArrayList<String>();
+    Lexeme lexeme;
+    while ((lexeme = segmenter.next()) != null) {
+      words.add(lexeme.getLexemeText());
+    }
+    return words;
+  }
+
+}
@@ -0,0 +1,49 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 词元存储测试
+ */
+public class LexemeStoreTest {
+
+  @Test
+  public void testGrowAndClear() {
+    LexemeStore store = new LexemeStore();
+    for (int i = 0; i < 5000; i++) {
+      assertEquals(i, store.add(i, 2, Lexeme.TYPE_CNWORD, i));
+    }
+    assertEquals(4999, store.getBegin(4999));
+    assertEquals(5001, store.getEnd(4999));
+    assertEquals(4999, store.getFlags(4999));
+
+    store.clear(100);
+    assertEquals(0, store.add(3, 1, Lexeme.TYPE_CNCHAR, Lexeme.FLAGS_UNKNOWN));
+    Lexeme lexeme = store.toLexeme(0);
+    assertEquals(103, lexeme.getBeginPosition());
+    assertEquals(Lexeme.TYPE_CNCHAR, lexeme.getLexemeType());
+  }
+
+  @Test
+  public void testCompareAndAppend() {
+    LexemeStore store = new LexemeStore();
+    int longer = store.add(0, 3, Lexeme.TYPE_ARABIC, Lexeme.FLAGS_UNKNOWN);
+    int shorter = store.add(0, 2, Lexeme.TYPE_ARABIC, Lexeme.FLAGS_UNKNOWN);
+    int count = store.add(3, 1, Lexeme.TYPE_COUNT, 2);
+    assertTrue(store.compare(longer, shorter) < 0);
+    assertTrue(store.compare(count, longer) > 0);
+    assertEquals(0, store.compare(count, count));
+
+    // 不相邻的词元不合并
+    assertFalse(store.append(shorter, count, Lexeme.TYPE_CQUAN));
+    assertTrue(store.append(longer, count, Lexeme.TYPE_CQUAN));
+    assertEquals(4, store.getLength(longer));
+    assertEquals(Lexeme.TYPE_CQUAN, store.getType(longer));
+    assertEquals(Lexeme.FLAGS_UNKNOWN, store.getFlags(longer));
+  }
+
+}
@@ -0,0 +1,72 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * 词元排序集合测试
+ */
+public class QuickSortSetTest {
+
+  @Test
+  public void testOrderAndDedupe() {
+    LexemeStore store = new LexemeStore();
+    QuickSortSet set = new QuickSortSet(store);
+    int b = store.add(2, 1, Lexeme.TYPE_CNWORD, Lexeme.FLAGS_UNKNOWN);
+    int a = store.add(0, 2, Lexeme.TYPE_CNWORD, Lexeme.FLAGS_UNKNOWN);
+    int c = store.add(0, 3, Lexeme.TYPE_CNWORD, Lexeme.FLAGS_UNKNOWN);
+    assertTrue(set.addLexeme(b));
+    assertTrue(set.addLexeme(a));
+    assertTrue(set.addLexeme(c));
+    // 位置与长度相同的词元不重复放入
+    assertFalse(set.addLexeme(store.add(2, 1, Lexeme.TYPE_COUNT, Lexeme.FLAGS_UNKNOWN)));
+    assertEquals(3, set.size());
+    assertEquals(a, set.get(1));
+    assertEquals(c, set.pollFirst());
+    assertEquals(b, set.pollLast());
+    assertEquals(a, set.pollFirst());
+    assertEquals(QuickSortSet.NONE, set.pollFirst());
+    assertTrue(set.isEmpty());
+  }
+
+  @Test
+  public void testAgainstTreeSet() {
+    LexemeStore store = new LexemeStore();
+    QuickSortSet set = new QuickSortSet(store, 4);
+    TreeSet<Long> expected = new TreeSet<Long>();
+    Random random = new Random(17);
+    for (int i = 0; i < 3000; i++) {
+      // 词元基本按顺序到达，偶尔回退
+      int begin = i / 3 - random.nextInt(4);
+      int length = 1 + random.nextInt(4);
+      if (begin < 0) {
+        continue;
+      }
+      int lexeme = store.add(begin, length, Lexeme.TYPE_CNWORD, Lexeme.FLAGS_UNKNOWN);
+      assertEquals(expected.add(key(store, lexeme)), set.addLexeme(lexeme));
+      if (i % 5 == 0) {
+        // 从头部取出元素，使集合在数组中后移
+        assertEquals(expected.pollFirst().longValue(), key(store, set.pollFirst()));
+      }
+    }
+    assertEquals(expected.size(), set.size());
+    for (Long key : expected) {
+      assertEquals(key.longValue(), key(store, set.pollFirst()));
+    }
+    assertEquals(QuickSortSet.NONE, set.pollFirst());
+  }
+
+  /**
+   * 与QuickSortSet相同的排序键：起始位置升序，长度降序
+   */
+  private static long key(LexemeStore store, int lexeme) {
+    return ((long) store.getBegin(lexeme) << 32) - store.getLength(lexeme);
+  }
+
+}
@@ -0,0 +1,156 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+
+/**
+ * 分词引擎及分词会话测试
+ */
+public class SegmenterEngineTest {
+
+  private static final String[] TEXTS = {
+      "IK Analyzer是一个开源的，基于java语言开发的轻量级的中文分词工具包。",
+      "2012年10月22日下午三点半，第一季度销售额增长了百分之二十五点五。",
+      "中华人民共和国成立了，linliangyi2005@gmail.com、C++、1,000.5元。" };
+
+  @Test
+  public void testSessionMatchesSegmenter() throws IOException {
+    for (boolean useSmart : new boolean[] { false, true }) {
+      SegmenterEngine engine = newEngine(useSmart);
+      SegmenterSession session = engine.newSession(new StringReader(""));
+      for (String text : TEXTS) {
+        // 同一会话通过reset反复使用
+        session.reset(new StringReader(text));
+        assertEquals(segment(new IKSegmenter(new StringReader(text), useSmart)), segment(session));
+      }
+    }
+  }
+
+  @Test
+  public void testConfigSnapshot() {
+    Configuration cfg = DefaultConfig.getInstance();
+    cfg.setUseSmart(true);
+    SegmenterEngine engine = new SegmenterEngine(cfg);
+    // 构造后修改配置不影响引擎
+    cfg.setUseSmart(false);
+    assertTrue(engine.useSmart());
+  }
+
+  @Test
+  public void testConcurrentSessions() throws Exception {
+    final SegmenterEngine engine = newEngine(true);
+    final List<List<String>> expected = new ArrayList<List<String>>();
+    for (String text : TEXTS) {
+      expected.add(segment(engine.newSession(new StringReader(text))));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(new Callable<Boolean>() {
+          public Boolean call() throws IOException {
+            SegmenterSession session = engine.newSession(new StringReader(""));
+            for (int i = 0; i < 200; i++) {
+              int n = i % TEXTS.length;
+              session.reset(new StringReader(TEXTS[n]));
+              if (!expected.get(n).equals(segment(session))) {
+                return false;
+              }
+            }
+            return true;
+          }
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        assertTrue(future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertFalse(expected.get(0).isEmpty());
+  }
+
+  @Test
+  public void testSharedSegmenter() throws Exception {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      sb.append(TEXTS[i % TEXTS.length]);
+    }
+    final String text = sb.toString();
+    List<String> expected = segment(new IKSegmenter(new StringReader(text), true));
+    final IKSegmenter segmenter = new IKSegmenter(new StringReader(text), true);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(new Callable<List<String>>() {
+          public List<String> call() throws IOException {
+            List<String> tokens = new ArrayList<String>();
+            while (true) {
+              // 在同一个锁内前进并读取当前词元
+              synchronized (segmenter) {
+                if (!segmenter.nextToken()) {
+                  return tokens;
+                }
+                String token = new String(segmenter.getTokenBuffer(), segmenter.getTokenBegin(),
+                    segmenter.getTokenLength());
+                assertEquals(text.substring(segmenter.getTokenBeginPosition(),
+                  segmenter.getTokenEndPosition()).toLowerCase(), token);
+                tokens.add(segmenter.getTokenBeginPosition() + "-"
+                    + segmenter.getTokenEndPosition() + " : " + token + " : \t"
+                    + Lexeme.toTypeString(segmenter.getTokenType()));
+              }
+            }
+          }
+        }));
+      }
+      List<String> tokens = new ArrayList<String>();
+      for (Future<List<String>> future : futures) {
+        tokens.addAll(future.get());
+      }
+      assertEquals(expected.size(), tokens.size());
+      assertTrue(tokens.containsAll(expected));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static SegmenterEngine newEngine(boolean useSmart) {
+    Configuration cfg = DefaultConfig.getInstance();
+    cfg.setUseSmart(useSmart);
+    return new SegmenterEngine(cfg);
+  }
+
+  private static List<String> segment(SegmenterSession session) throws IOException {
+    List<String> lexemes = new ArrayList<String>();
+    Lexeme lexeme;
+    while ((lexeme = session.next()) != null) {
+      lexemes.add(lexeme.toString());
+    }
+    return lexemes;
+  }
+
+  private static List<String> segment(IKSegmenter segmenter) throws IOException {
+    List<String> lexemes = new ArrayList<String>();
+    Lexeme lexeme;
+    while ((lexeme = segmenter.next()) != null) {
+      lexemes.add(lexeme.toString());
+    }
+    return lexemes;
+  }
+
+}
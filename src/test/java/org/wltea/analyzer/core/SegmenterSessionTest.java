@@ -0,0 +1,124 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+
+/**
+ * 分词会话直接切分文本的测试
+ */
+public class SegmenterSessionTest {
+
+  private static final String SENTENCE = "IK Analyzer 3.0版本于2012年12月推出，ＡＢＣ全角１２３字符，"
+      + "第一季度增长了百分之二十五点五，中华人民共和国成立了。";
+
+  @Test
+  public void testShortText() throws IOException {
+    for (boolean useSmart : new boolean[] { false, true }) {
+      SegmenterSession session = newSession(useSmart);
+      for (String text : new String[] { "", "中", "a", SENTENCE }) {
+        assertSameLexemes(session, text);
+      }
+    }
+  }
+
+  @Test
+  public void testBufferBoundary() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < 3 * AnalyzeContext.BUFF_SIZE) {
+      sb.append(SENTENCE);
+    }
+    String text = sb.toString();
+    for (boolean useSmart : new boolean[] { false, true }) {
+      SegmenterSession session = newSession(useSmart);
+      // 短于缓冲区的整段切分，及不短于缓冲区时按Reader方式切分
+      for (int length : new int[] { AnalyzeContext.BUFF_SIZE - 1, AnalyzeContext.BUFF_SIZE,
+          text.length() }) {
+        assertSameLexemes(session, text.substring(0, length));
+      }
+    }
+  }
+
+  @Test
+  public void testArrayRange() throws IOException {
+    SegmenterSession session = newSession(true);
+    char[] text = ("##" + SENTENCE + "##").toCharArray();
+    char[] copy = text.clone();
+    List<String> lexemes = new ArrayList<String>();
+    int count = session.segment(text, 2, SENTENCE.length(), new ListSink(text, lexemes));
+    // 词元位置为在text中的下标，文本内容不被修改
+    assertEquals(shift(segment(session, SENTENCE), 2), lexemes);
+    assertEquals(lexemes.size(), count);
+    assertArrayEquals(copy, text);
+    // segment放弃了reset设置的输入
+    assertNull(session.next());
+  }
+
+  private static void assertSameLexemes(SegmenterSession session, String text)
+      throws IOException {
+    List<String> expected = segment(session, text);
+    List<String> lexemes = new ArrayList<String>();
+    session.segment(text, new ListSink(text.toCharArray(), lexemes));
+    assertEquals(expected, lexemes);
+
+    lexemes.clear();
+    char[] chars = text.toCharArray();
+    session.segment(chars, 0, chars.length, new ListSink(chars, lexemes));
+    assertEquals(expected, lexemes);
+  }
+
+  private static SegmenterSession newSession(boolean useSmart) {
+    Configuration cfg = DefaultConfig.getInstance();
+    cfg.setUseSmart(useSmart);
+    return new SegmenterEngine(cfg).newSession(null);
+  }
+
+  /**
+   * 按Reader方式切分，作为对照结果
+   */
+  private static List<String> segment(SegmenterSession session, String text) throws IOException {
+    session.reset(new StringReader(text));
+    List<String> lexemes = new ArrayList<String>();
+    while (session.nextToken()) {
+      lexemes.add(session.getTokenBeginPosition() + "-" + session.getTokenLength() + ":"
+          + session.getTokenType());
+    }
+    return lexemes;
+  }
+
+  private static List<String> shift(List<String> lexemes, int offset) {
+    List<String> shifted = new ArrayList<String>();
+    for (String lexeme : lexemes) {
+      int dash = lexeme.indexOf('-');
+      shifted.add((Integer.parseInt(lexeme.substring(0, dash)) + offset) + lexeme.substring(dash));
+    }
+    return shifted;
+  }
+
+  private static class ListSink implements LexemeSink {
+
+    private final char[] text;
+    private final List<String> lexemes;
+
+    ListSink(char[] text, List<String> lexemes) {
+      this.text = text;
+      this.lexemes = lexemes;
+    }
+
+    public void accept(int begin, int length, int type) {
+      // 词元范围必须落在原文本内
+      assertEquals(length, new String(this.text, begin, length).length());
+      this.lexemes.add(begin + "-" + length + ":" + type);
+    }
+  }
+
+}
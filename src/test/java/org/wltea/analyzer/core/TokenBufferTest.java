@@ -0,0 +1,86 @@
+package org.wltea.analyzer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * 词元缓冲区测试
+ */
+public class TokenBufferTest {
+
+  private static final String SENTENCE = "IK Analyzer 3.0版本于2012年12月推出，"
+      + "第一季度增长了百分之二十五点五，中华人民共和国成立了。";
+
+  @Test
+  public void testPack() {
+    long token = TokenBuffer.pack(Integer.MAX_VALUE, (1 << 24) - 1, Lexeme.TYPE_CNCHAR);
+    assertEquals(Integer.MAX_VALUE, TokenBuffer.begin(token));
+    assertEquals((1 << 24) - 1, TokenBuffer.length(token));
+    assertEquals(Lexeme.TYPE_CNCHAR, TokenBuffer.type(token));
+
+    token = TokenBuffer.pack(0, 1, Lexeme.TYPE_CQUAN);
+    assertEquals(0, TokenBuffer.begin(token));
+    assertEquals(1, TokenBuffer.length(token));
+    assertEquals(Lexeme.TYPE_CQUAN, TokenBuffer.type(token));
+  }
+
+  @Test
+  public void testGrowAndClear() {
+    TokenBuffer tokens = new TokenBuffer(1);
+    for (int i = 0; i < 1000; i++) {
+      tokens.accept(i, i % 7 + 1, Lexeme.TYPE_CNWORD);
+    }
+    assertEquals(1000, tokens.size());
+    assertEquals(999, tokens.getBegin(999));
+    assertEquals(999 % 7 + 1, tokens.getLength(999));
+
+    long[] array = tokens.getTokens();
+    tokens.clear();
+    assertEquals(0, tokens.size());
+    tokens.accept(5, 2, Lexeme.TYPE_ARABIC);
+    // 清空后重用已分配的数组
+    assertSame(array, tokens.getTokens());
+    assertEquals(Lexeme.TYPE_ARABIC, tokens.getType(0));
+  }
+
+  @Test
+  public void testSegmentToBuffer() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 300; i++) {
+      sb.append(SENTENCE);
+    }
+    String text = sb.toString();
+    IKSegmenter segmenter = new IKSegmenter(new StringReader(text), true);
+    TokenBuffer tokens = new TokenBuffer();
+    int count = segmenter.nextTokens(tokens);
+    assertEquals(tokens.size(), count);
+
+    segmenter.reset(new StringReader(text));
+    Lexeme lexeme;
+    int i = 0;
+    while ((lexeme = segmenter.next()) != null) {
+      assertEquals(lexeme.getBeginPosition(), tokens.getBegin(i));
+      assertEquals(lexeme.getLength(), tokens.getLength(i));
+      assertEquals(lexeme.getLexemeType(), tokens.getType(i));
+      i++;
+    }
+    assertEquals(count, i);
+
+    // 短文本直接切分，结果与Reader方式一致
+    tokens.clear();
+    segmenter.segment(SENTENCE, tokens);
+    segmenter.reset(new StringReader(SENTENCE));
+    i = 0;
+    while (segmenter.nextToken()) {
+      assertEquals(TokenBuffer.pack(segmenter.getTokenBeginPosition(),
+        segmenter.getTokenLength(), segmenter.getTokenType()), tokens.get(i++));
+    }
+    assertEquals(tokens.size(), i);
+  }
+
+}
@@ -0,0 +1,100 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Aho-Corasick匹配自动机与逐位置词典树匹配的结果一致性测试
+ */
+public class AhoCorasickMatcherTest {
+
+  @Test
+  public void testSameWordsAsTrie() {
+    Random random = new Random(20121022L);
+    List<char[]> words = new ArrayList<char[]>();
+    for (int i = 0; i < 20000; i++) {
+      char[] word = new char[1 + random.nextInt(6)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(200));
+      }
+      words.add(word);
+    }
+    DoubleArrayTrie dat = (DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT, words);
+    // 屏蔽部分词条，保留其节点
+    for (int i = 0; i < 500; i++) {
+      dat.disableSegment(words.get(random.nextInt(words.size())));
+    }
+    char[] text = new char[50000];
+    for (int i = 0; i < text.length; i++) {
+      text[i] = (char) (0x4e00 + random.nextInt(220));
+    }
+    assertEquals(trieWords(dat, text), matcherWords(dat.buildMatcher(), text));
+  }
+
+  @Test
+  public void testOpenState() {
+    List<char[]> words = new ArrayList<char[]>();
+    words.add("中华人民".toCharArray());
+    words.add("人民币".toCharArray());
+    words.add("华人".toCharArray());
+    AhoCorasickMatcher matcher = ((DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT,
+      words)).buildMatcher();
+    int state = AhoCorasickMatcher.ROOT;
+    for (char c : "中华人".toCharArray()) {
+      state = matcher.next(state, c);
+    }
+    // "华人"是词，"中华人"及"人"仍是前缀
+    assertEquals(2, matcher.wordLength(matcher.longestWord(state)));
+    assertEquals(0, matcher.shorterWord(matcher.longestWord(state)));
+    assertEquals(true, matcher.isOpen(state));
+    state = matcher.next(state, '民');
+    assertEquals(4, matcher.wordLength(matcher.longestWord(state)));
+    state = matcher.next(state, '国');
+    assertEquals(AhoCorasickMatcher.ROOT, state);
+    assertEquals(false, matcher.isOpen(matcher.next(AhoCorasickMatcher.ROOT, '币')));
+  }
+
+  /**
+   * 从每个起始位置沿词典树匹配，返回全部命中词的"起始位置:长度"
+   */
+  private Set<String> trieWords(DictTrie trie, char[] text) {
+    Set<String> result = new TreeSet<String>();
+    for (int i = 0; i < text.length; i++) {
+      Hit hit = trie.match(text, i, 1);
+      for (int j = i + 1;; j++) {
+        if (hit.isMatch()) {
+          result.add(i + ":" + (j - i));
+        }
+        if (!hit.isPrefix() || j >= text.length) {
+          break;
+        }
+        hit = hit.getMatchedTrie().matchWithHit(text, j, hit);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 单遍扫描，返回全部命中词的"起始位置:长度"
+   */
+  private Set<String> matcherWords(AhoCorasickMatcher matcher, char[] text) {
+    Set<String> result = new TreeSet<String>();
+    int state = AhoCorasickMatcher.ROOT;
+    for (int i = 0; i < text.length; i++) {
+      state = matcher.next(state, text[i]);
+      for (int word = matcher.longestWord(state); word != 0; word = matcher.shorterWord(word)) {
+        int length = matcher.wordLength(word);
+        result.add((i - length + 1) + ":" + length);
+      }
+    }
+    return result;
+  }
+
+}
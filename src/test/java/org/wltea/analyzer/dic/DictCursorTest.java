@@ -0,0 +1,111 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * 词典游标与逐个Hit匹配的结果一致性测试
+ */
+public class DictCursorTest {
+
+  @Test
+  public void testEngines() {
+    Random random = new Random(20121022L);
+    List<char[]> words = randomWords(random, 20000);
+    char[] text = randomText(random, 50000);
+    for (String engine : new String[] { Dictionary.ENGINE_TRIE, Dictionary.ENGINE_RADIX,
+        Dictionary.ENGINE_DAT, Dictionary.ENGINE_FST }) {
+      DictTrie trie = Dictionary.newDictTrie(engine, new ArrayList<char[]>(words));
+      assertEquals(engine, scanWithHits(trie, text), scanWithCursor(trie, text));
+    }
+  }
+
+  @Test
+  public void testFlagAndOverlay() {
+    Random random = new Random(20121023L);
+    List<char[]> words = randomWords(random, 20000);
+    char[] text = randomText(random, 50000);
+    DictSegment root = (DictSegment) Dictionary.newDictTrie(Dictionary.ENGINE_TRIE, words);
+    for (char[] word : randomWords(random, 2000)) {
+      root.fillSegment(word, Dictionary.WORD_QUANTIFIER);
+    }
+    DictTrie quantifier = new FlagDictTrie(root, Dictionary.WORD_QUANTIFIER);
+    assertEquals(scanWithHits(quantifier, text), scanWithCursor(quantifier, text));
+
+    // 租户新增及屏蔽词条
+    OverlayDictTrie overlay = new OverlayDictTrie(root);
+    for (char[] word : randomWords(random, 2000)) {
+      overlay.fillSegment(word);
+    }
+    for (int i = 0; i < words.size(); i += 7) {
+      overlay.disableSegment(words.get(i));
+    }
+    assertEquals(scanWithHits(overlay, text), scanWithCursor(overlay, text));
+  }
+
+  /**
+   * 以CJKSegmenter原有的Hit队列方式扫描，记录每个词的开始、结束位置及标志位
+   */
+  private static List<String> scanWithHits(DictTrie trie, char[] text) {
+    List<String> result = new ArrayList<String>();
+    List<Hit> hits = new LinkedList<Hit>();
+    for (int i = 0; i < text.length; i++) {
+      for (Hit hit : hits.toArray(new Hit[hits.size()])) {
+        hit = hit.getMatchedTrie().matchWithHit(text, i, hit);
+        if (hit.isMatch()) {
+          result.add(hit.getBegin() + "-" + i + ":" + hit.getWordFlags());
+        }
+        if (!hit.isPrefix()) {
+          hits.remove(hit);
+        }
+      }
+      Hit hit = trie.match(text, i, 1);
+      if (hit.isMatch()) {
+        result.add(i + "-" + i + ":" + hit.getWordFlags());
+      }
+      if (hit.isPrefix()) {
+        hits.add(hit);
+      }
+    }
+    return result;
+  }
+
+  private static List<String> scanWithCursor(DictTrie trie, char[] text) {
+    List<String> result = new ArrayList<String>();
+    DictCursor cursor = new DictCursor(trie);
+    for (int i = 0; i < text.length; i++) {
+      int count = cursor.advance(text, i);
+      for (int j = 0; j < count; j++) {
+        result.add(cursor.getMatchBegin(j) + "-" + i + ":" + cursor.getMatchFlags(j));
+      }
+    }
+    return result;
+  }
+
+  private static List<char[]> randomWords(Random random, int count) {
+    List<char[]> words = new ArrayList<char[]>();
+    for (int i = 0; i < count; i++) {
+      char[] word = new char[1 + random.nextInt(6)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(j == 0 ? 300 : 12));
+      }
+      words.add(word);
+    }
+    return words;
+  }
+
+  private static char[] randomText(Random random, int length) {
+    char[] text = new char[length];
+    for (int i = 0; i < length; i++) {
+      text[i] = (char) (0x4e00 + random.nextInt(i % 3 == 0 ? 300 : 12));
+    }
+    return text;
+  }
+
+}
@@ -0,0 +1,77 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * 词典文件并行加载测试
+ */
+public class DictFileLoaderTest {
+
+  @Test
+  public void testReadWords() throws IOException {
+    // 各种换行符、首尾空白、空行及大写字母，与BufferedReader.readLine逐行读取的处理一致
+    String text = "中华\r\n 人民 \r\r\n\tIKAnalyzer\n\n  \nΣΑΣ\n末行";
+    List<char[]> words = new ArrayList<char[]>();
+    DictFileLoader.readWords(new ByteArrayInputStream(text.getBytes("UTF-8")), words);
+    String[] expected = { "中华", "人民", "ikanalyzer", "σας", "末行" };
+    assertEquals(expected.length, words.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], new String(words.get(i)));
+    }
+  }
+
+  @Test
+  public void testReadAll() {
+    List<String> dictFiles = new ArrayList<String>();
+    dictFiles.add("org/wltea/analyzer/dic/quantifier.dic");
+    dictFiles.add("not-exists.dic");
+    dictFiles.add("org/wltea/analyzer/dic/quantifier.dic");
+    List<List<char[]>> loaded = DictFileLoader.readAll(dictFiles);
+    assertEquals(3, loaded.size());
+    assertTrue(loaded.get(0).size() > 0);
+    assertNull(loaded.get(1));
+    assertEquals(loaded.get(0).size(), loaded.get(2).size());
+  }
+
+  @Test
+  public void testBuildTrie() {
+    // 按首字分枝构建的对象树与逐词填充的对象树一致，重复的词条不影响结果
+    Random random = new Random(20121022L);
+    List<char[]> words = new ArrayList<char[]>();
+    DictSegment filled = new DictSegment((char) 0);
+    for (int i = 0; i < 50000; i++) {
+      char[] word = new char[1 + random.nextInt(6)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(j == 0 ? 5000 : 20));
+      }
+      words.add(word);
+      filled.fillSegment(word);
+    }
+    words.addAll(new ArrayList<char[]>(words.subList(0, 1000)));
+    DictSegment built = DictFileLoader.buildTrie(words);
+
+    for (int i = 0; i < 50000; i++) {
+      char[] word = new char[1 + random.nextInt(6)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(j == 0 ? 5000 : 20));
+      }
+      for (int length = 1; length <= word.length; length++) {
+        Hit expected = filled.match(word, 0, length);
+        Hit actual = built.match(word, 0, length);
+        assertEquals(expected.isMatch(), actual.isMatch());
+        assertEquals(expected.isPrefix(), actual.isPrefix());
+      }
+    }
+  }
+
+}
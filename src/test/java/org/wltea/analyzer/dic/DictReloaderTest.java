@@ -0,0 +1,161 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+
+/**
+ * 扩展词典热加载测试
+ */
+public class DictReloaderTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private Path dir;
+  private Path extDict;
+  private Path stopDict;
+  private Dictionary dictionary;
+  private DictReloader reloader;
+
+  @Before
+  public void setUp() throws IOException {
+    Configuration cfg = DefaultConfig.getInstance();
+    dictionary = Dictionary.initial(cfg);
+    dir = Files.createTempDirectory("ikreload");
+    extDict = dir.resolve("ext.dic");
+    stopDict = dir.resolve("stop.dic");
+    Files.write(extDict, Arrays.asList("中国"), UTF_8);
+    Files.write(stopDict, Collections.<String> emptyList(), UTF_8);
+    reloader = new DictReloader(dictionary, Collections.singleton(extDict),
+        Collections.singleton(stopDict));
+    reloader.start();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    reloader.close();
+    Files.deleteIfExists(extDict);
+    Files.deleteIfExists(stopDict);
+    Files.deleteIfExists(dir);
+  }
+
+  @Test
+  public void testReload() throws Exception {
+    assertFalse(isMainWord("热加载测试词"));
+    Files.write(extDict, Arrays.asList("中国", "热加载测试词"), UTF_8);
+    waitForReload(1);
+    assertTrue(isMainWord("热加载测试词"));
+
+    // 删除扩展词，主词典中的"中国"不受影响
+    Files.write(extDict, Collections.<String> emptyList(), UTF_8);
+    waitForReload(2);
+    assertFalse(isMainWord("热加载测试词"));
+    assertTrue(isMainWord("中国"));
+
+    Files.write(stopDict, Arrays.asList("热加载停止词"), UTF_8);
+    waitForReload(3);
+    assertTrue(dictionary.isStopWord("热加载停止词".toCharArray(), 0, 6));
+    Files.delete(stopDict);
+    waitForReload(4);
+    assertFalse(dictionary.isStopWord("热加载停止词".toCharArray(), 0, 6));
+    assertTrue(reloader.getTotalReloadMillis() >= reloader.getLastReloadMillis());
+  }
+
+  @Test
+  public void testRemovalKeepsSourceWords() throws Exception {
+    Dictionary tenant = dictionary.newTenant(DefaultConfig.getInstance());
+    final Set<String> sourceWords = new HashSet<String>(Arrays.asList("来源保留测试词"));
+    tenant.addDictionarySource(new DictionarySource() {
+      private boolean fetched;
+
+      public synchronized Set<String> fetch() {
+        if (fetched) {
+          return null;
+        }
+        fetched = true;
+        return sourceWords;
+      }
+    });
+    long deadline = System.currentTimeMillis() + 30000;
+    while (tenant.getSourcePoller().getUpdateCount() < 1
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertTrue(isMainWord(tenant, "来源保留测试词"));
+
+    Path tenantDict = dir.resolve("tenant.dic");
+    Files.write(tenantDict, Collections.<String> emptyList(), UTF_8);
+    DictReloader tenantReloader = new DictReloader(tenant, Collections.singleton(tenantDict),
+        Collections.<Path> emptySet());
+    try {
+      Files.write(tenantDict, Arrays.asList("来源保留测试词", "文件删除测试词"), UTF_8);
+      assertTrue(tenantReloader.reload(Collections.singleton(tenantDict)));
+      assertTrue(isMainWord(tenant, "文件删除测试词"));
+
+      // 文件中删除的词仍由来源提供时不屏蔽
+      Files.write(tenantDict, Collections.<String> emptyList(), UTF_8);
+      assertTrue(tenantReloader.reload(Collections.singleton(tenantDict)));
+      assertFalse(isMainWord(tenant, "文件删除测试词"));
+      assertTrue(isMainWord(tenant, "来源保留测试词"));
+    } finally {
+      tenantReloader.close();
+      tenant.getSourcePoller().close();
+      Files.deleteIfExists(tenantDict);
+    }
+  }
+
+  @Test
+  public void testRemovalKeepsUnwatchedStopWords() throws Exception {
+    // "and"由配置的stopword.dic提供，该文件不被监视
+    Dictionary tenant = dictionary.newTenant(DefaultConfig.getInstance());
+    assertTrue(tenant.isStopWord("and".toCharArray(), 0, 3));
+    Path tenantStopDict = dir.resolve("tenant-stop.dic");
+    Files.write(tenantStopDict, Collections.<String> emptyList(), UTF_8);
+    DictReloader tenantReloader = new DictReloader(tenant, Collections.<Path> emptySet(),
+        Collections.singleton(tenantStopDict));
+    try {
+      Files.write(tenantStopDict, Arrays.asList("and", "热加载删除停止词"), UTF_8);
+      assertTrue(tenantReloader.reload(Collections.singleton(tenantStopDict)));
+      assertTrue(tenant.isStopWord("热加载删除停止词".toCharArray(), 0, 8));
+
+      Files.write(tenantStopDict, Collections.<String> emptyList(), UTF_8);
+      assertTrue(tenantReloader.reload(Collections.singleton(tenantStopDict)));
+      assertFalse(tenant.isStopWord("热加载删除停止词".toCharArray(), 0, 8));
+      assertTrue(tenant.isStopWord("and".toCharArray(), 0, 3));
+    } finally {
+      tenantReloader.close();
+      Files.deleteIfExists(tenantStopDict);
+    }
+  }
+
+  private boolean isMainWord(String word) {
+    return isMainWord(dictionary, word);
+  }
+
+  private static boolean isMainWord(Dictionary dictionary, String word) {
+    return dictionary.matchInMainDict(word.toCharArray()).isMatch();
+  }
+
+  private void waitForReload(long count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 30000;
+    while (reloader.getReloadCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertTrue("reload count " + reloader.getReloadCount(), reloader.getReloadCount() >= count);
+  }
+
+}
@@ -0,0 +1,225 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wltea.analyzer.cfg.Configuration;
+
+/**
+ * 词典快照的读写及失效测试
+ */
+public class DictSnapshotTest {
+
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("ikdict", ".snapshot");
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    List<char[]> words = new ArrayList<char[]>();
+    for (String word : new String[] { "中国", "中国人", "中华人民共和国", "人民", "abc" }) {
+      words.add(word.toCharArray());
+    }
+    DoubleArrayTrie main = (DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT, words);
+    DoubleArrayTrie stop = (DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT,
+      new ArrayList<char[]>());
+    List<char[]> quantifiers = new ArrayList<char[]>();
+    quantifiers.add("个".toCharArray());
+    DoubleArrayTrie quantifier = (DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT,
+      quantifiers);
+    DictSnapshot.write(file, 42L, main, stop, quantifier);
+
+    DoubleArrayTrie[] dicts = DictSnapshot.read(file, 42L);
+    assertNotNull(dicts);
+    assertEquals(main.size(), dicts[0].size());
+    assertTrue(dicts[0].match("中华人民共和国".toCharArray(), 0, 7).isMatch());
+    Hit hit = dicts[0].match("中国".toCharArray(), 0, 2);
+    assertTrue(hit.isMatch());
+    assertTrue(hit.isPrefix());
+    assertTrue(dicts[0].match("共和".toCharArray(), 0, 2).isUnmatch());
+    assertTrue(dicts[1].match("的".toCharArray(), 0, 1).isUnmatch());
+    assertTrue(dicts[2].match("个".toCharArray(), 0, 1).isMatch());
+
+    // 载入后的词典仍可继续插入新词
+    dicts[0].fillSegment("共和".toCharArray());
+    assertTrue(dicts[0].match("共和".toCharArray(), 0, 2).isMatch());
+    assertTrue(dicts[0].match("中国人".toCharArray(), 0, 3).isMatch());
+  }
+
+  @Test
+  public void testStaleOrCorrupted() throws IOException {
+    List<char[]> words = new ArrayList<char[]>();
+    words.add("中国".toCharArray());
+    DoubleArrayTrie dat = (DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT, words);
+    DictSnapshot.write(file, 1L, dat, dat, dat);
+    assertNotNull(DictSnapshot.read(file, 1L));
+    // 源文件校验和不一致
+    assertNull(DictSnapshot.read(file, 2L));
+
+    // 数据被篡改
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(raf.length() - 1);
+      int last = raf.read();
+      raf.seek(raf.length() - 1);
+      raf.write(last ^ 1);
+    } finally {
+      raf.close();
+    }
+    assertNull(DictSnapshot.read(file, 1L));
+
+    // 文件被截断
+    raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(10);
+    } finally {
+      raf.close();
+    }
+    assertNull(DictSnapshot.read(file, 1L));
+  }
+
+  @Test
+  public void testMapped() throws IOException {
+    Random random = new Random(20121022L);
+    List<char[]> words = new ArrayList<char[]>();
+    for (int i = 0; i < 5000; i++) {
+      char[] word = new char[1 + random.nextInt(5)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(300));
+      }
+      words.add(word);
+    }
+    List<char[]> quantifiers = new ArrayList<char[]>();
+    quantifiers.add("个".toCharArray());
+    DoubleArrayTrie main = (DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT,
+      new ArrayList<char[]>(words));
+    DoubleArrayTrie quantifier = (DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT,
+      quantifiers);
+    DictSnapshot.write(file, 7L, main, main, quantifier);
+
+    assertNull(DictSnapshot.map(file, 8L));
+    MappedDoubleArrayTrie[] dicts = DictSnapshot.map(file, 7L);
+    assertNotNull(dicts);
+    assertEquals(main.size(), dicts[1].size());
+    assertTrue(dicts[2].match("个".toCharArray(), 0, 1).isMatch());
+    char[] text = new char[20000];
+    for (int i = 0; i < text.length; i++) {
+      text[i] = (char) (0x4e00 + random.nextInt(320));
+    }
+    for (int i = 0; i < text.length; i++) {
+      Hit e = main.match(text, i, 1);
+      Hit a = dicts[0].match(text, i, 1);
+      for (int j = i + 1;; j++) {
+        assertEquals(e.isMatch(), a.isMatch());
+        assertEquals(e.isPrefix(), a.isPrefix());
+        assertEquals(e.isUnmatch(), a.isUnmatch());
+        if (!e.isPrefix() || j >= text.length) {
+          break;
+        }
+        e = e.getMatchedTrie().matchWithHit(text, j, e);
+        a = a.getMatchedTrie().matchWithHit(text, j, a);
+      }
+    }
+
+    // 复制到堆内后可继续修改
+    DoubleArrayTrie heap = dicts[0].toHeap();
+    heap.disableSegment(words.get(0));
+    assertFalse(heap.match(words.get(0), 0, words.get(0).length).isMatch());
+    assertTrue(dicts[0].match(words.get(0), 0, words.get(0).length).isMatch());
+  }
+
+  @Test
+  public void testChecksumFollowsContent() throws Exception {
+    // 在类路径目录下创建扩展词典
+    File classes = new File(DictSnapshotTest.class.getClassLoader().getResource(
+      "IKAnalyzer.cfg.xml").toURI()).getParentFile();
+    File dict = new File(classes, "ikdict-checksum-test.dic");
+    try {
+      writeDict(dict, "中国");
+      Configuration cfg = new ExtDictConfig(dict.getName());
+      long checksum = DictSnapshot.checksum(cfg);
+      assertEquals(checksum, DictSnapshot.checksum(cfg));
+
+      // 只有修改时间变化
+      assertTrue(dict.setLastModified(dict.lastModified() - 10000));
+      assertEquals(checksum, DictSnapshot.checksum(cfg));
+
+      // 长度及修改时间不变的内容变化
+      long lastModified = dict.lastModified();
+      writeDict(dict, "美国");
+      assertTrue(dict.setLastModified(lastModified));
+      assertFalse(checksum == DictSnapshot.checksum(cfg));
+    } finally {
+      dict.delete();
+    }
+  }
+
+  private static void writeDict(File dict, String word) throws IOException {
+    FileOutputStream out = new FileOutputStream(dict);
+    try {
+      out.write(word.getBytes("UTF-8"));
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * 只有一个扩展词典的配置
+   */
+  private static class ExtDictConfig implements Configuration {
+
+    private final String extDict;
+
+    ExtDictConfig(String extDict) {
+      this.extDict = extDict;
+    }
+
+    public boolean useSmart() {
+      return false;
+    }
+
+    public void setUseSmart(boolean useSmart) {
+    }
+
+    public String getMainDictionary() {
+      return "org/wltea/analyzer/dic/main2012.dic";
+    }
+
+    public String getQuantifierDicionary() {
+      return "org/wltea/analyzer/dic/quantifier.dic";
+    }
+
+    public List<String> getExtDictionarys() {
+      List<String> dicts = new ArrayList<String>();
+      dicts.add(this.extDict);
+      return dicts;
+    }
+
+    public List<String> getExtStopWordDictionarys() {
+      return new ArrayList<String>();
+    }
+  }
+
+}
@@ -0,0 +1,236 @@
+package org.wltea.analyzer.dic;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+
+/**
+ * 主词典树实现的内存及查询性能对比
+ * 使用main2012.dic及IKAnalyzer.cfg.xml中配置的扩展词典
+ *
+ * 运行参数为需要对比的词典树实现名称，默认对比 trie、radix、fst、dat 与 mmap
+ */
+public class DictTrieBenchmark {
+
+  // 每项测试的最短运行时间
+  private static final long RUN_MILLIS = 3000;
+
+  public static void main(String[] args) throws IOException {
+    String[] engines = args.length > 0 ? args : new String[] { Dictionary.ENGINE_TRIE,
+        Dictionary.ENGINE_RADIX, Dictionary.ENGINE_FST, Dictionary.ENGINE_DAT,
+        Dictionary.ENGINE_MMAP };
+    Configuration cfg = DefaultConfig.getInstance();
+    List<char[]> words = loadWords(cfg);
+    char[] text = toText(words);
+    System.out.println("词条数：" + words.size() + "  扫描文本长度：" + text.length);
+
+    for (String engine : engines) {
+      long before = usedMemory();
+      long start = System.nanoTime();
+      DictTrie trie = newDictTrie(engine, words);
+      long buildMillis = (System.nanoTime() - start) / 1000000;
+      long heap = usedMemory() - before;
+
+      double wordRate = wordLookups(trie, words);
+      double charRate = scanText(trie, text);
+      double cursorRate = scanText(new DictCursor(trie), text);
+      double rootNanos = rootLookups(trie, text);
+      System.out.println(String.format("%-6s heap=%7.1fMB  build=%6dms  words/s=%,12.0f  chars/s=%,12.0f"
+          + "  cursor chars/s=%,12.0f  root=%5.1fns/char", engine, heap / 1024.0 / 1024.0,
+        buildMillis, wordRate, charRate, cursorRate, rootNanos));
+      // 保持引用，避免词典树在内存统计前被回收
+      if (trie.match(words.get(0), 0, words.get(0).length).isUnmatch()) {
+        throw new IllegalStateException(engine + " lost word " + new String(words.get(0)));
+      }
+      if (trie instanceof DoubleArrayTrie) {
+        AhoCorasickMatcher matcher = ((DoubleArrayTrie) trie).buildMatcher();
+        System.out.println(String.format("%-6s chars/s=%,12.0f", "ac", scanText(matcher, text)));
+      }
+    }
+  }
+
+  /**
+   * 创建词典树，mmap方式通过临时快照文件映射
+   */
+  private static DictTrie newDictTrie(String engine, List<char[]> words) throws IOException {
+    if (!Dictionary.ENGINE_MMAP.equals(engine)) {
+      return Dictionary.newDictTrie(engine, new ArrayList<char[]>(words));
+    }
+    DoubleArrayTrie dat = (DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT,
+      new ArrayList<char[]>(words));
+    DoubleArrayTrie empty = (DoubleArrayTrie) Dictionary.newDictTrie(Dictionary.ENGINE_DAT,
+      new ArrayList<char[]>());
+    File file = File.createTempFile("ikbench", ".snapshot");
+    file.deleteOnExit();
+    DictSnapshot.write(file, 0L, dat, empty, empty);
+    return DictSnapshot.map(file, 0L)[0];
+  }
+
+  /**
+   * 整词查询：每秒完成的词条查询数
+   */
+  private static double wordLookups(DictTrie trie, List<char[]> words) {
+    long count = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      for (char[] word : words) {
+        if (trie.match(word, 0, word.length).isMatch()) {
+          count++;
+        }
+      }
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < RUN_MILLIS * 1000000);
+    return count * 1e9 / elapsed;
+  }
+
+  /**
+   * 模拟CJKSegmenter的逐字扫描：每个位置从根节点开始，沿前缀一直向后匹配
+   * @return 每秒扫描的字符数
+   */
+  private static double scanText(DictTrie trie, char[] text) {
+    long chars = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      for (int i = 0; i < text.length; i++) {
+        Hit hit = trie.match(text, i, 1);
+        for (int j = i + 1; hit.isPrefix() && j < text.length; j++) {
+          hit = hit.getMatchedTrie().matchWithHit(text, j, hit);
+        }
+      }
+      chars += text.length;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < RUN_MILLIS * 1000000);
+    return chars * 1e9 / elapsed;
+  }
+
+  /**
+   * 使用词典游标逐字扫描，访问的词与scanText(DictTrie, char[])相同
+   * @return 每秒扫描的字符数
+   */
+  private static double scanText(DictCursor cursor, char[] text) {
+    long chars = 0;
+    long words = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      cursor.reset();
+      for (int i = 0; i < text.length; i++) {
+        words += cursor.advance(text, i);
+      }
+      chars += text.length;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < RUN_MILLIS * 1000000);
+    if (words == 0) {
+      throw new IllegalStateException("no word matched");
+    }
+    return chars * 1e9 / elapsed;
+  }
+
+  /**
+   * 首字查询：CJKSegmenter对每个字符调用matchInMainDict(buff, cursor, 1)，从根节点查找首字
+   * @return 每个字符的平均耗时（纳秒）
+   */
+  private static double rootLookups(DictTrie trie, char[] text) {
+    long chars = 0;
+    long prefixes = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      for (int i = 0; i < text.length; i++) {
+        if (trie.match(text, i, 1).isPrefix()) {
+          prefixes++;
+        }
+      }
+      chars += text.length;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < RUN_MILLIS * 1000000);
+    if (prefixes == 0) {
+      throw new IllegalStateException("no prefix matched");
+    }
+    return (double) elapsed / chars;
+  }
+
+  /**
+   * 使用Aho-Corasick自动机单遍扫描，同样访问以每个位置结尾的全部词
+   * @return 每秒扫描的字符数
+   */
+  private static double scanText(AhoCorasickMatcher matcher, char[] text) {
+    long chars = 0;
+    long words = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      int state = AhoCorasickMatcher.ROOT;
+      for (int i = 0; i < text.length; i++) {
+        state = matcher.next(state, text[i]);
+        for (int word = matcher.longestWord(state); word != 0; word = matcher.shorterWord(word)) {
+          words += matcher.wordLength(word);
+        }
+      }
+      chars += text.length;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < RUN_MILLIS * 1000000);
+    if (words == 0) {
+      throw new IllegalStateException("no word matched");
+    }
+    return chars * 1e9 / elapsed;
+  }
+
+  private static List<char[]> loadWords(Configuration cfg) throws IOException {
+    List<char[]> words = new ArrayList<char[]>(500000);
+    readWords(cfg.getMainDictionary(), words);
+    for (String ext : cfg.getExtDictionarys()) {
+      readWords(ext, words);
+    }
+    return words;
+  }
+
+  private static void readWords(String path, List<char[]> words) throws IOException {
+    InputStream is = DictTrieBenchmark.class.getClassLoader().getResourceAsStream(path);
+    if (is == null) {
+      return;
+    }
+    try {
+      BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+      String theWord;
+      while ((theWord = br.readLine()) != null) {
+        if (!"".equals(theWord.trim())) {
+          words.add(theWord.trim().toLowerCase().toCharArray());
+        }
+      }
+    } finally {
+      is.close();
+    }
+  }
+
+  private static char[] toText(List<char[]> words) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < words.size(); i += 7) {
+      sb.append(words.get(i));
+    }
+    return sb.toString().toCharArray();
+  }
+
+  private static long usedMemory() {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+
+}
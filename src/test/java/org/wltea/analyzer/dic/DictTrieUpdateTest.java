@@ -0,0 +1,154 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * 词典树写时复制更新测试
+ */
+public class DictTrieUpdateTest {
+
+  @Test
+  public void testUpdateLeavesOldTrieUnchanged() {
+    for (String engine : new String[] { Dictionary.ENGINE_TRIE, Dictionary.ENGINE_RADIX,
+        Dictionary.ENGINE_FST, Dictionary.ENGINE_DAT }) {
+      DictTrie old = Dictionary.newDictTrie(engine, words("中国", "中国人", "人民", "一", "二", "三", "四"));
+      DictTrie updated = old.update(words("中华", "人民币", "五"), words("中国"));
+
+      assertTrue(engine, old.match("中国".toCharArray(), 0, 2).isMatch());
+      assertTrue(engine, old.match("中华".toCharArray(), 0, 2).isUnmatch());
+      assertFalse(engine, old.match("人民币".toCharArray(), 0, 3).isMatch());
+      assertTrue(engine, old.match("五".toCharArray(), 0, 1).isUnmatch());
+
+      assertFalse(engine, updated.match("中国".toCharArray(), 0, 2).isMatch());
+      assertTrue(engine, updated.match("中国人".toCharArray(), 0, 3).isMatch());
+      assertTrue(engine, updated.match("中华".toCharArray(), 0, 2).isMatch());
+      assertTrue(engine, updated.match("人民币".toCharArray(), 0, 3).isMatch());
+      assertTrue(engine, updated.match("人民".toCharArray(), 0, 2).isMatch());
+      assertTrue(engine, updated.match("五".toCharArray(), 0, 1).isMatch());
+    }
+  }
+
+  @Test
+  public void testUpdateSameAsInPlace() {
+    Random random = new Random(20120508L);
+    for (String engine : new String[] { Dictionary.ENGINE_TRIE, Dictionary.ENGINE_RADIX,
+        Dictionary.ENGINE_FST, Dictionary.ENGINE_DAT }) {
+      List<char[]> initial = randomWords(random, 5000);
+      DictTrie expected = Dictionary.newDictTrie(Dictionary.ENGINE_TRIE, initial);
+      DictTrie actual = Dictionary.newDictTrie(engine, new ArrayList<char[]>(initial));
+      List<DictTrie> generations = new ArrayList<DictTrie>();
+      for (int round = 0; round < 20; round++) {
+        List<char[]> added = randomWords(random, 200);
+        List<char[]> disabled = randomWords(random, 50);
+        for (char[] word : added) {
+          expected.fillSegment(word);
+        }
+        for (char[] word : disabled) {
+          expected.disableSegment(word);
+        }
+        generations.add(actual);
+        actual = actual.update(added, disabled);
+      }
+      char[] text = new char[20000];
+      for (int i = 0; i < text.length; i++) {
+        text[i] = (char) (0x4e00 + random.nextInt(200));
+      }
+      for (int i = 0; i < text.length; i++) {
+        Hit e = expected.match(text, i, 1);
+        Hit a = actual.match(text, i, 1);
+        for (int j = i + 1;; j++) {
+          assertEquals(engine, e.isMatch(), a.isMatch());
+          assertEquals(engine, e.isPrefix(), a.isPrefix());
+          if (!e.isPrefix() || j >= text.length) {
+            break;
+          }
+          e = e.getMatchedTrie().matchWithHit(text, j, e);
+          a = a.getMatchedTrie().matchWithHit(text, j, a);
+        }
+      }
+      // 第一代词典不受后续更新影响
+      for (char[] word : initial) {
+        assertTrue(engine, generations.get(0).match(word, 0, word.length).isMatch());
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentReaders() throws Exception {
+    for (String engine : new String[] { Dictionary.ENGINE_TRIE, Dictionary.ENGINE_RADIX,
+        Dictionary.ENGINE_DAT }) {
+      final List<char[]> stable = randomWords(new Random(1L), 2000);
+      final AtomicReference<DictTrie> current = new AtomicReference<DictTrie>(
+          Dictionary.newDictTrie(engine, new ArrayList<char[]>(stable)));
+      final AtomicBoolean running = new AtomicBoolean(true);
+      final AtomicReference<String> failure = new AtomicReference<String>();
+      Thread[] readers = new Thread[4];
+      for (int t = 0; t < readers.length; t++) {
+        readers[t] = new Thread() {
+          public void run() {
+            while (running.get() && failure.get() == null) {
+              DictTrie trie = current.get();
+              for (char[] word : stable) {
+                if (!trie.match(word, 0, word.length).isMatch()) {
+                  failure.set(new String(word));
+                }
+              }
+            }
+          }
+        };
+        readers[t].start();
+      }
+      Random random = new Random(2L);
+      for (int round = 0; round < 200; round++) {
+        // 新词使用另一段字符，不影响稳定词条
+        List<char[]> added = new ArrayList<char[]>();
+        for (int i = 0; i < 50; i++) {
+          char[] word = new char[1 + random.nextInt(4)];
+          for (int j = 0; j < word.length; j++) {
+            word[j] = (char) (0x5000 + random.nextInt(3000));
+          }
+          added.add(word);
+        }
+        current.set(current.get().update(added, Collections.<char[]> emptyList()));
+      }
+      running.set(false);
+      for (Thread reader : readers) {
+        reader.join();
+      }
+      assertEquals(engine, null, failure.get());
+    }
+  }
+
+  private static List<char[]> words(String... words) {
+    List<char[]> result = new ArrayList<char[]>();
+    for (String word : Arrays.asList(words)) {
+      result.add(word.toCharArray());
+    }
+    return result;
+  }
+
+  private static List<char[]> randomWords(Random random, int count) {
+    List<char[]> result = new ArrayList<char[]>();
+    for (int i = 0; i < count; i++) {
+      char[] word = new char[1 + random.nextInt(5)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(200));
+      }
+      result.add(word);
+    }
+    return result;
+  }
+
+}
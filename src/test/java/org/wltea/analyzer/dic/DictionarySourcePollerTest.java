@@ -0,0 +1,78 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.wltea.analyzer.cfg.DefaultConfig;
+
+/**
+ * 扩展词来源轮询测试：扫描词典文件失败后的重试
+ */
+public class DictionarySourcePollerTest {
+
+  @Test
+  public void testRetryRemovalAfterScanFailure() throws IOException {
+    final Dictionary dictionary = Dictionary.initial(DefaultConfig.getInstance());
+    final boolean[] failScan = { false };
+    DictionarySourcePoller poller = new DictionarySourcePoller(dictionary, 3600) {
+      @Override
+      void excludeDictFileWords(Set<String> words) throws IOException {
+        if (failScan[0]) {
+          throw new IOException("simulated scanning failure");
+        }
+        super.excludeDictFileWords(words);
+      }
+    };
+    MemorySource source = new MemorySource();
+    poller.addSource(source);
+
+    source.publish("轮询重试测试词", "轮询保留测试词");
+    assertTrue(poller.poll());
+    assertTrue(isMainWord(dictionary, "轮询重试测试词"));
+
+    // 扫描失败，本次不屏蔽
+    source.publish("轮询保留测试词");
+    failScan[0] = true;
+    assertFalse(poller.poll());
+    assertTrue(isMainWord(dictionary, "轮询重试测试词"));
+
+    // 来源没有变化，下次轮询仍然屏蔽上次删除的词
+    failScan[0] = false;
+    assertTrue(poller.poll());
+    assertFalse(isMainWord(dictionary, "轮询重试测试词"));
+    assertTrue(isMainWord(dictionary, "轮询保留测试词"));
+    assertFalse(poller.poll());
+    poller.close();
+  }
+
+  private static boolean isMainWord(Dictionary dictionary, String word) {
+    return dictionary.matchInMainDict(word.toCharArray()).isMatch();
+  }
+
+  /**
+   * 内存中的词来源，publish后的下一次fetch返回新词条
+   */
+  private static class MemorySource implements DictionarySource {
+
+    private Set<String> words;
+
+    void publish(String... words) {
+      this.words = new HashSet<String>();
+      for (String word : words) {
+        this.words.add(word);
+      }
+    }
+
+    public Set<String> fetch() {
+      Set<String> fetched = this.words;
+      this.words = null;
+      return fetched;
+    }
+  }
+
+}
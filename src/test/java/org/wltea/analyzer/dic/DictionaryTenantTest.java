@@ -0,0 +1,133 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.wltea.analyzer.cfg.Configuration;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.core.Lexeme;
+
+/**
+ * 租户词典测试：租户词条只对该租户可见，基础词典的更新对全部租户可见
+ */
+public class DictionaryTenantTest {
+
+  @Test
+  public void testOverlaySameAsMergedTrie() {
+    Random random = new Random(20121022L);
+    for (String engine : new String[] { Dictionary.ENGINE_TRIE, Dictionary.ENGINE_DAT }) {
+      List<char[]> baseWords = randomWords(random, 5000);
+      DictTrie expected = Dictionary.newDictTrie(Dictionary.ENGINE_TRIE, baseWords);
+      DictTrie actual = new OverlayDictTrie(Dictionary.newDictTrie(engine,
+        new ArrayList<char[]>(baseWords)));
+      for (int round = 0; round < 10; round++) {
+        List<char[]> added = randomWords(random, 100);
+        List<char[]> disabled = randomWords(random, 50);
+        for (char[] word : added) {
+          expected.fillSegment(word);
+        }
+        for (char[] word : disabled) {
+          expected.disableSegment(word);
+        }
+        actual = actual.update(added, disabled);
+      }
+      char[] text = new char[20000];
+      for (int i = 0; i < text.length; i++) {
+        text[i] = (char) (0x4e00 + random.nextInt(200));
+      }
+      for (int i = 0; i < text.length; i++) {
+        Hit e = expected.match(text, i, 1);
+        Hit a = actual.match(text, i, 1);
+        for (int j = i + 1;; j++) {
+          assertEquals(engine + " match @" + i + "-" + j, e.isMatch(), a.isMatch());
+          assertEquals(engine + " prefix @" + i + "-" + j, e.isPrefix(), a.isPrefix());
+          if (!e.isPrefix() || j >= text.length) {
+            break;
+          }
+          e = e.getMatchedTrie().matchWithHit(text, j, e);
+          a = a.getMatchedTrie().matchWithHit(text, j, a);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTenantsAreIsolated() {
+    Dictionary base = Dictionary.initial(DefaultConfig.getInstance());
+    Dictionary tenantA = base.newTenant();
+    Dictionary tenantB = base.newTenant();
+    // 没有叠加词条的租户直接使用基础词典
+    assertSame(base.getMainDictMatcher(), tenantA.getMainDictMatcher());
+
+    tenantA.addWords(Arrays.asList("甲租户专有词"));
+    tenantA.disableWords(Arrays.asList("中国"));
+    assertTrue(isWord(tenantA, "甲租户专有词"));
+    assertFalse(isWord(tenantA, "中国"));
+    assertTrue(isWord(tenantA, "中国人"));
+
+    assertFalse(isWord(tenantB, "甲租户专有词"));
+    assertTrue(isWord(tenantB, "中国"));
+    assertFalse(isWord(base, "甲租户专有词"));
+    assertTrue(isWord(base, "中国"));
+
+    // 基础词典的更新对租户立即可见，租户的屏蔽仍然有效
+    base.addWords(Arrays.asList("基础词典新词"));
+    try {
+      assertTrue(isWord(tenantA, "基础词典新词"));
+      assertTrue(isWord(tenantB, "基础词典新词"));
+      assertTrue(isWord(tenantA, "甲租户专有词"));
+      assertFalse(isWord(tenantA, "中国"));
+    } finally {
+      base.disableWords(Arrays.asList("基础词典新词"));
+    }
+    assertFalse(isWord(tenantA, "基础词典新词"));
+  }
+
+  @Test
+  public void testSegmentWithTenant() throws IOException {
+    Dictionary base = Dictionary.initial(DefaultConfig.getInstance());
+    Dictionary tenant = base.newTenant();
+    tenant.addWords(Arrays.asList("芝士蛋糕店"));
+    assertTrue(segment(tenant, "楼下的芝士蛋糕店开业了").contains("芝士蛋糕店"));
+    assertFalse(segment(base, "楼下的芝士蛋糕店开业了").contains("芝士蛋糕店"));
+  }
+
+  private static boolean isWord(Dictionary dictionary, String word) {
+    return dictionary.matchInMainDict(word.toCharArray()).isMatch();
+  }
+
+  private static List<String> segment(Dictionary dictionary, String text) throws IOException {
+    Configuration cfg = DefaultConfig.getInstance();
+    cfg.setUseSmart(true);
+    IKSegmenter segmenter = new IKSegmenter(new StringReader(text), cfg, dictionary);
+    List<String> words = new ArrayList<String>();
+    for (Lexeme lexeme = segmenter.next(); lexeme != null; lexeme = segmenter.next()) {
+      words.add(lexeme.getLexemeText());
+    }
+    return words;
+  }
+
+  private static List<char[]> randomWords(Random random, int count) {
+    List<char[]> result = new ArrayList<char[]>();
+    for (int i = 0; i < count; i++) {
+      char[] word = new char[1 + random.nextInt(5)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(200));
+      }
+      result.add(word);
+    }
+    return result;
+  }
+
+}
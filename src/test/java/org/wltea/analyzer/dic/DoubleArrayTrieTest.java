@@ -0,0 +1,122 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * 双数组词典树与DictSegment对象树的匹配结果一致性测试
+ */
+public class DoubleArrayTrieTest {
+
+  private static final String[] WORDS = { "中国", "中国人", "中华", "中华人民共和国", "人民", "共和国", "国人",
+      "一", "一一", "一二三", "ab", "abc", "a", "c++", "张柏芝", "芝士蛋糕", "蛋糕店" };
+
+  @Test
+  public void testMatchSameAsDictSegment() {
+    DictTrie segment = Dictionary.newDictTrie(Dictionary.ENGINE_TRIE);
+    DictTrie dat = Dictionary.newDictTrie(Dictionary.ENGINE_DAT);
+    for (String word : WORDS) {
+      segment.fillSegment(word.toCharArray());
+      dat.fillSegment(word.toCharArray());
+    }
+    assertSameHits(segment, dat, "中华人民共和国人一二三张柏芝士蛋糕店abc++x".toCharArray());
+  }
+
+  @Test
+  public void testDisableWord() {
+    DictTrie dat = Dictionary.newDictTrie(Dictionary.ENGINE_DAT);
+    for (String word : WORDS) {
+      dat.fillSegment(word.toCharArray());
+    }
+    dat.disableSegment("中国".toCharArray());
+    dat.disableSegment("不存在".toCharArray());
+    Hit hit = dat.match("中国".toCharArray(), 0, 2);
+    assertFalse(hit.isMatch());
+    assertTrue(hit.isPrefix());
+    assertTrue(dat.match("中国人".toCharArray(), 0, 3).isMatch());
+    assertTrue(dat.match("不".toCharArray(), 0, 1).isUnmatch());
+  }
+
+  @Test
+  public void testRandomWordsWithRelocation() {
+    // 随机词条会频繁触发槽位冲突及节点迁移
+    Random random = new Random(20121022L);
+    DictTrie segment = Dictionary.newDictTrie(Dictionary.ENGINE_TRIE);
+    DictTrie dat = Dictionary.newDictTrie(Dictionary.ENGINE_DAT);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      char[] word = new char[1 + random.nextInt(5)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(300));
+      }
+      segment.fillSegment(word);
+      dat.fillSegment(word);
+      if (i % 10 == 0) {
+        text.append(word);
+      }
+    }
+    for (int i = 0; i < 2000; i++) {
+      text.append((char) (0x4e00 + random.nextInt(300)));
+    }
+    assertSameHits(segment, dat, text.toString().toCharArray());
+  }
+
+  @Test
+  public void testBuildThenFill() {
+    Random random = new Random(20120508L);
+    List<char[]> words = new ArrayList<char[]>();
+    DictTrie segment = Dictionary.newDictTrie(Dictionary.ENGINE_TRIE);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      char[] word = new char[1 + random.nextInt(6)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(500));
+      }
+      words.add(word);
+      segment.fillSegment(word);
+      if (i % 10 == 0) {
+        text.append(word);
+      }
+    }
+    // 批量构建后继续插入新词
+    DictTrie dat = Dictionary.newDictTrie(Dictionary.ENGINE_DAT, words);
+    for (int i = 0; i < 2000; i++) {
+      char[] word = new char[1 + random.nextInt(4)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(600));
+      }
+      segment.fillSegment(word);
+      dat.fillSegment(word);
+      text.append(word);
+    }
+    assertSameHits(segment, dat, text.toString().toCharArray());
+  }
+
+  /**
+   * 在文本的每个位置从根节点开始匹配，并沿前缀逐字向后匹配，比较两种实现的Hit状态
+   */
+  private void assertSameHits(DictTrie expected, DictTrie actual, char[] text) {
+    for (int i = 0; i < text.length; i++) {
+      Hit e = expected.match(text, i, 1);
+      Hit a = actual.match(text, i, 1);
+      for (int j = i + 1;; j++) {
+        assertEquals("match @" + i + "-" + j, e.isMatch(), a.isMatch());
+        assertEquals("prefix @" + i + "-" + j, e.isPrefix(), a.isPrefix());
+        assertEquals("unmatch @" + i + "-" + j, e.isUnmatch(), a.isUnmatch());
+        if (!e.isPrefix() || j >= text.length) {
+          break;
+        }
+        e = e.getMatchedTrie().matchWithHit(text, j, e);
+        a = a.getMatchedTrie().matchWithHit(text, j, a);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.wltea.analyzer.cfg.DefaultConfig;
+import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.core.Lexeme;
+
+/**
+ * 合并词典树测试：各标志位视图与独立词典树的匹配结果一致
+ */
+public class FlagDictTrieTest {
+
+  @Test
+  public void testViewsSameAsSeparateTries() {
+    Random random = new Random(20121022L);
+    int[] flags = { Dictionary.WORD_MAIN, Dictionary.WORD_QUANTIFIER, Dictionary.WORD_STOP };
+    DictSegment root = new DictSegment((char) 0);
+    List<DictTrie> separate = new ArrayList<DictTrie>();
+    for (int flag : flags) {
+      DictTrie trie = Dictionary.newDictTrie(Dictionary.ENGINE_TRIE);
+      // 各词典的词条数量不同，互相有重叠
+      for (int i = 0; i < 20000 / flag; i++) {
+        char[] word = randomWord(random);
+        trie.fillSegment(word);
+        root.fillSegment(word, flag);
+      }
+      separate.add(trie);
+    }
+    for (int i = 0; i < 500; i++) {
+      char[] word = randomWord(random);
+      separate.get(0).disableSegment(word);
+      root.disableSegment(word, Dictionary.WORD_MAIN);
+    }
+    char[] text = new char[20000];
+    for (int i = 0; i < text.length; i++) {
+      text[i] = (char) (0x4e00 + random.nextInt(200));
+    }
+    assertSameHits(separate.get(0), root, text);
+    assertSameHits(separate.get(1), new FlagDictTrie(root, Dictionary.WORD_QUANTIFIER), text);
+    assertSameHits(separate.get(2), new FlagDictTrie(root, Dictionary.WORD_STOP), text);
+  }
+
+  @Test
+  public void testWordFlagsOnLexemes() throws IOException {
+    Dictionary dictionary = Dictionary.initial(DefaultConfig.getInstance());
+    int tag = Dictionary.WORD_USER_TAG << 1;
+    assertTrue(dictionary.supportsWordTags());
+    assertTrue(dictionary.tagWords(Arrays.asList("中华人民共和国"), tag));
+    boolean tagged = false;
+    IKSegmenter segmenter = new IKSegmenter(new StringReader("中华人民共和国成立了"),
+        DefaultConfig.getInstance());
+    for (Lexeme lexeme = segmenter.next(); lexeme != null; lexeme = segmenter.next()) {
+      if ("中华人民共和国".equals(lexeme.getLexemeText())) {
+        assertTrue((lexeme.getWordFlags() & Dictionary.WORD_MAIN) != 0);
+        assertTrue((lexeme.getWordFlags() & tag) != 0);
+        tagged = true;
+      }
+    }
+    assertTrue(tagged);
+    // 标签不改变主词典
+    assertFalse(dictionary.matchInMainDict("中华人民共和国成".toCharArray()).isMatch());
+  }
+
+  @Test
+  public void testTenantWithoutTags() {
+    Dictionary tenant = Dictionary.initial(DefaultConfig.getInstance()).newTenant();
+    // 租户词典不保存标志位，不设置标签也不抛出异常
+    assertFalse(tenant.supportsWordTags());
+    assertFalse(tenant.tagWords(Arrays.asList("中国"), Dictionary.WORD_USER_TAG));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReservedTag() {
+    Dictionary.initial(DefaultConfig.getInstance()).tagWords(Arrays.asList("中国"),
+      Dictionary.WORD_STOP);
+  }
+
+  private static void assertSameHits(DictTrie expected, DictTrie actual, char[] text) {
+    for (int i = 0; i < text.length; i++) {
+      Hit e = expected.match(text, i, 1);
+      Hit a = actual.match(text, i, 1);
+      for (int j = i + 1;; j++) {
+        assertEquals("match @" + i + "-" + j, e.isMatch(), a.isMatch());
+        assertEquals("prefix @" + i + "-" + j, e.isPrefix(), a.isPrefix());
+        if (!e.isPrefix() || j >= text.length) {
+          break;
+        }
+        e = e.getMatchedTrie().matchWithHit(text, j, e);
+        a = a.getMatchedTrie().matchWithHit(text, j, a);
+      }
+    }
+  }
+
+  private static char[] randomWord(Random random) {
+    char[] word = new char[1 + random.nextInt(5)];
+    for (int j = 0; j < word.length; j++) {
+      word[j] = (char) (0x4e00 + random.nextInt(200));
+    }
+    return word;
+  }
+
+}
@@ -0,0 +1,78 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * FST词典树与DictSegment对象树的匹配结果一致性及序列化测试
+ */
+public class FstDictTrieTest {
+
+  @Test
+  public void testMatchSameAsDictSegment() throws IOException {
+    Random random = new Random(20121022L);
+    List<char[]> words = new ArrayList<char[]>();
+    DictTrie segment = Dictionary.newDictTrie(Dictionary.ENGINE_TRIE);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      char[] word = new char[1 + random.nextInt(6)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(300));
+      }
+      words.add(word);
+      segment.fillSegment(word);
+      if (i % 10 == 0) {
+        text.append(word);
+      }
+    }
+    for (int i = 0; i < 2000; i++) {
+      text.append((char) (0x4e00 + random.nextInt(300)));
+    }
+    FstDictTrie fst = (FstDictTrie) Dictionary.newDictTrie(Dictionary.ENGINE_FST, words);
+    char[] chars = text.toString().toCharArray();
+    assertSameHits(segment, fst, chars);
+
+    // 序列化后读取的自动机匹配结果不变
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    fst.writeTo(bytes);
+    assertSameHits(segment, FstDictTrie.readFrom(new ByteArrayInputStream(bytes.toByteArray())),
+      chars);
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    DictTrie fst = Dictionary.newDictTrie(Dictionary.ENGINE_FST);
+    assertTrue(fst.match("中国".toCharArray(), 0, 2).isUnmatch());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ((FstDictTrie) fst).writeTo(bytes);
+    fst = FstDictTrie.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+    assertTrue(fst.match("中国".toCharArray(), 0, 2).isUnmatch());
+  }
+
+  private static void assertSameHits(DictTrie expected, DictTrie actual, char[] text) {
+    for (int i = 0; i < text.length; i++) {
+      Hit e = expected.match(text, i, 1);
+      Hit a = actual.match(text, i, 1);
+      for (int j = i + 1;; j++) {
+        assertEquals("match @" + i + "-" + j, e.isMatch(), a.isMatch());
+        assertEquals("prefix @" + i + "-" + j, e.isPrefix(), a.isPrefix());
+        assertEquals("unmatch @" + i + "-" + j, e.isUnmatch(), a.isUnmatch());
+        if (!e.isPrefix() || j >= text.length) {
+          break;
+        }
+        e = e.getMatchedTrie().matchWithHit(text, j, e);
+        a = a.getMatchedTrie().matchWithHit(text, j, a);
+      }
+    }
+  }
+
+}
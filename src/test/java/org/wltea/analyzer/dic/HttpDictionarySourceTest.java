@@ -0,0 +1,134 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wltea.analyzer.cfg.DefaultConfig;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 远程扩展词来源的条件请求及增量更新测试，使用本地HttpServer模拟词表服务
+ */
+public class HttpDictionarySourceTest {
+
+  private HttpServer server;
+  // 当前词表内容及版本
+  private volatile String body;
+  private volatile int version;
+  // 请求次数及返回完整词表的次数
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger fullResponses = new AtomicInteger();
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/ext.dic", new HttpHandler() {
+      public void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String etag = "\"v" + version + "\"";
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+        fullResponses.incrementAndGet();
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("ETag", etag);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+          ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+          GZIPOutputStream gzip = new GZIPOutputStream(gzipped);
+          gzip.write(bytes);
+          gzip.close();
+          bytes = gzipped.toByteArray();
+          exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(bytes);
+        os.close();
+      }
+    });
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testConditionalGet() throws IOException {
+    publish("远程词甲\n Remote \n\n远程词乙\n");
+    HttpDictionarySource source = new HttpDictionarySource(url());
+    assertEquals(new HashSet<String>(Arrays.asList("远程词甲", "remote", "远程词乙")), source.fetch());
+    // 词表未变化，服务端返回304
+    assertNull(source.fetch());
+    assertEquals(2, requests.get());
+    assertEquals(1, fullResponses.get());
+
+    publish("远程词甲\n");
+    assertEquals(new HashSet<String>(Arrays.asList("远程词甲")), source.fetch());
+    assertEquals(2, fullResponses.get());
+  }
+
+  @Test(expected = IOException.class)
+  public void testErrorStatus() throws IOException {
+    new HttpDictionarySource(new URL(url(), "/missing.dic")).fetch();
+  }
+
+  @Test
+  public void testIncrementalUpdate() throws IOException {
+    Dictionary dictionary = Dictionary.initial(DefaultConfig.getInstance());
+    DictionarySourcePoller poller = new DictionarySourcePoller(dictionary, 3600);
+    poller.addSource(new HttpDictionarySource(url()));
+
+    publish("远程测试词\n中国\n");
+    assertTrue(poller.poll());
+    assertTrue(isMainWord("远程测试词"));
+    // 未变化的词表不更新词典
+    assertFalse(poller.poll());
+    assertEquals(1, poller.getUpdateCount());
+
+    // 删除的远程词被屏蔽，主词典中的"中国"保留
+    publish("另一个远程测试词\n");
+    assertTrue(poller.poll());
+    assertFalse(isMainWord("远程测试词"));
+    assertTrue(isMainWord("另一个远程测试词"));
+    assertTrue(isMainWord("中国"));
+    assertEquals(3, poller.getPollCount());
+    poller.close();
+  }
+
+  private boolean isMainWord(String word) {
+    return Dictionary.getSingleton().matchInMainDict(word.toCharArray()).isMatch();
+  }
+
+  private void publish(String content) {
+    body = content;
+    version++;
+  }
+
+  private URL url() throws IOException {
+    return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/ext.dic");
+  }
+
+}
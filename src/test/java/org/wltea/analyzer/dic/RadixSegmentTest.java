@@ -0,0 +1,84 @@
+package org.wltea.analyzer.dic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * 基数树与DictSegment对象树的匹配结果一致性测试
+ */
+public class RadixSegmentTest {
+
+  @Test
+  public void testSplitAndDisable() {
+    DictTrie radix = Dictionary.newDictTrie(Dictionary.ENGINE_RADIX);
+    radix.fillSegment("中华人民共和国".toCharArray());
+    Hit hit = radix.match("中华人民".toCharArray(), 0, 4);
+    assertFalse(hit.isMatch());
+    assertTrue(hit.isPrefix());
+
+    // 在边标签中间结束的词拆分节点
+    radix.fillSegment("中华".toCharArray());
+    radix.fillSegment("中华民国".toCharArray());
+    assertTrue(radix.match("中华".toCharArray(), 0, 2).isMatch());
+    assertTrue(radix.match("中华".toCharArray(), 0, 2).isPrefix());
+    assertTrue(radix.match("中华民国".toCharArray(), 0, 4).isMatch());
+    assertTrue(radix.match("中华人民共和国".toCharArray(), 0, 7).isMatch());
+    assertTrue(radix.match("中华人".toCharArray(), 0, 3).isPrefix());
+    assertTrue(radix.match("中华民族".toCharArray(), 0, 4).isUnmatch());
+
+    // 屏蔽不存在的词不改变词典
+    radix.disableSegment("中华人民".toCharArray());
+    assertTrue(radix.match("中华人民共和国".toCharArray(), 0, 7).isMatch());
+    radix.disableSegment("中华".toCharArray());
+    assertFalse(radix.match("中华".toCharArray(), 0, 2).isMatch());
+    assertTrue(radix.match("中华民国".toCharArray(), 0, 4).isMatch());
+  }
+
+  @Test
+  public void testRandomLongWords() {
+    // 少量首字、较长的词条，产生大量单链及拆分
+    Random random = new Random(20121022L);
+    DictTrie segment = Dictionary.newDictTrie(Dictionary.ENGINE_TRIE);
+    DictTrie radix = Dictionary.newDictTrie(Dictionary.ENGINE_RADIX);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      char[] word = new char[1 + random.nextInt(10)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) (0x4e00 + random.nextInt(j < 2 ? 30 : 8));
+      }
+      segment.fillSegment(word);
+      radix.fillSegment(word);
+      if (i % 5 == 0) {
+        segment.disableSegment(word);
+        radix.disableSegment(word);
+      }
+      if (i % 10 == 0) {
+        text.append(word);
+      }
+    }
+    for (int i = 0; i < 2000; i++) {
+      text.append((char) (0x4e00 + random.nextInt(30)));
+    }
+    char[] chars = text.toString().toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      Hit e = segment.match(chars, i, 1);
+      Hit a = radix.match(chars, i, 1);
+      for (int j = i + 1;; j++) {
+        assertEquals("match @" + i + "-" + j, e.isMatch(), a.isMatch());
+        assertEquals("prefix @" + i + "-" + j, e.isPrefix(), a.isPrefix());
+        assertEquals("unmatch @" + i + "-" + j, e.isUnmatch(), a.isUnmatch());
+        if (!e.isPrefix() || j >= chars.length) {
+          break;
+        }
+        e = e.getMatchedTrie().matchWithHit(chars, j, e);
+        a = a.getMatchedTrie().matchWithHit(chars, j, a);
+      }
+    }
+  }
+
+}
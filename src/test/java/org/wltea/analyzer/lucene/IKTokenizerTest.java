@@ -0,0 +1,57 @@
+package org.wltea.analyzer.lucene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.junit.Test;
+import org.wltea.analyzer.core.IKSegmenter;
+import org.wltea.analyzer.core.Lexeme;
+
+/**
+ * IKTokenizer直接从分词缓冲区输出词元，结果与IKSegmenter.next一致
+ */
+public class IKTokenizerTest {
+
+  private static final String TEXT = "IK Analyzer是一个开源的，基于java语言开发的轻量级的中文分词工具包。"
+      + "从2006年12月推出1.0版开始，共有3200万字，第一季度销售额增长了百分之二十五点五。";
+
+  @Test
+  public void testSameAsSegmenter() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      sb.append(TEXT);
+    }
+    for (String text : new String[] { TEXT, sb.toString() }) {
+      assertSame(text, false);
+      assertSame(text, true);
+    }
+  }
+
+  private static void assertSame(String text, boolean useSmart) throws IOException {
+    IKSegmenter segmenter = new IKSegmenter(new StringReader(text), useSmart);
+    IKTokenizer tokenizer = new IKTokenizer(new StringReader(text), useSmart);
+    CharTermAttribute termAtt = tokenizer.getAttribute(CharTermAttribute.class);
+    OffsetAttribute offsetAtt = tokenizer.getAttribute(OffsetAttribute.class);
+    TypeAttribute typeAtt = tokenizer.getAttribute(TypeAttribute.class);
+    tokenizer.reset();
+    Lexeme lexeme;
+    while ((lexeme = segmenter.next()) != null) {
+      assertTrue(tokenizer.incrementToken());
+      assertEquals(lexeme.getLexemeText(), termAtt.toString());
+      assertEquals(lexeme.getBeginPosition(), offsetAtt.startOffset());
+      assertEquals(lexeme.getEndPosition(), offsetAtt.endOffset());
+      assertEquals(lexeme.getLexemeTypeString(), typeAtt.type());
+    }
+    assertFalse(tokenizer.incrementToken());
+    tokenizer.end();
+    tokenizer.close();
+  }
+
+}